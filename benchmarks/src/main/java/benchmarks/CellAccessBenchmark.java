@@ -0,0 +1,124 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import common.exception.DataParseException;
+import domain.model.LeaveRequest;
+import domain.model.LeaveStatus;
+import infrastructure.file.parsers.AbstractDataParser;
+import infrastructure.file.parsers.SheetRow;
+
+// Converts already-read rows to LeaveRequests with the typed cell accessors and with the text-based
+// accessors they replaced, so the cost per row can be compared. Run with -prof gc:
+// gc.alloc.rate.norm is then the bytes allocated per row.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@OperationsPerInvocation(CellAccessBenchmark.ROWS)
+public class CellAccessBenchmark {
+
+	static final int ROWS = 10000;
+
+	private final RowConverter converter = new RowConverter();
+	private List<SheetRow> rows;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		rows = new ArrayList<>(ROWS);
+		converter.readRows(SyntheticWorkbooks.workbook(ROWS).toFile(), rows::add);
+	}
+
+	@Benchmark
+	public void typedAccessors(Blackhole blackhole) throws DataParseException {
+		for (SheetRow row : rows) {
+			blackhole.consume(converter.parseRow(row));
+		}
+	}
+
+	@Benchmark
+	public void textAccessors(Blackhole blackhole) throws DataParseException {
+		for (SheetRow row : rows) {
+			blackhole.consume(converter.parseRowFromText(row));
+		}
+	}
+
+	static final class RowConverter extends AbstractDataParser<LeaveRequest> {
+
+		RowConverter() {
+			super(ParseMode.STREAMING);
+		}
+
+		@Override
+		protected String[] getExpectedHeaders() {
+			return SyntheticWorkbooks.HEADERS;
+		}
+
+		// Same columns and accessors as LeaveRequestXlsxParser
+		@Override
+		protected LeaveRequest parseRow(SheetRow row) throws DataParseException {
+			return new LeaveRequest(0, getInternedStringValue(row, 0), getInternedStringValue(row, 3),
+					getDateValue(row, 4), getDateValue(row, 5), getFloatValue(row, 6),
+					LeaveStatus.fromString(getStringValue(row, 7)), getStringValue(row, 8));
+		}
+
+		// The accessors as they were before: every value goes through its text, errors are
+		// formatted up front and missing values are signalled with exceptions
+		LeaveRequest parseRowFromText(SheetRow row) throws DataParseException {
+			return new LeaveRequest(0, row.getText(0).trim(), row.getText(3).trim(), dateFromText(row, 4),
+					dateFromText(row, 5), floatFromText(row, 6), LeaveStatus.fromString(row.getText(7).trim()),
+					row.getText(8).trim());
+		}
+
+		private static LocalDate dateFromText(SheetRow row, int cellIndex) throws DataParseException {
+			try {
+				if (row.isBlank(cellIndex)) {
+					throw new DataParseException("Missing date value");
+				}
+				SheetRow.CellKind kind = row.getKind(cellIndex);
+				if (kind == SheetRow.CellKind.NUMERIC || kind == SheetRow.CellKind.DATE) {
+					return DateUtil.getLocalDateTime(row.getNumber(cellIndex)).toLocalDate();
+				}
+				return LocalDate.parse(row.getText(cellIndex).trim());
+			} catch (Exception e) {
+				throw new DataParseException(
+						String.format("Invalid date format in cell %d: %s", cellIndex + 1, row.getText(cellIndex)), e);
+			}
+		}
+
+		private static float floatFromText(SheetRow row, int cellIndex) throws DataParseException {
+			try {
+				if (row.isBlank(cellIndex)) {
+					throw new DataParseException("Missing float value");
+				}
+				if (row.getKind(cellIndex) == SheetRow.CellKind.NUMERIC) {
+					return (float) row.getNumber(cellIndex);
+				}
+				return Float.parseFloat(row.getText(cellIndex).trim());
+			} catch (Exception e) {
+				throw new DataParseException(
+						String.format("Invalid float format in cell %d: %s", cellIndex + 1, row.getText(cellIndex)), e);
+			}
+		}
+	}
+}
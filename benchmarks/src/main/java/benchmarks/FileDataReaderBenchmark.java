@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.exception.DataReaderException;
+import domain.model.LeaveRequest;
+import domain.validation.FileValidator;
+import infrastructure.file.FileDataReader;
+import infrastructure.file.parsers.AbstractDataParser.ParseMode;
+import infrastructure.file.parsers.LeaveRequestXlsxParser;
+
+// Reading a batch of workbooks at different concurrency limits, on the shared reader executor
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FileDataReaderBenchmark {
+
+	@Param({ "1", "2", "4", "8" })
+	public int maxConcurrency;
+
+	@Param({ "8" })
+	public int files;
+
+	@Param({ "20000" })
+	public int rowsPerFile;
+
+	@Param({ "STREAMING" })
+	public String parseMode;
+
+	private FileDataReader<LeaveRequest> reader;
+	private List<Path> paths;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		paths = Arrays.asList(SyntheticWorkbooks.copies(rowsPerFile, files));
+		reader = new FileDataReader<>(new LeaveRequestXlsxParser(ParseMode.valueOf(parseMode)), new FileValidator(),
+				FileDataReader.sharedExecutor(), maxConcurrency);
+	}
+
+	@Benchmark
+	public List<LeaveRequest> readData() throws DataReaderException {
+		return reader.readData(paths);
+	}
+}
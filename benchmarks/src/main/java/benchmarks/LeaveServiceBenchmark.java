@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.services.LeaveService;
+import common.exception.InvalidLeaveRequestException;
+import domain.model.LeaveRequest;
+
+// LeaveService overhead with repositories that cost nothing. Run with -t to see how the
+// per-employee approval locks behave under contention.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LeaveServiceBenchmark {
+
+	@Param({ "1000" })
+	public int employees;
+
+	private LeaveService leaveService;
+	private LocalDate startDate;
+	private LocalDate endDate;
+	private final AtomicInteger nextEmployee = new AtomicInteger();
+	private final AtomicInteger nextRequest = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// requestLeave only accepts weekdays in the next two weeks
+		startDate = nextWeekday(LocalDate.now().plusDays(1));
+		endDate = nextWeekday(startDate.plusDays(1));
+		leaveService = new LeaveService(new StubRepositories.LeaveRequests(employees, startDate, endDate),
+				new StubRepositories.LeaveBalances(), new StubRepositories.Employees(employees),
+				new StubRepositories.LeaveTypes(), new StubRepositories.LeaveApprovals());
+	}
+
+	@Benchmark
+	public LeaveRequest requestLeave() throws InvalidLeaveRequestException {
+		String employeeId = StubRepositories.employeeId(Math.floorMod(nextEmployee.getAndIncrement(), employees));
+		return leaveService.requestLeave(employeeId, "Sick", startDate, endDate);
+	}
+
+	@Benchmark
+	public int approveLeave() throws InvalidLeaveRequestException {
+		int requestId = nextRequest.getAndIncrement() & Integer.MAX_VALUE;
+		leaveService.approveLeave(requestId);
+		return requestId;
+	}
+
+	private static LocalDate nextWeekday(LocalDate date) {
+		while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+			date = date.plusDays(1);
+		}
+		return date;
+	}
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.exception.DataParseException;
+import infrastructure.file.parsers.AbstractDataParser;
+import infrastructure.file.parsers.AbstractDataParser.ParseMode;
+import infrastructure.file.parsers.EmployeeXlsxParser;
+import infrastructure.file.parsers.LeaveBalanceXlsxParser;
+import infrastructure.file.parsers.LeaveRequestXlsxParser;
+import infrastructure.file.parsers.LeaveTypeXlsxParser;
+
+// Time to parse one workbook per entity parser and parse mode. IN_MEMORY is left out of the
+// defaults because XSSFWorkbook needs several GB for a million rows; add it with -p parseMode=IN_MEMORY.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParserBenchmark {
+
+	@Param({ "EMPLOYEE", "LEAVE_REQUEST", "LEAVE_BALANCE", "LEAVE_TYPE" })
+	public String entity;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	@Param({ "STREAMING", "PARALLEL" })
+	public String parseMode;
+
+	private AbstractDataParser<?> parser;
+	private File workbook;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		workbook = SyntheticWorkbooks.workbook(rows).toFile();
+		parser = parser(entity, ParseMode.valueOf(parseMode));
+	}
+
+	@Benchmark
+	public List<?> parse() throws DataParseException {
+		return parser.parse(workbook);
+	}
+
+	static AbstractDataParser<?> parser(String entity, ParseMode parseMode) {
+		switch (entity) {
+		case "EMPLOYEE":
+			return new EmployeeXlsxParser(parseMode);
+		case "LEAVE_REQUEST":
+			return new LeaveRequestXlsxParser(parseMode);
+		case "LEAVE_BALANCE":
+			return new LeaveBalanceXlsxParser(parseMode);
+		case "LEAVE_TYPE":
+			return new LeaveTypeXlsxParser(parseMode);
+		default:
+			throw new IllegalArgumentException("Unknown entity: " + entity);
+		}
+	}
+}
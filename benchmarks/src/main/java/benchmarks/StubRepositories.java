@@ -0,0 +1,255 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import domain.model.Employee;
+import domain.model.LeaveBalance;
+import domain.model.LeaveRequest;
+import domain.model.LeaveStatus;
+import domain.model.LeaveType;
+import domain.repository.IEmployeeRepository;
+import domain.repository.ILeaveApprovalRepository;
+import domain.repository.ILeaveBalanceRepository;
+import domain.repository.ILeaveRequestRepository;
+import domain.repository.ILeaveTypeRepository;
+
+// In-memory repositories that answer instantly and keep nothing per call, so LeaveService
+// benchmarks measure the service itself (validation, locking) rather than a database
+final class StubRepositories {
+
+	private StubRepositories() {
+	}
+
+	static String employeeId(int index) {
+		return String.format("EMP%06d", index);
+	}
+
+	static final class Employees implements IEmployeeRepository {
+
+		private final int count;
+
+		Employees(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public Optional<Employee> findById(String employeeId) {
+			return existsById(employeeId) ? Optional.of(new Employee(employeeId, "Employee", "Engineering"))
+					: Optional.empty();
+		}
+
+		@Override
+		public List<Employee> findAll() {
+			List<Employee> employees = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				employees.add(new Employee(employeeId(i), "Employee " + i, "Engineering"));
+			}
+			return employees;
+		}
+
+		@Override
+		public void save(Employee employee) {
+		}
+
+		@Override
+		public boolean existsById(String employeeId) {
+			if (employeeId.length() != 9 || !employeeId.startsWith("EMP")) {
+				return false;
+			}
+			int index = Integer.parseInt(employeeId.substring(3));
+			return index < count;
+		}
+	}
+
+	static final class LeaveTypes implements ILeaveTypeRepository {
+
+		private final Map<String, LeaveType> byName = new HashMap<>();
+
+		LeaveTypes() {
+			byName.put("sick", new LeaveType(1, "Sick", 10));
+			byName.put("casual", new LeaveType(2, "Casual", 12));
+			byName.put("paid", new LeaveType(3, "Paid", 15));
+		}
+
+		@Override
+		public Optional<LeaveType> findById(int id) {
+			for (LeaveType type : byName.values()) {
+				if (type.getLeaveTypeId() == id) {
+					return Optional.of(type);
+				}
+			}
+			return Optional.empty();
+		}
+
+		@Override
+		public Optional<LeaveType> findByName(String name) {
+			return Optional.ofNullable(byName.get(name.toLowerCase()));
+		}
+
+		@Override
+		public List<LeaveType> findAll() {
+			return new ArrayList<>(byName.values());
+		}
+
+		@Override
+		public LeaveType save(LeaveType leaveType) {
+			return leaveType;
+		}
+	}
+
+	static final class LeaveBalances implements ILeaveBalanceRepository {
+
+		@Override
+		public Optional<LeaveBalance> findByEmployeeIdAndLeaveType(String employeeId, String leaveType) {
+			return Optional.of(new LeaveBalance(employeeId, leaveType, 20));
+		}
+
+		@Override
+		public List<LeaveBalance> findByEmployeeId(String employeeId) {
+			return Collections.singletonList(new LeaveBalance(employeeId, "Sick", 20));
+		}
+
+		@Override
+		public List<LeaveBalance> findByEmployeeIds(Collection<String> employeeIds) {
+			List<LeaveBalance> balances = new ArrayList<>();
+			for (String employeeId : employeeIds) {
+				balances.addAll(findByEmployeeId(employeeId));
+			}
+			return balances;
+		}
+
+		@Override
+		public void save(LeaveBalance leaveBalance) {
+		}
+
+		@Override
+		public void updateBalance(String employeeId, String leaveType, float newBalance) {
+		}
+
+		@Override
+		public void deductAll(List<LeaveBalance> deductions) {
+		}
+	}
+
+	// Every request ID resolves to a pending two-day request of employee (id % employees)
+	static final class LeaveRequests implements ILeaveRequestRepository {
+
+		private final int employees;
+		private final LocalDate startDate;
+		private final LocalDate endDate;
+		private final AtomicInteger nextId = new AtomicInteger();
+
+		LeaveRequests(int employees, LocalDate startDate, LocalDate endDate) {
+			this.employees = employees;
+			this.startDate = startDate;
+			this.endDate = endDate;
+		}
+
+		@Override
+		public Optional<LeaveRequest> findById(int requestId) {
+			return Optional.of(pending(requestId));
+		}
+
+		@Override
+		public List<LeaveRequest> findByIds(Collection<Integer> requestIds) {
+			List<LeaveRequest> requests = new ArrayList<>(requestIds.size());
+			for (Integer requestId : requestIds) {
+				requests.add(pending(requestId));
+			}
+			return requests;
+		}
+
+		@Override
+		public List<LeaveRequest> findByEmployeeId(String employeeId) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<LeaveRequest> findByEmployeeId(String employeeId, int year) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<LeaveRequest> findByEmployeeIdAndLeaveType(String employeeId, String leaveType) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<LeaveRequest> findByStatus(LeaveStatus status) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<LeaveRequest> findByStatus(LeaveStatus status, int year) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public LeaveRequest save(LeaveRequest leaveRequest) {
+			nextId.incrementAndGet();
+			return leaveRequest;
+		}
+
+		@Override
+		public void updateStatus(int requestId, LeaveStatus status, String remarks) {
+		}
+
+		@Override
+		public List<LeaveRequest> findOverlappingRequests(String employeeId, LocalDate startDate, LocalDate endDate) {
+			return Collections.emptyList();
+		}
+
+		private LeaveRequest pending(int requestId) {
+			return new LeaveRequest(requestId, employeeId(Math.abs(requestId % employees)), "Sick", startDate, endDate,
+					2, LeaveStatus.PENDING, "None");
+		}
+	}
+
+	static final class LeaveApprovals implements ILeaveApprovalRepository {
+
+		@Override
+		public Outcome approve(int requestId, String employeeId, String leaveType, int balanceYear, float days) {
+			return Outcome.APPLIED;
+		}
+
+		@Override
+		public Outcome reject(int requestId, String reason) {
+			return Outcome.APPLIED;
+		}
+
+		@Override
+		public Map<Integer, Outcome> approveAll(List<LeaveRequest> requests, Map<Integer, Integer> balanceYears) {
+			Map<Integer, Outcome> outcomes = new HashMap<>();
+			for (LeaveRequest request : requests) {
+				outcomes.put(request.getRequestId(), Outcome.APPLIED);
+			}
+			return outcomes;
+		}
+
+		@Override
+		public Map<Integer, Outcome> markApproved(List<Integer> requestIds) {
+			Map<Integer, Outcome> outcomes = new HashMap<>();
+			for (Integer requestId : requestIds) {
+				outcomes.put(requestId, Outcome.APPLIED);
+			}
+			return outcomes;
+		}
+
+		@Override
+		public Map<Integer, Outcome> rejectAll(Map<Integer, String> reasons) {
+			Map<Integer, Outcome> outcomes = new HashMap<>();
+			for (Integer requestId : reasons.keySet()) {
+				outcomes.put(requestId, Outcome.APPLIED);
+			}
+			return outcomes;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import tools.WorkbookGenerator;
+
+// Leave workbooks in the layout the parsers expect, written by the streaming WorkbookGenerator.
+// Files are kept under target/benchmark-workbooks and reused by later forks and runs.
+final class SyntheticWorkbooks {
+
+	static final String[] HEADERS = WorkbookGenerator.HEADERS;
+
+	private static final Path DIRECTORY = Paths.get("target", "benchmark-workbooks");
+
+	private SyntheticWorkbooks() {
+	}
+
+	static Path workbook(int rows) throws IOException {
+		Files.createDirectories(DIRECTORY);
+		Path file = DIRECTORY.resolve("leave-" + rows + ".xlsx");
+		if (Files.exists(file)) {
+			return file;
+		}
+		// Written under a temporary name so an interrupted run never leaves a truncated workbook behind
+		Path partial = Files.createTempFile(DIRECTORY, "leave-" + rows + "-", ".partial");
+		write(partial, rows);
+		return Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	// Copies of one workbook under distinct names, for benchmarks that read several files at once
+	static Path[] copies(int rows, int count) throws IOException {
+		Path source = workbook(rows);
+		Path[] files = new Path[count];
+		for (int i = 0; i < count; i++) {
+			files[i] = DIRECTORY.resolve("leave-" + rows + "-copy-" + i + ".xlsx");
+			if (!Files.exists(files[i])) {
+				Files.copy(source, files[i]);
+			}
+		}
+		return files;
+	}
+
+	// Four requests per employee, so the row counts used by the benchmarks come out exact
+	private static void write(Path file, int rows) throws IOException {
+		WorkbookGenerator.clean(Math.max(1, rows / 4), 4, 2024, 42).write(file);
+	}
+}
@@ -4,6 +4,8 @@ public enum CliCommand {
 	
     REQUEST_LEAVE,
     APPROVE_LEAVE,
+    BULK_APPROVE,
+    BULK_REJECT,
     VIEW_BALANCE,
     HELP
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package application.cli;
 
+import application.services.LeaveDecisionReport;
 import application.services.LeaveService;
 import common.exception.InvalidLeaveRequestException;
 import domain.model.LeaveBalance;
@@ -8,7 +9,10 @@ import presentation.UserInterface;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CliParser implements UserInterface {
 
@@ -34,6 +38,12 @@ public class CliParser implements UserInterface {
                 case APPROVE_LEAVE:
                     handleApproveRequest(args);
                     break;
+                case BULK_APPROVE:
+                    handleBulkApprove(args);
+                    break;
+                case BULK_REJECT:
+                    handleBulkReject(args);
+                    break;
                 case VIEW_BALANCE:
                     handleViewBalance(args);
                     break;
@@ -82,6 +92,48 @@ public class CliParser implements UserInterface {
         System.out.println("Leave request approved successfully.");
     }
 
+    private void handleBulkApprove(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing leave request IDs.");
+        }
+
+        List<Integer> requestIds = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            requestIds.add(parseRequestId(args[i]));
+        }
+        printReport(leaveService.approveLeaves(requestIds));
+    }
+
+    // Each argument is <requestId>:<reason>; quote arguments whose reason contains spaces
+    private void handleBulkReject(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing leave request IDs and reasons.");
+        }
+
+        Map<Integer, String> reasons = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            int separator = args[i].indexOf(':');
+            if (separator < 0 || separator == args[i].length() - 1) {
+                throw new IllegalArgumentException("Expected <requestId>:<reason>, got: " + args[i]);
+            }
+            reasons.put(parseRequestId(args[i].substring(0, separator)), args[i].substring(separator + 1).trim());
+        }
+        printReport(leaveService.rejectLeaves(reasons));
+    }
+
+    private int parseRequestId(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid leave request ID: " + value);
+        }
+    }
+
+    private void printReport(LeaveDecisionReport report) {
+        report.getEntries().forEach(System.out::println);
+        System.out.println(report.getAppliedCount() + " succeeded, " + report.getFailedCount() + " failed.");
+    }
+
     private void handleViewBalance(String[] args) throws InvalidLeaveRequestException {
         if (args.length < 2) {
             throw new IllegalArgumentException("Missing employee ID.");
@@ -106,6 +158,8 @@ public class CliParser implements UserInterface {
         System.out.println("Commands:");
         System.out.println("  REQUEST_LEAVE <employeeId> <leaveType> <startDate> <endDate>");
         System.out.println("  APPROVE_LEAVE <requestId>");
+        System.out.println("  BULK_APPROVE <requestId> [<requestId> ...]");
+        System.out.println("  BULK_REJECT <requestId>:<reason> [<requestId>:<reason> ...]");
         System.out.println("  VIEW_BALANCE <employeeId>");
         System.out.println("  HELP");
     }
@@ -2,42 +2,84 @@ package application.services;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import common.exception.DataPersistenceException;
 import common.exception.DataReaderException;
 import common.exception.ValidationException;
+import domain.repository.IBulkRepository;
+import domain.repository.IDeltaRepository;
+import domain.repository.IIngestFingerprintRepository;
 import domain.repository.IRepository;
+import domain.repository.Rejection;
 import domain.validation.IValidator;
+import infrastructure.file.DeadLetterLog;
 import infrastructure.file.FileDataReader;
 import infrastructure.file.parsers.AbstractDataParser;
+import infrastructure.file.parsers.RowFailure;
 import infrastructure.monitor.FileMonitor;
 
 public class FileProcessingService<T> {
 
+	// BATCH goes through saveAll; BULK_COPY uses the repository's bulk path (PostgreSQL COPY)
+	// and is meant for first-time loads and full reimports
+	public enum WriteMode { BATCH, BULK_COPY }
+
+	// FULL writes every parsed row; INCREMENTAL compares each file's rows with the fingerprints
+	// from its last ingest and writes only inserted, updated and deleted rows. STREAMING writes
+	// every row like FULL but in batches while the files are still being parsed, for ingests too
+	// large to hold in memory at once.
+	public enum IngestMode { FULL, INCREMENTAL, STREAMING }
+
+	// STRICT stops at the first bad row or file. LENIENT skips them, writes the good rows and saves
+	// the rejected ones (file, sheet, row, column, error) to a CSV in the dead-letter directory.
+	public enum ErrorMode { STRICT, LENIENT }
+
+	private static final int DEFAULT_STREAMING_BATCH_SIZE = 1000;
+	private static final int DEFAULT_STREAMING_QUEUE_CAPACITY = 4;
+
+	private final AbstractDataParser<T> parser;
+	private final IValidator<File> fileValidator;
 	private final FileDataReader<T> fileDataReader;
 	private final FileMonitor fileMonitor;
 	private final IRepository<T> repository;
+	private final IIngestFingerprintRepository fingerprintRepository;
+	private final String entityType;
+	private volatile WriteMode writeMode = WriteMode.BATCH;
+	private volatile IngestMode ingestMode = IngestMode.FULL;
+	private volatile IValidator<T> rowValidator;
+	private volatile ErrorMode errorMode = ErrorMode.STRICT;
+	private volatile Path deadLetterDirectory;
+	private volatile int streamingBatchSize = DEFAULT_STREAMING_BATCH_SIZE;
+	private volatile int streamingQueueCapacity = DEFAULT_STREAMING_QUEUE_CAPACITY;
+
 	public FileProcessingService(AbstractDataParser<T> parser, IValidator<File> fileValidator, Path directory, IRepository<T> repository) throws IOException {
+		this(parser, fileValidator, directory, repository, null);
+	}
+
+	public FileProcessingService(AbstractDataParser<T> parser, IValidator<File> fileValidator, Path directory,
+			IRepository<T> repository, IIngestFingerprintRepository fingerprintRepository) throws IOException {
 
-		
+        this.parser = parser;
+        this.fileValidator = fileValidator;
         this.repository = repository;
+        this.fingerprintRepository = fingerprintRepository;
+        this.entityType = parser.getClass().getSimpleName();
 		this.fileDataReader = new FileDataReader<>(parser, fileValidator);
-		this.fileMonitor = new FileMonitor(directory, t -> {
-			try {
-				processFiles(t);
-			} catch (DataPersistenceException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} catch (ValidationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		});
+		// Changed files arrive debounced and batched; a failure leaves them to be retried on their next change
+		// All services share one DirectoryWatcher; each is a registration keyed by its entity type
+		this.fileMonitor = new FileMonitor(directory, entityType, this::ingest);
 	}
 
-	public void startMonitoring() {
+	public void startMonitoring() throws IOException {
 		fileMonitor.start();
 	}
 
@@ -45,18 +87,241 @@ public class FileProcessingService<T> {
 		fileMonitor.stop();
 	}
 
+	// Files already loaded by other means are not reimported until their content changes
+	public void markIngested(List<Path> filePaths) {
+		fileMonitor.markIngested(filePaths);
+	}
+
+	public AbstractDataParser<T> getParser() {
+		return parser;
+	}
+
+	public WriteMode getWriteMode() {
+		return writeMode;
+	}
+
+	public void setWriteMode(WriteMode writeMode) {
+		if (writeMode == WriteMode.BULK_COPY && !(repository instanceof IBulkRepository)) {
+			throw new IllegalArgumentException(repository.getClass().getSimpleName() + " does not support bulk loading");
+		}
+		this.writeMode = writeMode;
+	}
+
+	public IngestMode getIngestMode() {
+		return ingestMode;
+	}
+
+	public void setIngestMode(IngestMode ingestMode) {
+		if (ingestMode == IngestMode.INCREMENTAL) {
+			if (!(repository instanceof IDeltaRepository)) {
+				throw new IllegalArgumentException(repository.getClass().getSimpleName() + " does not support incremental ingest");
+			}
+			if (fingerprintRepository == null) {
+				throw new IllegalArgumentException("Incremental ingest needs a fingerprint repository");
+			}
+		}
+		this.ingestMode = ingestMode;
+	}
+
+	public ErrorMode getErrorMode() {
+		return errorMode;
+	}
+
+	public void setErrorMode(ErrorMode errorMode, Path deadLetterDirectory) {
+		if (errorMode == ErrorMode.LENIENT && deadLetterDirectory == null) {
+			throw new IllegalArgumentException("Lenient ingest needs a dead-letter directory");
+		}
+		this.errorMode = errorMode;
+		this.deadLetterDirectory = deadLetterDirectory;
+	}
+
+	// Checks each parsed row before it is written in STREAMING mode; null disables the check
+	public void setRowValidator(IValidator<T> rowValidator) {
+		this.rowValidator = rowValidator;
+	}
+
+	// Rows per write and how many parsed batches may wait for the writer in STREAMING mode
+	public void setStreamingBatching(int batchSize, int queueCapacity) {
+		if (batchSize < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException(
+					"batchSize and queueCapacity must be positive, got " + batchSize + " and " + queueCapacity);
+		}
+		this.streamingBatchSize = batchSize;
+		this.streamingQueueCapacity = queueCapacity;
+	}
+
 	public void processFiles(List<Path> filePaths) throws DataPersistenceException, ValidationException {
 		try {
            
-            List<T> results = fileDataReader.readData(filePaths);
-            
-            // Save to database
-            repository.saveAll(results);
-            
-            System.out.println("Successfully processed " + results.size() + " all "+ results.get(0).getClass().getSimpleName() + " records");
+            ingest(filePaths);
             
         } catch (DataReaderException e) {
             System.err.println("Error processing files: " + e.getMessage());
         }
 	}
+
+	private void ingest(List<Path> filePaths) throws DataReaderException, DataPersistenceException {
+		DeadLetterLog deadLetters = errorMode == ErrorMode.LENIENT ? new DeadLetterLog() : null;
+		try {
+			if (ingestMode == IngestMode.INCREMENTAL) {
+				for (Map.Entry<Path, List<T>> file : fileDataReader.readDataByFile(filePaths, deadLetters).entrySet()) {
+					persistFile(file.getKey(), file.getValue(),
+							deadLetters == null || !deadLetters.hasFailuresFor(file.getKey()), deadLetters);
+				}
+			} else if (ingestMode == IngestMode.STREAMING) {
+				IngestPipeline<T> pipeline = new IngestPipeline<>(parser, fileValidator, rowValidator, deadLetters,
+						batch -> write(batch, deadLetters), streamingBatchSize, streamingQueueCapacity, FileDataReader.sharedExecutor());
+				long written = pipeline.run(filePaths);
+				System.out.println("Successfully streamed " + written + " " + entityType + " records");
+			} else {
+				persist(fileDataReader.readData(filePaths, deadLetters), deadLetters);
+			}
+		} finally {
+			reportRejected(deadLetters, deadLetterDirectory, entityType);
+		}
+	}
+
+	// Saves the rows parsed from one file, honouring the ingest mode
+	public void persistFile(Path sourceFile, List<T> results) throws DataPersistenceException {
+		persistFile(sourceFile, results, true);
+	}
+
+	// complete is false when some of the file's rows were rejected; keys missing from an incomplete
+	// file may just be rows that failed to parse, so they are not deleted
+	public void persistFile(Path sourceFile, List<T> results, boolean complete) throws DataPersistenceException {
+		persistFile(sourceFile, results, complete, null);
+	}
+
+	// Rows the repository does not store go to deadLetters; without one they fail the ingest
+	public void persistFile(Path sourceFile, List<T> results, boolean complete, DeadLetterLog deadLetters)
+			throws DataPersistenceException {
+		if (ingestMode == IngestMode.INCREMENTAL) {
+			persistDelta(sourceFile, results, complete, deadLetters);
+		} else {
+			persist(results, deadLetters);
+		}
+	}
+
+	// Saves the rows a lenient ingest rejected and reports how many there were
+	static void reportRejected(DeadLetterLog deadLetters, Path directory, String name) {
+		if (deadLetters == null || deadLetters.size() == 0) {
+			return;
+		}
+		try {
+			Path file = deadLetters.writeCsv(directory, name);
+			System.err.println("Rejected " + deadLetters.size() + " " + name + " rows or files; see " + file);
+		} catch (IOException e) {
+			System.err.println("Rejected " + deadLetters.size() + " " + name
+					+ " rows or files, but the dead-letter file could not be written: " + e.getMessage());
+			for (RowFailure failure : deadLetters.getFailures()) {
+				System.err.println("  " + failure);
+			}
+		}
+	}
+
+	private void persistDelta(Path sourceFile, List<T> results, boolean complete, DeadLetterLog deadLetters)
+			throws DataPersistenceException {
+
+		IDeltaRepository<T> deltaRepository = (IDeltaRepository<T>) repository;
+		String source = sourceFile.toAbsolutePath().normalize().toString();
+		Map<String, String> previous = fingerprintRepository.findHashes(source, entityType);
+
+		// Later rows with the same natural key replace earlier ones, as sequential saves would
+		Map<String, T> current = new LinkedHashMap<>();
+		for (T entity : results) {
+			current.put(deltaRepository.naturalKey(entity), entity);
+		}
+
+		List<T> inserted = new ArrayList<>();
+		List<T> updated = new ArrayList<>();
+		Map<String, String> changedHashes = new HashMap<>();
+		for (Map.Entry<String, T> row : current.entrySet()) {
+			String hash = sha256(deltaRepository.rowSignature(row.getValue()));
+			String previousHash = previous.get(row.getKey());
+			if (hash.equals(previousHash)) {
+				continue;
+			}
+			(previousHash == null ? inserted : updated).add(row.getValue());
+			changedHashes.put(row.getKey(), hash);
+		}
+		List<String> deletedKeys = new ArrayList<>();
+		for (String key : previous.keySet()) {
+			if (complete && !current.containsKey(key)) {
+				deletedKeys.add(key);
+			}
+		}
+
+		if (inserted.isEmpty() && updated.isEmpty() && deletedKeys.isEmpty()) {
+			System.out.println("No " + entityType + " changes in " + sourceFile.getFileName());
+			return;
+		}
+
+		// Fingerprints are saved only after the rows, so a failed write is retried in full next time.
+		// Rows the repository rejected keep their previous fingerprint, or none, and are tried again too.
+		List<Rejection<T>> rejected = deltaRepository.applyDelta(inserted, updated, deletedKeys);
+		for (Rejection<T> rejection : rejected) {
+			changedHashes.remove(deltaRepository.naturalKey(rejection.getEntity()));
+		}
+		fingerprintRepository.saveHashes(source, entityType, changedHashes, deletedKeys);
+		System.out.println("Applied " + entityType + " changes from " + sourceFile.getFileName() + ": "
+				+ inserted.size() + " inserted, " + updated.size() + " updated, " + deletedKeys.size() + " deleted"
+				+ (rejected.isEmpty() ? "" : ", " + rejected.size() + " of them rejected"));
+		reportNotStored(rejected, sourceFile, deadLetters);
+	}
+
+	private void reportNotStored(List<Rejection<T>> rejected, Path sourceFile, DeadLetterLog deadLetters)
+			throws DataPersistenceException {
+		if (rejected.isEmpty()) {
+			return;
+		}
+		if (deadLetters == null) {
+			throw new DataPersistenceException(rejected.size() + " " + entityType + " rows"
+					+ (sourceFile != null ? " from " + sourceFile.getFileName() : "") + " were not stored, e.g. "
+					+ rejected.get(0).getReason());
+		}
+		for (Rejection<T> rejection : rejected) {
+			deadLetters.onFailure(RowFailure.ofRecord(sourceFile != null ? sourceFile.toFile() : null,
+					rejection.getReason()));
+		}
+	}
+
+	private static String sha256(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(64);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	// Saves records that were parsed elsewhere, e.g. by a shared single-pass WorkbookIngestService
+	public void persist(List<T> results) throws DataPersistenceException {
+		persist(results, null);
+	}
+
+	// Rows the repository does not store go to deadLetters; without one they fail the ingest
+	public void persist(List<T> results, DeadLetterLog deadLetters) throws DataPersistenceException {
+
+		if (results.isEmpty()) {
+			System.out.println("No " + parser.getClass().getSimpleName() + " records to process");
+			return;
+		}
+
+		// Save to database
+		write(results, deadLetters);
+
+		System.out.println("Successfully processed " + results.size() + " all "+ results.get(0).getClass().getSimpleName() + " records");
+	}
+
+	private void write(List<T> results, DeadLetterLog deadLetters) throws DataPersistenceException {
+		if (writeMode == WriteMode.BULK_COPY) {
+			reportNotStored(((IBulkRepository<T>) repository).bulkLoad(results), null, deadLetters);
+		} else {
+			repository.saveAll(results);
+		}
+	}
 }
\ No newline at end of file
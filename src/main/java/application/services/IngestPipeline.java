@@ -0,0 +1,172 @@
+package application.services;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import common.exception.DataParseException;
+import common.exception.DataPersistenceException;
+import common.exception.DataReaderException;
+import common.exception.DataReaderException.ErrorType;
+import common.exception.ValidationException;
+import domain.validation.IValidator;
+import infrastructure.file.parsers.AbstractDataParser;
+import infrastructure.file.parsers.RowFailure;
+import infrastructure.file.parsers.RowFailureHandler;
+
+// Streams rows from the parser to a writer in batches instead of collecting every file first
+// (parse -> validate -> batch -> persist). A producer task parses and validates rows and puts full
+// batches on a bounded queue; the calling thread takes them off and writes them, so database writes
+// overlap parsing. When the writer falls behind the full queue blocks the parser, which caps memory
+// at roughly queueCapacity + 2 batches.
+public class IngestPipeline<T> {
+
+	@FunctionalInterface
+	public interface BatchWriter<T> {
+		void write(List<T> batch) throws DataPersistenceException;
+	}
+
+	private final AbstractDataParser<T> parser;
+	private final IValidator<File> fileValidator;
+	private final IValidator<T> rowValidator;
+	private final RowFailureHandler failureHandler;
+	private final BatchWriter<T> writer;
+	private final int batchSize;
+	private final int queueCapacity;
+	private final ExecutorService executor;
+
+	public IngestPipeline(AbstractDataParser<T> parser, IValidator<File> fileValidator, IValidator<T> rowValidator,
+			BatchWriter<T> writer, int batchSize, int queueCapacity, ExecutorService executor) {
+		this(parser, fileValidator, rowValidator, null, writer, batchSize, queueCapacity, executor);
+	}
+
+	// rowValidator may be null when rows need no checks beyond parsing. With a failureHandler, rows
+	// that fail parsing or validation, and files that cannot be read, are reported to it and skipped.
+	public IngestPipeline(AbstractDataParser<T> parser, IValidator<File> fileValidator, IValidator<T> rowValidator,
+			RowFailureHandler failureHandler, BatchWriter<T> writer, int batchSize, int queueCapacity,
+			ExecutorService executor) {
+
+		if (batchSize < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException(
+					"batchSize and queueCapacity must be positive, got " + batchSize + " and " + queueCapacity);
+		}
+		this.parser = parser;
+		this.fileValidator = fileValidator;
+		this.rowValidator = rowValidator;
+		this.failureHandler = failureHandler;
+		this.writer = writer;
+		this.batchSize = batchSize;
+		this.queueCapacity = queueCapacity;
+		this.executor = executor;
+	}
+
+	// Returns the number of rows written. Files are read in the order given. Batches written before
+	// a failure stay written, as with the per-chunk commits of saveAll.
+	public long run(List<Path> filePaths) throws DataReaderException, DataPersistenceException {
+
+		BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+		List<T> end = new ArrayList<>(0); // marks the end of the stream; compared by identity
+		Future<?> producer = executor.submit(() -> {
+			produce(filePaths, queue, end);
+			return null;
+		});
+
+		long written = 0;
+		boolean completed = false;
+		try {
+			while (true) {
+				List<T> batch = queue.take();
+				if (batch == end) {
+					break;
+				}
+				writer.write(batch);
+				written += batch.size();
+			}
+			producer.get(); // surfaces a parse failure that ended the stream early
+			completed = true;
+			return written;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataReaderException("Data reading process interrupted", e, ErrorType.PARSE_ERROR);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DataReaderException) {
+				throw (DataReaderException) cause;
+			}
+			throw new DataReaderException("Unexpected error during processing", cause, ErrorType.PARSE_ERROR);
+		} finally {
+			if (!completed) {
+				// Stops a parser blocked on the full queue after the writer failed
+				producer.cancel(true);
+			}
+		}
+	}
+
+	private void produce(List<Path> filePaths, BlockingQueue<List<T>> queue, List<T> end)
+			throws DataReaderException, InterruptedException {
+
+		List<List<T>> batch = new ArrayList<>(1);
+		batch.add(new ArrayList<>(batchSize));
+		try {
+			for (Path path : filePaths) {
+				File file = path.toFile();
+				try {
+					fileValidator.validate(file);
+					parser.parseRows(file, entity -> {
+						validateRow(entity);
+						List<T> rows = batch.get(0);
+						rows.add(entity);
+						if (rows.size() == batchSize) {
+							enqueue(queue, rows);
+							batch.set(0, new ArrayList<>(batchSize));
+						}
+					}, failureHandler);
+				} catch (DataParseException | ValidationException e) {
+					if (failureHandler != null) {
+						failureHandler.onFailure(RowFailure.ofFile(file, e));
+						continue;
+					}
+					throw new DataReaderException("Error processing file: " + path, e, ErrorType.FILE_NOT_FOUND);
+				}
+			}
+			if (!batch.get(0).isEmpty()) {
+				queue.put(batch.get(0));
+			}
+		} finally {
+			try {
+				queue.put(end);
+			} catch (InterruptedException e) {
+				// Cancelled by the writer, which is no longer reading the queue
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void validateRow(T entity) throws DataParseException {
+		if (rowValidator == null) {
+			return;
+		}
+		try {
+			rowValidator.validate(entity);
+		} catch (ValidationException e) {
+			throw new DataParseException(e.getMessage(), e);
+		}
+	}
+
+	// Unchecked so a lenient parse does not record the cancellation as a bad row
+	private static <R> void enqueue(BlockingQueue<List<R>> queue, List<R> batch) {
+		try {
+			queue.put(batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for the writer");
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package application.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Per-request result of a bulk approve/reject, in the order the request IDs were given
+public class LeaveDecisionReport {
+
+	public static class Entry {
+
+		private final int requestId;
+		private final boolean applied;
+		private final String message;
+
+		private Entry(int requestId, boolean applied, String message) {
+			this.requestId = requestId;
+			this.applied = applied;
+			this.message = message;
+		}
+
+		public int getRequestId() {
+			return requestId;
+		}
+
+		public boolean isApplied() {
+			return applied;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return requestId + ": " + (applied ? "OK" : "FAILED") + " - " + message;
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	void applied(int requestId, String message) {
+		entries.add(new Entry(requestId, true, message));
+	}
+
+	void failed(int requestId, String message) {
+		entries.add(new Entry(requestId, false, message));
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	public int getAppliedCount() {
+		int count = 0;
+		for (Entry entry : entries) {
+			if (entry.isApplied()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public int getFailedCount() {
+		return entries.size() - getAppliedCount();
+	}
+}
@@ -1,18 +1,31 @@
 package application.services;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
+import common.concurrent.StripedLock;
+import common.exception.DataPersistenceException;
 import common.exception.InvalidLeaveRequestException;
 import domain.model.LeaveBalance;
 import domain.model.LeaveRequest;
 import domain.model.LeaveType;
 import domain.model.LeaveStatus;
 import domain.repository.IEmployeeRepository;
+import domain.repository.ILeaveApprovalRepository;
 import domain.repository.ILeaveBalanceRepository;
 import domain.repository.ILeaveRequestRepository;
 import domain.repository.ILeaveTypeRepository;
+import infrastructure.persistence.CanonicalKeys;
 
 public class LeaveService {
 
@@ -20,14 +33,19 @@ public class LeaveService {
 	private final ILeaveBalanceRepository leaveBalanceRepository;
 	private final IEmployeeRepository employeeRepository;
 	private final ILeaveTypeRepository leaveTypeRepository;
+	private final ILeaveApprovalRepository leaveApprovalRepository;
+	// Serializes decisions per employee so the balance cache is not reloaded mid-approval
+	private final StripedLock employeeLocks = new StripedLock(64);
 
 	public LeaveService(ILeaveRequestRepository leaveRequestRepository, ILeaveBalanceRepository leaveBalanceRepository,
-			IEmployeeRepository employeeRepository, ILeaveTypeRepository leaveTypeRepository) {
+			IEmployeeRepository employeeRepository, ILeaveTypeRepository leaveTypeRepository,
+			ILeaveApprovalRepository leaveApprovalRepository) {
 		
 		this.leaveRequestRepository = leaveRequestRepository;
 		this.leaveBalanceRepository = leaveBalanceRepository;
 		this.employeeRepository = employeeRepository;
 		this.leaveTypeRepository = leaveTypeRepository;
+		this.leaveApprovalRepository = leaveApprovalRepository;
 	}
 
 	public LeaveRequest requestLeave(String employeeId, String leaveType, LocalDate startDate, LocalDate endDate) throws InvalidLeaveRequestException{
@@ -35,6 +53,7 @@ public class LeaveService {
 		validateEmployee(employeeId);
 		validateLeaveType(leaveType);
 		validateLeaveDates(startDate, endDate);
+		// Early answer with the conflicting requests; save() rejects an overlap that slips past it
 		validateNoOverlappingRequests(employeeId, startDate, endDate);
 
 		LeaveRequest leaveRequest = new LeaveRequest(employeeId, leaveType, startDate, endDate);
@@ -51,21 +70,144 @@ public class LeaveService {
 	public void approveLeave(int requestId) throws InvalidLeaveRequestException {
 
 		LeaveRequest request = getPendingLeaveRequest(requestId);
-		LeaveBalance balance = getLeaveBalance(request.getEmpId(), request.getLeaveTypeId());
-
-		balance.deductLeave(request.getDays());
-		leaveBalanceRepository.save(balance);
+		String employeeId = request.getEmpId();
+		ReentrantLock lock = employeeLocks.get(CanonicalKeys.employeeId(employeeId));
+		lock.lock();
+		try {
+			if (leaveBalanceRepository.defersDeductions()) {
+				approveWithDeferredDeduction(request);
+				return;
+			}
+			// The deduction happens in the database, so cached balances are written out first
+			// and dropped again afterwards
+			leaveBalanceRepository.evict(employeeId);
+			LeaveBalance balance = getLeaveBalance(employeeId, request.getLeaveTypeId());
 
-		request.approve();
-		leaveRequestRepository.save(request);
-		
+			ILeaveApprovalRepository.Outcome outcome = leaveApprovalRepository.approve(requestId, employeeId,
+					request.getLeaveTypeId(), balance.getYear(), request.getDays());
+			leaveBalanceRepository.evict(employeeId);
+			checkOutcome(outcome, requestId);
+		} catch (DataPersistenceException e) {
+			throw new InvalidLeaveRequestException("Could not approve leave request " + requestId + ": " + e.getMessage());
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	public void rejectLeave(int requestId, String reason) throws InvalidLeaveRequestException {
 
-		LeaveRequest request = getPendingLeaveRequest(requestId);
-		request.reject(reason);
-		leaveRequestRepository.save(request);
+		getPendingLeaveRequest(requestId);
+		try {
+			checkOutcome(leaveApprovalRepository.reject(requestId, reason), requestId);
+		} catch (DataPersistenceException e) {
+			throw new InvalidLeaveRequestException("Could not reject leave request " + requestId + ": " + e.getMessage());
+		}
+	}
+
+	// Approves many requests with one read of the requests, one read of the balances and one
+	// transaction for all status changes and deductions. Requests are taken in the given order,
+	// so when a balance cannot cover all of them the earlier ones win.
+	public LeaveDecisionReport approveLeaves(List<Integer> requestIds) {
+
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(requestIds));
+		Map<Integer, String> failures = new HashMap<>();
+		Map<Integer, LeaveRequest> pending = loadPendingRequests(ids, failures);
+
+		Set<String> employeeIds = new LinkedHashSet<>();
+		for (LeaveRequest request : pending.values()) {
+			employeeIds.add(CanonicalKeys.employeeId(request.getEmpId()));
+		}
+
+		Map<Integer, ILeaveApprovalRepository.Outcome> outcomes = new HashMap<>();
+		boolean deferred = leaveBalanceRepository.defersDeductions();
+		List<ReentrantLock> locks = employeeLocks.lockAll(employeeIds);
+		try {
+			if (!deferred) {
+				for (String employeeId : employeeIds) {
+					leaveBalanceRepository.evict(employeeId);
+				}
+			}
+			Map<String, LeaveBalance> balances = new HashMap<>();
+			for (LeaveBalance balance : leaveBalanceRepository.findByEmployeeIds(employeeIds)) {
+				String key = balanceKey(balance.getEmpId(), balance.getLeaveType());
+				balances.merge(key, balance, LeaveService::preferredBalance);
+			}
+
+			// Validate in memory against a running balance, then apply what passed in one go
+			List<LeaveRequest> approvable = new ArrayList<>();
+			Map<Integer, Integer> balanceYears = new HashMap<>();
+			Map<String, Float> remaining = new HashMap<>();
+			for (LeaveRequest request : pending.values()) {
+				String key = balanceKey(request.getEmpId(), request.getLeaveTypeId());
+				LeaveBalance balance = balances.get(key);
+				if (balance == null) {
+					failures.put(request.getRequestId(), "No leave balance found for employee: " + request.getEmpId()
+							+ " and leave type: " + request.getLeaveTypeId());
+					continue;
+				}
+				float available = remaining.getOrDefault(key, balance.getBalanceDays());
+				if (available < request.getDays()) {
+					failures.put(request.getRequestId(), "Insufficient leave balance. Available: " + available
+							+ ", Requested: " + request.getDays());
+					continue;
+				}
+				remaining.put(key, available - request.getDays());
+				approvable.add(request);
+				balanceYears.put(request.getRequestId(), balance.getYear());
+			}
+
+			if (deferred) {
+				// The locks held since validation keep the running balances true until the deductions land
+				List<Integer> approvableIds = new ArrayList<>();
+				for (LeaveRequest request : approvable) {
+					approvableIds.add(request.getRequestId());
+				}
+				outcomes.putAll(leaveApprovalRepository.markApproved(approvableIds));
+				List<LeaveBalance> deductions = new ArrayList<>();
+				for (LeaveRequest request : approvable) {
+					if (outcomes.get(request.getRequestId()) == ILeaveApprovalRepository.Outcome.APPLIED) {
+						deductions.add(deductionFor(request, balanceYears.get(request.getRequestId())));
+					}
+				}
+				leaveBalanceRepository.deductAll(deductions);
+			} else {
+				outcomes.putAll(leaveApprovalRepository.approveAll(approvable, balanceYears));
+				for (String employeeId : employeeIds) {
+					leaveBalanceRepository.evict(employeeId);
+				}
+			}
+		} catch (DataPersistenceException e) {
+			for (LeaveRequest request : pending.values()) {
+				failures.putIfAbsent(request.getRequestId(), "Could not approve: " + e.getMessage());
+			}
+		} finally {
+			StripedLock.unlockAll(locks);
+		}
+
+		return buildReport(ids, failures, outcomes, "Approved");
+	}
+
+	public LeaveDecisionReport rejectLeaves(Map<Integer, String> reasons) {
+
+		List<Integer> ids = new ArrayList<>(reasons.keySet());
+		Map<Integer, String> failures = new HashMap<>();
+		Map<Integer, LeaveRequest> pending = loadPendingRequests(ids, failures);
+
+		Map<Integer, String> toReject = new LinkedHashMap<>();
+		for (Integer requestId : pending.keySet()) {
+			toReject.put(requestId, reasons.get(requestId));
+		}
+
+		Map<Integer, ILeaveApprovalRepository.Outcome> outcomes = new HashMap<>();
+		try {
+			outcomes.putAll(leaveApprovalRepository.rejectAll(toReject));
+		} catch (DataPersistenceException e) {
+			for (Integer requestId : toReject.keySet()) {
+				failures.put(requestId, "Could not reject: " + e.getMessage());
+			}
+		}
+
+		return buildReport(ids, failures, outcomes, "Rejected");
 	}
 
 	public List<LeaveBalance> getLeaveBalances(String employeeId) throws InvalidLeaveRequestException {
@@ -79,6 +221,12 @@ public class LeaveService {
 		return leaveRequestRepository.findByEmployeeId(employeeId);
 	}
 
+	// History limited to requests starting in one year, e.g. the current one
+	public List<LeaveRequest> getLeaveHistory(String employeeId, int year) throws InvalidLeaveRequestException {
+		validateEmployee(employeeId);
+		return leaveRequestRepository.findByEmployeeId(employeeId, year);
+	}
+
 	public List<LeaveType> getAllLeaveTypes() {
 		return leaveTypeRepository.findAll();
 	}
@@ -172,6 +320,98 @@ public class LeaveService {
 		return request;
 	}
 
+	// Loads the requests in one query; IDs that are missing or no longer pending go to failures
+	private Map<Integer, LeaveRequest> loadPendingRequests(List<Integer> ids, Map<Integer, String> failures) {
+
+		Map<Integer, LeaveRequest> found = new HashMap<>();
+		for (LeaveRequest request : leaveRequestRepository.findByIds(ids)) {
+			found.put(request.getRequestId(), request);
+		}
+
+		Map<Integer, LeaveRequest> pending = new LinkedHashMap<>();
+		for (Integer requestId : ids) {
+			LeaveRequest request = found.get(requestId);
+			if (request == null) {
+				failures.put(requestId, "Leave request not found: " + requestId);
+			} else if (request.getStatus() != LeaveStatus.PENDING) {
+				failures.put(requestId, "Only pending requests can be modified");
+			} else {
+				pending.put(requestId, request);
+			}
+		}
+		return pending;
+	}
+
+	private static LeaveDecisionReport buildReport(List<Integer> ids, Map<Integer, String> failures,
+			Map<Integer, ILeaveApprovalRepository.Outcome> outcomes, String appliedMessage) {
+
+		LeaveDecisionReport report = new LeaveDecisionReport();
+		for (Integer requestId : ids) {
+			ILeaveApprovalRepository.Outcome outcome = outcomes.get(requestId);
+			if (failures.containsKey(requestId)) {
+				report.failed(requestId, failures.get(requestId));
+			} else if (outcome == ILeaveApprovalRepository.Outcome.APPLIED) {
+				report.applied(requestId, appliedMessage);
+			} else if (outcome == ILeaveApprovalRepository.Outcome.INSUFFICIENT_BALANCE) {
+				report.failed(requestId, "Insufficient leave balance");
+			} else {
+				report.failed(requestId, "Only pending requests can be modified");
+			}
+		}
+		return report;
+	}
+
+	private static String balanceKey(String employeeId, String leaveType) {
+		return CanonicalKeys.employeeId(employeeId) + "|" + leaveType.toLowerCase(Locale.ROOT);
+	}
+
+	// Same choice as the single approval path: this year's balance, otherwise the most recent
+	private static LeaveBalance preferredBalance(LeaveBalance a, LeaveBalance b) {
+		int currentYear = LocalDate.now().getYear();
+		if (a.getYear() == currentYear) {
+			return a;
+		}
+		if (b.getYear() == currentYear) {
+			return b;
+		}
+		return a.getYear() >= b.getYear() ? a : b;
+	}
+
+	private void checkOutcome(ILeaveApprovalRepository.Outcome outcome, int requestId)
+			throws InvalidLeaveRequestException {
+
+		switch (outcome) {
+		case NOT_PENDING:
+			// Another decision won the race after the request was read
+			throw new InvalidLeaveRequestException("Only pending requests can be modified");
+		case INSUFFICIENT_BALANCE:
+			throw new InvalidLeaveRequestException("Insufficient leave balance to approve request: " + requestId);
+		default:
+			break;
+		}
+	}
+
+	// For a repository that defers deductions: the caller's lock on the employee keeps the balance
+	// checked here from changing before the deduction is recorded, and the status change still only
+	// applies while the request is Pending. The repository writes the deduction at its next flush.
+	private void approveWithDeferredDeduction(LeaveRequest request)
+			throws InvalidLeaveRequestException, DataPersistenceException {
+
+		int requestId = request.getRequestId();
+		LeaveBalance balance = getLeaveBalance(request.getEmpId(), request.getLeaveTypeId());
+		if (!balance.hasEnoughBalance(request.getDays())) {
+			checkOutcome(ILeaveApprovalRepository.Outcome.INSUFFICIENT_BALANCE, requestId);
+		}
+		checkOutcome(leaveApprovalRepository.markApproved(Collections.singletonList(requestId)).get(requestId),
+				requestId);
+		leaveBalanceRepository.deductAll(Collections.singletonList(deductionFor(request, balance.getYear())));
+	}
+
+	// The days of an approved request, as the amount to take off the balance of that year
+	private static LeaveBalance deductionFor(LeaveRequest request, int balanceYear) {
+		return new LeaveBalance(0, request.getEmpId(), request.getLeaveTypeId(), request.getDays(), balanceYear, null);
+	}
+
 	private LeaveBalance getLeaveBalance(String employeeId, String leaveType) throws InvalidLeaveRequestException {
 		
 		Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveType(employeeId, leaveType);
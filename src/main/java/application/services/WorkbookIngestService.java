@@ -0,0 +1,98 @@
+package application.services;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import common.exception.DataPersistenceException;
+import common.exception.DataReaderException;
+import domain.validation.IValidator;
+import infrastructure.file.DeadLetterLog;
+import infrastructure.file.FileDataReader;
+import infrastructure.file.parsers.AbstractDataParser;
+import infrastructure.file.parsers.MultiEntityXlsxParser;
+
+// Reads each workbook once and fans the rows out to every registered FileProcessingService.
+// Services are persisted in registration order, so register parents (leave types, employees)
+// before the entities that reference them.
+public class WorkbookIngestService {
+
+	private final List<FileProcessingService<?>> services;
+	private final FileDataReader<Object[]> fileDataReader;
+	private volatile FileProcessingService.ErrorMode errorMode = FileProcessingService.ErrorMode.STRICT;
+	private volatile Path deadLetterDirectory;
+
+	public WorkbookIngestService(List<FileProcessingService<?>> services, IValidator<File> fileValidator) {
+
+		this.services = new ArrayList<>(services);
+		List<AbstractDataParser<?>> parsers = new ArrayList<>();
+		for (FileProcessingService<?> service : services) {
+			parsers.add(service.getParser());
+		}
+		this.fileDataReader = new FileDataReader<>(new MultiEntityXlsxParser(parsers), fileValidator);
+	}
+
+	// A row is rejected for every entity when any of the parsers fails on it
+	public void setErrorMode(FileProcessingService.ErrorMode errorMode, Path deadLetterDirectory) {
+		if (errorMode == FileProcessingService.ErrorMode.LENIENT && deadLetterDirectory == null) {
+			throw new IllegalArgumentException("Lenient ingest needs a dead-letter directory");
+		}
+		this.errorMode = errorMode;
+		this.deadLetterDirectory = deadLetterDirectory;
+	}
+
+	public void processFiles(List<Path> filePaths) throws DataPersistenceException {
+		DeadLetterLog deadLetters = errorMode == FileProcessingService.ErrorMode.LENIENT ? new DeadLetterLog() : null;
+		try {
+
+			Map<Path, List<Object[]>> rowsByFile = fileDataReader.readDataByFile(filePaths, deadLetters);
+			List<Object[]> rows = new ArrayList<>();
+			for (List<Object[]> fileRows : rowsByFile.values()) {
+				rows.addAll(fileRows);
+			}
+
+			// Taken before anything is written: rows one service's repository rejects are logged against
+			// their file too, and must not stop the next service from deleting rows gone from that file
+			Map<Path, Boolean> complete = new HashMap<>();
+			for (Path file : rowsByFile.keySet()) {
+				complete.put(file, deadLetters == null || !deadLetters.hasFailuresFor(file));
+			}
+
+			for (int i = 0; i < services.size(); i++) {
+				FileProcessingService<?> service = services.get(i);
+				if (service.getIngestMode() == FileProcessingService.IngestMode.INCREMENTAL) {
+					// Deltas are computed per source file
+					for (Map.Entry<Path, List<Object[]>> file : rowsByFile.entrySet()) {
+						persistColumn(service, file.getKey(), file.getValue(), i, complete.get(file.getKey()), deadLetters);
+					}
+				} else {
+					persistColumn(service, null, rows, i, true, deadLetters);
+				}
+			}
+
+		} catch (DataReaderException e) {
+			System.err.println("Error processing files: " + e.getMessage());
+		} finally {
+			FileProcessingService.reportRejected(deadLetters, deadLetterDirectory, "workbook");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void persistColumn(FileProcessingService<T> service, Path sourceFile, List<Object[]> rows, int column,
+			boolean complete, DeadLetterLog deadLetters) throws DataPersistenceException {
+
+		// column i was produced by services.get(i).getParser(), so the cast is safe
+		List<T> entities = new ArrayList<>(rows.size());
+		for (Object[] row : rows) {
+			entities.add((T) row[column]);
+		}
+		if (sourceFile == null) {
+			service.persist(entities, deadLetters);
+		} else {
+			service.persistFile(sourceFile, entities, complete, deadLetters);
+		}
+	}
+}
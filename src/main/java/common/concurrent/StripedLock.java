@@ -0,0 +1,55 @@
+package common.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed set of locks shared by hash, so callers can serialize work per key (e.g. per employee)
+// without one lock per key or one global lock. Unrelated keys only contend when they share a stripe.
+public class StripedLock {
+
+	private final ReentrantLock[] stripes;
+
+	public StripedLock(int stripeCount) {
+		if (stripeCount < 1) {
+			throw new IllegalArgumentException("stripeCount must be positive, got " + stripeCount);
+		}
+		this.stripes = new ReentrantLock[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	public ReentrantLock get(Object key) {
+		return stripes[indexOf(key)];
+	}
+
+	// Locks for several keys in stripe order, so two callers locking overlapping sets cannot deadlock.
+	// Release with unlockAll in any order.
+	public List<ReentrantLock> lockAll(Collection<?> keys) {
+		TreeSet<Integer> indexes = new TreeSet<>();
+		for (Object key : keys) {
+			indexes.add(indexOf(key));
+		}
+		List<ReentrantLock> locked = new ArrayList<>(indexes.size());
+		for (int index : indexes) {
+			stripes[index].lock();
+			locked.add(stripes[index]);
+		}
+		return locked;
+	}
+
+	public static void unlockAll(List<ReentrantLock> locks) {
+		for (int i = locks.size() - 1; i >= 0; i--) {
+			locks.get(i).unlock();
+		}
+	}
+
+	private int indexOf(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16); // spread high bits, as HashMap does
+		return (hash & Integer.MAX_VALUE) % stripes.length;
+	}
+}
@@ -4,16 +4,28 @@ public class DataParseException extends Exception {
 	
 	private static final long serialVersionUID = 1L;
 
+	private final int columnIndex; // zero-based cell that failed, or -1 when not tied to one cell
+
 	public DataParseException(String message) {
-		super(message);
+		this(message, null, -1);
 	}
 
 	public DataParseException(String message, Throwable cause) {
+		this(message, cause, -1);
+	}
+
+	public DataParseException(String message, Throwable cause, int columnIndex) {
 		super(message, cause);
+		this.columnIndex = columnIndex;
 	}
 
 	public DataParseException(Throwable cause) {
 		super(cause);
+		this.columnIndex = -1;
+	}
+
+	public int getColumnIndex() {
+		return columnIndex;
 	}
 
 }
@@ -17,7 +17,7 @@ public class LeaveRequest {
     public LeaveRequest(String employeeId, String leaveType, LocalDate startDate, LocalDate endDate) {
         this.empId = employeeId.toUpperCase();
 //        capitalize first letter of leave type
-        this.leaveTypeName = leaveType.substring(0, 1).toUpperCase() + leaveType.substring(1);
+        this.leaveTypeName = capitalize(leaveType);
         this.startDate = startDate;
         this.endDate = endDate;
         this.days = calculateLeaveDays(); // Calculate leave days
@@ -31,7 +31,7 @@ public class LeaveRequest {
     	this.requestId = requestId;
         this.empId = empId;
         // capitalize first letter of leave type
-        this.leaveTypeName = leaveTypeName.substring(0, 1).toUpperCase() + leaveTypeName.substring(1);
+        this.leaveTypeName = capitalize(leaveTypeName);
         this.startDate = startDate;
         this.endDate = endDate;
         this.days = days;
@@ -105,6 +105,14 @@ public class LeaveRequest {
                 .count();
     }
 
+    // Returns the same instance when already capitalized, so interned names stay shared
+    private static String capitalize(String value) {
+        if (!value.isEmpty() && Character.isUpperCase(value.charAt(0))) {
+            return value;
+        }
+        return value.substring(0, 1).toUpperCase() + value.substring(1);
+    }
+
 	public String getLeaveTypeName() {
 		return leaveTypeName;
 	}
@@ -0,0 +1,11 @@
+package domain.repository;
+
+import java.util.List;
+
+import common.exception.DataPersistenceException;
+
+// Repositories that can load large data sets through a database-specific bulk path
+public interface IBulkRepository<T> extends IRepository<T> {
+    // Returns the rows that were not stored; every other row was
+    List<Rejection<T>> bulkLoad(List<T> entities) throws DataPersistenceException;
+}
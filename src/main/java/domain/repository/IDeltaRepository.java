@@ -0,0 +1,20 @@
+package domain.repository;
+
+import java.util.List;
+
+import common.exception.DataPersistenceException;
+
+// Repositories that can apply just the rows that changed in a source file. naturalKey identifies a
+// row across ingests; rowSignature covers every persisted field, so equal signatures mean no write.
+public interface IDeltaRepository<T> extends IRepository<T> {
+
+	String naturalKey(T entity);
+
+	String rowSignature(T entity);
+
+	// deletedKeys are natural keys that disappeared from the file; repositories whose rows are shared
+	// between files (employees, leave types) keep them. Returns the inserted or updated rows that were
+	// not stored; every other row was.
+	List<Rejection<T>> applyDelta(List<T> inserted, List<T> updated, List<String> deletedKeys)
+			throws DataPersistenceException;
+}
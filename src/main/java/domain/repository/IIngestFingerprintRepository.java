@@ -0,0 +1,15 @@
+package domain.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import common.exception.DataPersistenceException;
+
+// Row hashes from the last incremental ingest, keyed by natural key, per source file and entity type
+public interface IIngestFingerprintRepository {
+
+	Map<String, String> findHashes(String sourceFile, String entityType);
+
+	void saveHashes(String sourceFile, String entityType, Map<String, String> changedHashes,
+			Collection<String> removedKeys) throws DataPersistenceException;
+}
@@ -0,0 +1,31 @@
+package domain.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import common.exception.DataPersistenceException;
+import domain.model.LeaveRequest;
+
+// Applies leave decisions atomically in the database: the status change only happens while the
+// request is still Pending, and an approval only commits if the balance covers the deduction.
+public interface ILeaveApprovalRepository {
+
+	enum Outcome { APPLIED, NOT_PENDING, INSUFFICIENT_BALANCE }
+
+	Outcome approve(int requestId, String employeeId, String leaveType, int balanceYear, float days)
+			throws DataPersistenceException;
+
+	Outcome reject(int requestId, String reason) throws DataPersistenceException;
+
+	// Approves all requests in one transaction, deducting each from the balance of the year given
+	// for its request ID. Returns one outcome per request ID.
+	Map<Integer, Outcome> approveAll(List<LeaveRequest> requests, Map<Integer, Integer> balanceYears)
+			throws DataPersistenceException;
+
+	// Marks every request ID Approved in one transaction without touching balances, for callers
+	// that deduct through a write-behind balance repository. Returns one outcome per request ID.
+	Map<Integer, Outcome> markApproved(List<Integer> requestIds) throws DataPersistenceException;
+
+	// Rejects every request ID with its reason in one transaction
+	Map<Integer, Outcome> rejectAll(Map<Integer, String> reasons) throws DataPersistenceException;
+}
@@ -1,8 +1,10 @@
 package domain.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import common.exception.DataPersistenceException;
 import domain.model.LeaveBalance;
 
 public interface ILeaveBalanceRepository {
@@ -11,8 +13,25 @@ public interface ILeaveBalanceRepository {
 
 	List<LeaveBalance> findByEmployeeId(String employeeId);
 
+	List<LeaveBalance> findByEmployeeIds(Collection<String> employeeIds);
+
 	void save(LeaveBalance leaveBalance);
 
 	void updateBalance(String employeeId, String leaveType, float newBalance);
 
+	// Subtracts each entry's days from the stored balance of its employee, leave type and year
+	void deductAll(List<LeaveBalance> deductions) throws DataPersistenceException;
+
+	// True when deductAll only changes memory and the deductions are written by a later flush.
+	// Approvals then check the balance in memory and deduct through this repository, instead of
+	// deducting in the transaction that changes the request status.
+	default boolean defersDeductions() {
+		return false;
+	}
+
+	// Called before and after balances are changed directly in the database, so a caching
+	// repository writes out pending changes and reloads the employee afterwards
+	default void evict(String employeeId) throws DataPersistenceException {
+	}
+
 }
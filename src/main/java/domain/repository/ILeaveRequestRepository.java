@@ -1,19 +1,26 @@
 package domain.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import common.exception.InvalidLeaveRequestException;
 import domain.model.LeaveRequest;
 import domain.model.LeaveStatus;
 
 public interface ILeaveRequestRepository {
     
 	Optional<LeaveRequest> findById(int requestId);
+    List<LeaveRequest> findByIds(Collection<Integer> requestIds);
     List<LeaveRequest> findByEmployeeId(String employeeId);
+    // Requests starting in the given calendar year
+    List<LeaveRequest> findByEmployeeId(String employeeId, int year);
     List<LeaveRequest> findByEmployeeIdAndLeaveType(String employeeId, String leaveType);
     List<LeaveRequest> findByStatus(LeaveStatus status);
-    LeaveRequest save(LeaveRequest leaveRequest);
-    void updateStatus(int requestId, LeaveStatus status, String remarks);
+    List<LeaveRequest> findByStatus(LeaveStatus status, int year);
+    // save and updateStatus throw when a Pending or Approved request would overlap another one of the employee's
+    LeaveRequest save(LeaveRequest leaveRequest) throws InvalidLeaveRequestException;
+    void updateStatus(int requestId, LeaveStatus status, String remarks) throws InvalidLeaveRequestException;
     List<LeaveRequest> findOverlappingRequests(String employeeId, LocalDate startDate, LocalDate endDate);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package domain.repository;
+
+// A row a repository was given but did not store, e.g. a leave request that overlaps a stored one.
+// The reason names the row, so it can be reported without the entity.
+public final class Rejection<T> {
+
+	private final T entity;
+	private final String reason;
+
+	public Rejection(T entity, String reason) {
+		this.entity = entity;
+		this.reason = reason;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,76 @@
+package infrastructure.file;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import infrastructure.file.parsers.RowFailure;
+import infrastructure.file.parsers.RowFailureHandler;
+
+// Collects the rows a lenient ingest skipped so they can be fixed and reloaded without rerunning
+// the whole import. Files are parsed concurrently, so every method is synchronized.
+public class DeadLetterLog implements RowFailureHandler {
+
+	private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+	private final List<RowFailure> failures = new ArrayList<>();
+
+	@Override
+	public synchronized void onFailure(RowFailure failure) {
+		failures.add(failure);
+	}
+
+	public synchronized List<RowFailure> getFailures() {
+		return new ArrayList<>(failures);
+	}
+
+	public synchronized int size() {
+		return failures.size();
+	}
+
+	public synchronized boolean hasFailuresFor(Path sourceFile) {
+		String path = sourceFile.toFile().getPath();
+		for (RowFailure failure : failures) {
+			if (path.equals(failure.getFile())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Writes the failures to <directory>/<name>-rejected-<timestamp>.csv and returns the file, or
+	// null when nothing was rejected
+	public synchronized Path writeCsv(Path directory, String name) throws IOException {
+		if (failures.isEmpty()) {
+			return null;
+		}
+		Files.createDirectories(directory);
+		Path target = directory.resolve(name + "-rejected-" + LocalDateTime.now().format(FILE_STAMP) + ".csv");
+		try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+			writer.write("file,sheet,row,column,error");
+			writer.newLine();
+			for (RowFailure failure : failures) {
+				writer.write(csv(failure.getFile()) + "," + csv(failure.getSheet()) + ","
+						+ failure.getRow() + "," + failure.getColumn() + "," + csv(failure.getMessage()));
+				writer.newLine();
+			}
+		}
+		return target;
+	}
+
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+}
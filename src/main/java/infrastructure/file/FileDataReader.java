@@ -1,71 +1,161 @@
 package infrastructure.file;
 
 import java.io.File;
+import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import common.exception.DataParseException;
 import common.exception.DataReaderException;
 import common.exception.DataReaderException.ErrorType;
 import domain.validation.IValidator;
 import infrastructure.file.parsers.AbstractDataParser;
+import infrastructure.file.parsers.RowFailure;
+import infrastructure.file.parsers.RowFailureHandler;
 import common.exception.ValidationException;
 
 public class FileDataReader<T> implements IDataReader<T> {
     
-    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors(); //5
+    private static final int DEFAULT_MAX_CONCURRENCY = Runtime.getRuntime().availableProcessors();
     
     private final AbstractDataParser<T> parser;
     private final IValidator<File> fileValidator;
+    private final ExecutorService executor;
+    private final Semaphore permits; // files parsed at once, across every call sharing this reader
 
     public FileDataReader(AbstractDataParser<T> parser, IValidator<File> fileValidator) {
+        this(parser, fileValidator, SharedExecutor.INSTANCE, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    // The executor is owned by the caller and is never shut down here
+    public FileDataReader(AbstractDataParser<T> parser, IValidator<File> fileValidator, ExecutorService executor,
+            int maxConcurrency) {
+
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, got " + maxConcurrency);
+        }
         this.parser = parser;
         this.fileValidator = fileValidator;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    // Process-wide executor used by readers that are not given one; never shut down
+    public static ExecutorService sharedExecutor() {
+        return SharedExecutor.INSTANCE;
     }
 
     @Override
     public List<T> readData(List<Path> filePaths) throws DataReaderException {
+        return readData(filePaths, null);
+    }
+
+    // With a failure handler, bad rows and unreadable files are reported to it and skipped
+    public List<T> readData(List<Path> filePaths, RowFailureHandler failureHandler) throws DataReaderException {
        
-    	ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS);
+        List<T> results = new ArrayList<>();
+        for (List<T> fileResults : readDataByFile(filePaths, failureHandler).values()) {
+            results.addAll(fileResults);
+        }
+        return results;
+    }
+
+    // Same as readData but keeps each file's rows apart, in the order the files were given
+    public Map<Path, List<T>> readDataByFile(List<Path> filePaths) throws DataReaderException {
+        return readDataByFile(filePaths, null);
+    }
+
+    public Map<Path, List<T>> readDataByFile(List<Path> filePaths, RowFailureHandler failureHandler)
+            throws DataReaderException {
+
         List<Future<List<T>>> futures = new ArrayList<>();
-        List<T> results = Collections.synchronizedList(new ArrayList<>());
+        // Futures are collected as they finish, so the first failure cancels every file still running
+        CompletionService<List<T>> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<List<T>>, Integer> fileIndexes = new IdentityHashMap<>();
+        AtomicBoolean failed = new AtomicBoolean();
 
         try {
             for (Path path : filePaths) {
-                futures.add(executor.submit(() -> processFile(path)));
+                // Waiting for a permit here keeps at most maxConcurrency workbooks in memory;
+                // once a file has failed the rest are not started, and the failure surfaces below
+                permits.acquire();
+                if (failed.get()) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    Future<List<T>> future = completion.submit(() -> {
+                        try {
+                            return processFile(path, failureHandler);
+                        } catch (Exception e) {
+                            failed.set(true);
+                            throw e;
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    fileIndexes.put(future, futures.size());
+                    futures.add(future);
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            List<List<T>> fileResults = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                fileResults.add(null);
             }
-            
-            
-            
-            for (Future<List<T>> future : futures) {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<List<T>> future = completion.take();
                 try {
-                    results.addAll(future.get());
+                    fileResults.set(fileIndexes.get(future), future.get());
                 } catch (ExecutionException e) {
+                    cancelAll(futures);
                     handleExecutionException(e);
                 }
             }
+
+            Map<Path, List<T>> results = new LinkedHashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                results.put(filePaths.get(i), fileResults.get(i));
+            }
+            return results;
         } catch (InterruptedException e) {
-            handleInterruption(e);
-        } finally {
-            gracefulShutdown(executor);
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new DataReaderException("Data reading process interrupted", e, ErrorType.PARSE_ERROR);
+        } catch (CancellationException e) {
+            cancelAll(futures);
+            throw new DataReaderException("Data reading was cancelled", e, ErrorType.PARSE_ERROR);
         }
-
-        return results;
     }
 
-    private List<T> processFile(Path path) throws DataReaderException {
+    private List<T> processFile(Path path, RowFailureHandler failureHandler) throws DataReaderException {
+        File file = path.toFile();
         try {
-            File file = path.toFile();
             fileValidator.validate(file);
-            return parser.parse(file);
+            return parser.parse(file, failureHandler);
         } catch (DataParseException | ValidationException e) {
+            if (failureHandler != null) {
+                // Lenient: one unreadable file does not stop the others
+                failureHandler.onFailure(RowFailure.ofFile(file, e));
+                return new ArrayList<>();
+            }
             throw new DataReaderException("Error processing file: " + path, e, ErrorType.FILE_NOT_FOUND);
         }
     }
@@ -79,20 +169,32 @@ public class FileDataReader<T> implements IDataReader<T> {
         throw new DataReaderException("Unexpected error during processing", cause, ErrorType.PARSE_ERROR);
     }
 
-    private void handleInterruption(InterruptedException e) throws DataReaderException {
-        Thread.currentThread().interrupt();
-        throw new DataReaderException("Data reading process interrupted", e, ErrorType.PARSE_ERROR);
+    // Interrupts files still being parsed and drops those not yet started
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
     }
 
-    private void gracefulShutdown(ExecutorService executor) {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+    // Created on first use and kept for the life of the process
+    private static final class SharedExecutor {
+
+        static final ExecutorService INSTANCE = create();
+
+        // Virtual threads where the runtime has them (Java 21+), otherwise a cached pool of daemon
+        // threads, which keeps idle threads for a minute so bursts of change events reuse them
+        private static ExecutorService create() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                AtomicInteger count = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "file-reader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
             }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+}
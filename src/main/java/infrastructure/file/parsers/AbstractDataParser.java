@@ -1,105 +1,468 @@
 package infrastructure.file.parsers;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import common.exception.DataParseException;
 
 
 public abstract class AbstractDataParser<T> {
-    
-	public abstract List<T> parse(File file) throws DataParseException ;
-	
-	protected abstract T parseRow(Row row) throws DataParseException;
-    
-	protected String getStringValue(Row row, int cellIndex) {
-        Cell cell = row.getCell(cellIndex, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
-        return cell.toString().trim();
-    }
-
-    protected LocalDate getDateValue(Row row, int cellIndex) throws DataParseException {
-        Cell cell = row.getCell(cellIndex);
-        try {
-            if (cell == null) {
-                throw new DataParseException("Missing date value");
-            }
-            
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return cell.getLocalDateTimeCellValue().toLocalDate();
-            }
-            return LocalDate.parse(cell.toString().trim());
-        } catch (Exception e) {
-            throw new DataParseException(
-                String.format("Invalid date format in cell %d: %s", 
-                    cellIndex + 1, cell.toString()),
-                e
-            );
-        }
-    }
-
-    protected int getNumericValue(Row row, int cellIndex) throws DataParseException {
-    	Cell cell = row.getCell(cellIndex);
-        try {
-            if (cell == null) {
-                throw new DataParseException("Missing numeric value");
-            }
-            
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return (int) cell.getNumericCellValue();
-            }
-            return Integer.parseInt(cell.toString().trim());
-        } catch (Exception e) {
-            throw new DataParseException(
-                String.format("Invalid number format in cell %d: %s", cellIndex + 1, cell.toString()), e
-                    );
-        }
-    }
-    
-    protected float getFloatValue(Row row, int cellIndex) throws DataParseException {
-        
-    	Cell cell = row.getCell(cellIndex);
-        try {
-            if (cell == null) {
-                throw new DataParseException("Missing float value");
-            }
-
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return (float) cell.getNumericCellValue();
-            }
-            return Float.parseFloat(cell.toString().trim());
-        } catch (Exception e) {
-            throw new DataParseException(
-                String.format("Invalid float format in cell %d: %s", cellIndex + 1, cell.toString()), e
-            );
-        }
-    }
-    
-    protected String[] getHeaderRow(Sheet sheet, int headerLength) throws DataParseException {
-        Row headerRow = sheet.getRow(0);
-        if (headerRow == null) {
-            throw new DataParseException("Missing header row");
-        }
-
-        String[] headers = new String[headerLength];
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.getCell(i, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
-            headers[i] = cell.toString().trim();
-        }
-        return headers;
-    }
-    
-    protected void validateHeaders(String[] headers, String[] expectedHeaders) throws DataParseException {
-		
-    	if (!Arrays.equals(expectedHeaders, headers)) {
+
+	// IN_MEMORY loads the whole workbook (XSSFWorkbook); STREAMING reads the sheet XML with SAX
+	// and keeps only the current row in memory, which is what large exports need. PARALLEL streams
+	// like STREAMING but converts rows to entities on the fork-join pool while the sheet is still
+	// being read; results keep sheet order.
+	public enum ParseMode { IN_MEMORY, STREAMING, PARALLEL }
+
+	private static final int PARALLEL_CHUNK_ROWS = 512;
+	private static final int MAX_INTERNED_VALUES = 16384;
+	private static final long EXCEL_EPOCH_OFFSET = 25569; // serial of 1970-01-01
+	private static final long EXCEL_1904_EPOCH_OFFSET = 24107; // serial of 1970-01-01 in the 1904 date system
+	private static final double MAX_EXCEL_SERIAL = 2958465; // 9999-12-31
+	private static final long NOT_AN_INT = Long.MIN_VALUE;
+
+	private volatile ParseMode parseMode;
+	private final ValueInterner interner = new ValueInterner(MAX_INTERNED_VALUES);
+
+	protected AbstractDataParser() {
+		this(ParseMode.IN_MEMORY);
+	}
+
+	protected AbstractDataParser(ParseMode parseMode) {
+		this.parseMode = parseMode;
+	}
+
+	protected abstract String[] getExpectedHeaders();
+
+	protected abstract T parseRow(SheetRow row) throws DataParseException;
+
+	public ParseMode getParseMode() {
+		return parseMode;
+	}
+
+	public void setParseMode(ParseMode parseMode) {
+		this.parseMode = parseMode;
+	}
+
+	public List<T> parse(File file) throws DataParseException {
+		return parse(file, null);
+	}
+
+	public List<T> parse(File file, RowFailureHandler failureHandler) throws DataParseException {
+		List<T> results = new ArrayList<>();
+		parseRows(file, results::add, failureHandler);
+		return results;
+	}
+
+	public void parseRows(File file, EntityHandler<T> handler) throws DataParseException {
+		parseRows(file, handler, null);
+	}
+
+	// Hands each parsed entity to the handler in sheet order without collecting them, so callers
+	// can stream rows onward; errors thrown by the handler are reported against the row. With a
+	// failureHandler, failed rows are passed to it and skipped instead of ending the parse; header
+	// and file errors still throw.
+	public void parseRows(File file, EntityHandler<T> handler, RowFailureHandler failureHandler)
+			throws DataParseException {
+
+		if (parseMode == ParseMode.PARALLEL) {
+			parseInParallel(file, handler, failureHandler);
+			return;
+		}
+		readRows(file, row -> {
+			try {
+				handler.handle(parseRow(row));
+			} catch (DataParseException e) {
+				if (failureHandler == null) {
+					throw e;
+				}
+				failureHandler.onFailure(RowFailure.of(file, row, e));
+			}
+		});
+	}
+
+	// Validates the header row, then hands every data row to the handler in sheet order
+	public void readRows(File file, SheetRowHandler handler) throws DataParseException {
+		readRows(file, handler, true);
+	}
+
+	private void readRows(File file, SheetRowHandler handler, boolean tagRowErrors) throws DataParseException {
+
+		String[] expectedHeaders = getExpectedHeaders();
+		if (parseMode != ParseMode.IN_MEMORY) {
+			boolean[] headerSeen = { false };
+			XlsxStreamingReader.readFirstSheet(file, row -> {
+				if (headerSeen[0]) {
+					dispatchRow(row, handler, tagRowErrors);
+					return;
+				}
+				if (row.getRowIndex() != 0) {
+					throw new DataParseException("Missing header row");
+				}
+				validateHeaders(getHeaderRow(row, expectedHeaders.length), expectedHeaders);
+				headerSeen[0] = true;
+			});
+			if (!headerSeen[0]) {
+				throw new DataParseException("Missing header row");
+			}
+			return;
+		}
+
+		try (FileInputStream fis = new FileInputStream(file); XSSFWorkbook workbook = new XSSFWorkbook(fis)) {
+
+			Sheet sheet = workbook.getSheetAt(0);
+			Row headerRow = sheet.getRow(0);
+			if (headerRow == null) {
+				throw new DataParseException("Missing header row");
+			}
+			boolean date1904 = workbook.isDate1904();
+			validateHeaders(getHeaderRow(toSheetRow(sheet.getSheetName(), headerRow, date1904), expectedHeaders.length),
+					expectedHeaders);
+
+			for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
+				Row row = sheet.getRow(rowIndex);
+				if (row == null)
+					continue; // Skip empty rows
+
+				dispatchRow(toSheetRow(sheet.getSheetName(), row, date1904), handler, tagRowErrors);
+			}
+
+		} catch (IOException e) {
+			throw new DataParseException("Failed to read XLSX file: " + file.getName(), e);
+		}
+	}
+
+	private void dispatchRow(SheetRow row, SheetRowHandler handler, boolean tagRowErrors) throws DataParseException {
+		try {
+			handler.handle(row);
+		} catch (DataParseException e) {
+			throw tagRowErrors ? rowError(row, e) : e;
+		}
+	}
+
+	private static DataParseException rowError(SheetRow row, DataParseException e) {
+		return new DataParseException(String.format("Error in row %d: %s", row.getRowIndex() + 1, e.getMessage()),
+				e.getCause(), e.getColumnIndex());
+	}
+
+	// The calling thread reads the sheet and cuts it into chunks; each chunk is parsed on the common
+	// fork-join pool. Only a few chunks are in flight at once, so a slow parse holds back the reader
+	// instead of letting rows pile up in memory. Chunks are handed on in submission order.
+	private void parseInParallel(File file, EntityHandler<T> handler, RowFailureHandler failureHandler)
+			throws DataParseException {
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int maxChunksInFlight = Math.max(2, pool.getParallelism() * 2);
+		Deque<List<SheetRow>> chunksInFlight = new ArrayDeque<>();
+		Deque<Future<ParsedChunk<T>>> inFlight = new ArrayDeque<>();
+		List<List<SheetRow>> chunk = new ArrayList<>(1);
+		chunk.add(new ArrayList<>(PARALLEL_CHUNK_ROWS));
+
+		try {
+			// Parse errors are tagged with their row by the worker that parsed the chunk, not by the reader
+			readRows(file, row -> {
+				List<SheetRow> rows = chunk.get(0);
+				rows.add(row);
+				if (rows.size() == PARALLEL_CHUNK_ROWS) {
+					if (inFlight.size() == maxChunksInFlight) {
+						emitChunk(file, chunksInFlight.poll(), inFlight.poll(), handler, failureHandler);
+					}
+					chunksInFlight.add(rows);
+					inFlight.add(CompletableFuture.supplyAsync(() -> parseChunk(rows), pool));
+					chunk.set(0, new ArrayList<>(PARALLEL_CHUNK_ROWS));
+				}
+			}, false);
+			List<SheetRow> lastRows = chunk.get(0);
+			if (!lastRows.isEmpty()) {
+				chunksInFlight.add(lastRows);
+				inFlight.add(CompletableFuture.supplyAsync(() -> parseChunk(lastRows), pool));
+			}
+			while (!inFlight.isEmpty()) {
+				emitChunk(file, chunksInFlight.poll(), inFlight.poll(), handler, failureHandler);
+			}
+		} finally {
+			// Only non-empty after a failure; later chunks are no longer needed
+			for (Future<ParsedChunk<T>> future : inFlight) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	// Failures are raised here in row order, so strict mode reports the same row as a sequential parse
+	private void emitChunk(File file, List<SheetRow> rows, Future<ParsedChunk<T>> parsed, EntityHandler<T> handler,
+			RowFailureHandler failureHandler) throws DataParseException {
+
+		ParsedChunk<T> chunk = awaitChunk(parsed);
+		for (int i = 0; i < rows.size(); i++) {
+			if (chunk.errors[i] != null) {
+				if (failureHandler == null) {
+					throw chunk.rowErrors[i];
+				}
+				failureHandler.onFailure(RowFailure.of(file, rows.get(i), chunk.errors[i]));
+				continue;
+			}
+			try {
+				handler.handle(chunk.entities.get(i));
+			} catch (DataParseException e) {
+				if (failureHandler == null) {
+					throw rowError(rows.get(i), e);
+				}
+				failureHandler.onFailure(RowFailure.of(file, rows.get(i), e));
+			}
+		}
+	}
+
+	private ParsedChunk<T> parseChunk(List<SheetRow> rows) {
+		ParsedChunk<T> parsed = new ParsedChunk<>(rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			try {
+				parsed.entities.add(parseRow(rows.get(i)));
+			} catch (DataParseException e) {
+				parsed.entities.add(null);
+				parsed.errors[i] = e;
+				parsed.rowErrors[i] = rowError(rows.get(i), e);
+			}
+		}
+		return parsed;
+	}
+
+	private static <R> ParsedChunk<R> awaitChunk(Future<ParsedChunk<R>> future) throws DataParseException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataParseException("Interrupted while parsing rows", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new DataParseException(cause);
+		}
+	}
+
+	// Entities of one chunk, with the parse error of each row that failed in its place: as thrown,
+	// for the failure handler, and prefixed 'Error in row N' for strict mode
+	private static final class ParsedChunk<R> {
+
+		private final List<R> entities;
+		private final DataParseException[] errors;
+		private final DataParseException[] rowErrors;
+
+		private ParsedChunk(int size) {
+			this.entities = new ArrayList<>(size);
+			this.errors = new DataParseException[size];
+			this.rowErrors = new DataParseException[size];
+		}
+	}
+
+	private static SheetRow toSheetRow(String sheetName, Row row, boolean date1904) {
+
+		SheetRow sheetRow = new SheetRow(sheetName, row.getRowNum(), date1904, Math.max(row.getLastCellNum(), 1));
+		for (Cell cell : row) {
+			int index = cell.getColumnIndex();
+			CellType type = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+			switch (type) {
+			case STRING:
+				sheetRow.setString(index, cell.getStringCellValue());
+				break;
+			case NUMERIC:
+				sheetRow.setNumeric(index, cell.getNumericCellValue(), DateUtil.isCellDateFormatted(cell));
+				break;
+			case BOOLEAN:
+				sheetRow.setBoolean(index, cell.getBooleanCellValue());
+				break;
+			case ERROR:
+				sheetRow.setError(index, FormulaError.forInt(cell.getErrorCellValue()).getString());
+				break;
+			default:
+				break; // blank
+			}
+		}
+		return sheetRow;
+	}
+
+	protected String getStringValue(SheetRow row, int cellIndex) {
+		return row.getText(cellIndex).trim();
+	}
+
+	// For columns whose values repeat across rows (employee IDs, departments, leave types); equal
+	// values come back as one shared instance
+	protected String getInternedStringValue(SheetRow row, int cellIndex) {
+		return interner.intern(getStringValue(row, cellIndex));
+	}
+
+	// The accessors below read typed cells directly and only fall back to parsing text for text
+	// cells; error messages are built only once a cell has failed
+	protected LocalDate getDateValue(SheetRow row, int cellIndex) throws DataParseException {
+
+		switch (row.getKind(cellIndex)) {
+		case BLANK:
+			throw cellError("Invalid date format", row, cellIndex, new DataParseException("Missing date value"));
+		case NUMERIC:
+		case DATE:
+			LocalDate date = toLocalDate(row.getNumber(cellIndex), row.isDate1904());
+			if (date == null) {
+				throw cellError("Invalid date format", row, cellIndex, null);
+			}
+			return date;
+		default:
+			String text = row.getText(cellIndex).trim();
+			LocalDate isoDate = parseIsoDate(text);
+			if (isoDate != null) {
+				return isoDate;
+			}
+			try {
+				return LocalDate.parse(text); // reports why the text is not a date
+			} catch (DateTimeException e) {
+				throw cellError("Invalid date format", row, cellIndex, e);
+			}
+		}
+	}
+
+	protected int getNumericValue(SheetRow row, int cellIndex) throws DataParseException {
+
+		switch (row.getKind(cellIndex)) {
+		case BLANK:
+			throw cellError("Invalid number format", row, cellIndex, new DataParseException("Missing numeric value"));
+		case NUMERIC:
+		case DATE:
+			return (int) row.getNumber(cellIndex);
+		default:
+			long value = parseInt(row.getText(cellIndex).trim());
+			if (value == NOT_AN_INT) {
+				throw cellError("Invalid number format", row, cellIndex, null);
+			}
+			return (int) value;
+		}
+	}
+
+	protected float getFloatValue(SheetRow row, int cellIndex) throws DataParseException {
+
+		switch (row.getKind(cellIndex)) {
+		case BLANK:
+			throw cellError("Invalid float format", row, cellIndex, new DataParseException("Missing float value"));
+		case NUMERIC:
+		case DATE:
+			return (float) row.getNumber(cellIndex);
+		default:
+			try {
+				return Float.parseFloat(row.getText(cellIndex).trim());
+			} catch (NumberFormatException e) {
+				throw cellError("Invalid float format", row, cellIndex, e);
+			}
+		}
+	}
+
+	protected static DataParseException cellError(String problem, SheetRow row, int cellIndex, Throwable cause) {
+		return new DataParseException(problem + " in cell " + (cellIndex + 1) + ": " + row.getText(cellIndex), cause,
+				cellIndex);
+	}
+
+	// Whole-day serials map straight to an epoch day; times of day and, in the 1900 date system,
+	// dates before March 1900 (Excel's phantom 29 Feb 1900) go through POI
+	private static LocalDate toLocalDate(double serial, boolean date1904) {
+		if (serial == Math.rint(serial)) {
+			if (date1904 && serial >= 0 && serial <= MAX_EXCEL_SERIAL - 1462) {
+				return LocalDate.ofEpochDay((long) serial - EXCEL_1904_EPOCH_OFFSET);
+			}
+			if (!date1904 && serial >= 61 && serial <= MAX_EXCEL_SERIAL) {
+				return LocalDate.ofEpochDay((long) serial - EXCEL_EPOCH_OFFSET);
+			}
+		}
+		LocalDateTime dateTime = DateUtil.getLocalDateTime(serial, date1904);
+		return dateTime != null ? dateTime.toLocalDate() : null;
+	}
+
+	// yyyy-MM-dd without the formatter machinery; anything else returns null
+	private static LocalDate parseIsoDate(String text) {
+		if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+			return null;
+		}
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 7);
+		int day = digits(text, 8, 10);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+			return null;
+		}
+		if (day > 28 && day > YearMonth.of(year, month).lengthOfMonth()) {
+			return null;
+		}
+		return LocalDate.of(year, month, day);
+	}
+
+	private static int digits(String text, int from, int to) {
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	// Integer.parseInt without the exception: NOT_AN_INT when the text is not a valid int
+	private static long parseInt(String text) {
+		int length = text.length();
+		int start = length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+') ? 1 : 0;
+		if (length == start || length - start > 10) {
+			return NOT_AN_INT;
+		}
+		long value = 0;
+		for (int i = start; i < length; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return NOT_AN_INT;
+			}
+			value = value * 10 + (c - '0');
+		}
+		if (text.charAt(0) == '-') {
+			value = -value;
+		}
+		return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+	}
+
+	protected String[] getHeaderRow(SheetRow headerRow, int headerLength) {
+
+		String[] headers = new String[headerLength];
+		for (int i = 0; i < headers.length; i++) {
+			headers[i] = headerRow.getText(i).trim();
+		}
+		return headers;
+	}
+
+	protected void validateHeaders(String[] headers, String[] expectedHeaders) throws DataParseException {
+
+		if (!Arrays.equals(expectedHeaders, headers)) {
 			throw new DataParseException(String.format("Invalid headers. Expected %s, got %s",
 					Arrays.toString(expectedHeaders), Arrays.toString(headers)));
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package infrastructure.file.parsers;
+
+import common.exception.DataParseException;
+
+@FunctionalInterface
+public interface EntityHandler<T> {
+
+	void handle(T entity) throws DataParseException;
+}
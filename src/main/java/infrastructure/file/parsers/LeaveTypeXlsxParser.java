@@ -3,15 +3,6 @@ package infrastructure.file.parsers;
 import common.exception.DataParseException;
 import domain.model.LeaveType;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-
 public class LeaveTypeXlsxParser extends AbstractDataParser<LeaveType> {
 
 	private enum LEAVETYPE {
@@ -31,42 +22,31 @@ public class LeaveTypeXlsxParser extends AbstractDataParser<LeaveType> {
 	private static final String[] EXPECTED_HEADERS = { "EMP_ID", "EMP_NAME", "DEPARTMENT", "LEAVE_TYPE",
 			"LEAVE_START_DATE", "LEAVE_END_DATE", "LEAVE_DAYS", "LEAVE_STATUS", "REMARKS", "BALANCE_LEAVE" };
 
-	@Override
-	public List<LeaveType> parse(File file) throws DataParseException {
-		List<LeaveType> leaveTypes = new ArrayList<>();
-
-		try (FileInputStream fis = new FileInputStream(file); Workbook workbook = new XSSFWorkbook(fis)) {
-
-			Sheet sheet = workbook.getSheetAt(0);
-			validateHeaders(getHeaderRow(sheet, EXPECTED_HEADERS.length), EXPECTED_HEADERS);
-
-			for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-				Row row = sheet.getRow(rowIndex);
-				if (row == null)
-					continue; // Skip empty rows
-
-				try {
-					leaveTypes.add(parseRow(row));
-				} catch (DataParseException e) {
-					throw new DataParseException(String.format("Error in row %d: %s", rowIndex + 1, e.getMessage()),
-							e.getCause());
-				}
-			}
+	public LeaveTypeXlsxParser() {
+		super();
+	}
 
-		} catch (IOException e) {
-			throw new DataParseException("Failed to read XLSX file: " + file.getName(), e);
-		}
+	public LeaveTypeXlsxParser(ParseMode parseMode) {
+		super(parseMode);
+	}
 
-		return leaveTypes;
+	@Override
+	protected String[] getExpectedHeaders() {
+		return EXPECTED_HEADERS;
 	}
 
 	@Override
-	protected LeaveType parseRow(Row row) throws DataParseException {
+	protected LeaveType parseRow(SheetRow row) throws DataParseException {
 
 		try {
 			int leaveTypeId = 1;
-			
-			int leaveTypeValue = LEAVETYPE.valueOf(getStringValue(row, 3).toUpperCase()).getValue();
+			String leaveTypeName = getInternedStringValue(row, 3);
+			int leaveTypeValue;
+			try {
+				leaveTypeValue = LEAVETYPE.valueOf(leaveTypeName.toUpperCase()).getValue();
+			} catch (IllegalArgumentException e) {
+				throw cellError("Unknown leave type", row, 3, e);
+			}
 			if (leaveTypeValue == 12) {
 				leaveTypeId =2;
 			}else if (leaveTypeValue == 15) {
@@ -75,7 +55,7 @@ public class LeaveTypeXlsxParser extends AbstractDataParser<LeaveType> {
 			return new LeaveType(
 
 					leaveTypeId, // LEAVE_TYPE ID
-					getStringValue(row, 3), // LEAVE_TYPE NAME
+					leaveTypeName, // LEAVE_TYPE NAME
 					leaveTypeValue // DEFAULT BALANCE
 			);
 		} catch (IndexOutOfBoundsException e) {
@@ -0,0 +1,54 @@
+package infrastructure.file.parsers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import common.exception.DataParseException;
+
+// Fans every row of a workbook out to several entity parsers, so a file that feeds multiple
+// entities is opened and read once. Each parsed row is an array holding one entity per parser,
+// in the order the parsers were given.
+public class MultiEntityXlsxParser extends AbstractDataParser<Object[]> {
+
+	private final List<AbstractDataParser<?>> parsers;
+	private final String[] expectedHeaders;
+
+	public MultiEntityXlsxParser(List<AbstractDataParser<?>> parsers) {
+		this(parsers, ParseMode.IN_MEMORY);
+	}
+
+	public MultiEntityXlsxParser(List<AbstractDataParser<?>> parsers, ParseMode parseMode) {
+		super(parseMode);
+		if (parsers.isEmpty()) {
+			throw new IllegalArgumentException("At least one parser is required");
+		}
+		this.parsers = Collections.unmodifiableList(new ArrayList<>(parsers));
+		this.expectedHeaders = parsers.get(0).getExpectedHeaders();
+		for (AbstractDataParser<?> parser : parsers) {
+			if (!Arrays.equals(expectedHeaders, parser.getExpectedHeaders())) {
+				throw new IllegalArgumentException(parser.getClass().getSimpleName()
+						+ " expects a different sheet layout and cannot share a single pass");
+			}
+		}
+	}
+
+	public List<AbstractDataParser<?>> getParsers() {
+		return parsers;
+	}
+
+	@Override
+	protected String[] getExpectedHeaders() {
+		return expectedHeaders;
+	}
+
+	@Override
+	protected Object[] parseRow(SheetRow row) throws DataParseException {
+		Object[] entities = new Object[parsers.size()];
+		for (int i = 0; i < entities.length; i++) {
+			entities[i] = parsers.get(i).parseRow(row);
+		}
+		return entities;
+	}
+}
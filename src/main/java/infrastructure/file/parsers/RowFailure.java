@@ -0,0 +1,65 @@
+package infrastructure.file.parsers;
+
+import java.io.File;
+
+import common.exception.DataParseException;
+
+// A row, or a whole file, rejected by a lenient ingest. Row and column numbers are one-based as
+// shown in a spreadsheet; 0 means the failure is not tied to a single row or cell.
+public class RowFailure {
+
+	private final String file;
+	private final String sheet;
+	private final int row;
+	private final int column;
+	private final String message;
+
+	public RowFailure(String file, String sheet, int row, int column, String message) {
+		this.file = file;
+		this.sheet = sheet;
+		this.row = row;
+		this.column = column;
+		this.message = message;
+	}
+
+	static RowFailure of(File file, SheetRow row, DataParseException e) {
+		return new RowFailure(file.getPath(), row.getSheetName(), row.getRowIndex() + 1, e.getColumnIndex() + 1,
+				e.getMessage());
+	}
+
+	// The file could not be read at all, e.g. a missing header row
+	public static RowFailure ofFile(File file, Exception e) {
+		return new RowFailure(file.getPath(), null, 0, 0, e.getMessage());
+	}
+
+	// A parsed record the repository did not store; file is null when the record's source is not known
+	public static RowFailure ofRecord(File file, String message) {
+		return new RowFailure(file != null ? file.getPath() : null, null, 0, 0, message);
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public String getSheet() {
+		return sheet;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return (file != null ? file : "(unknown file)") + (sheet != null ? " [" + sheet + "]" : "") + (row > 0 ? " row " + row : "")
+				+ (column > 0 ? " column " + column : "") + ": " + message;
+	}
+}
@@ -0,0 +1,7 @@
+package infrastructure.file.parsers;
+
+@FunctionalInterface
+public interface RowFailureHandler {
+
+	void onFailure(RowFailure failure);
+}
@@ -0,0 +1,119 @@
+package infrastructure.file.parsers;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+
+// Plain snapshot of one worksheet row, independent of the POI object model so that both the
+// in-memory (XSSFWorkbook) and the streaming (SAX) readers can feed the same parseRow callbacks
+public class SheetRow {
+
+	public enum CellKind { BLANK, STRING, NUMERIC, DATE, BOOLEAN, ERROR }
+
+	private static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.ENGLISH);
+
+	private final String sheetName;
+	private final int rowIndex;
+	private final boolean date1904; // the workbook counts date serials from 1904 instead of 1900
+	private CellKind[] kinds;
+	private String[] texts;
+	private double[] numbers;
+	private int cellCount;
+
+	SheetRow(String sheetName, int rowIndex, boolean date1904) {
+		this(sheetName, rowIndex, date1904, 10);
+	}
+
+	SheetRow(String sheetName, int rowIndex, boolean date1904, int expectedCells) {
+		this.sheetName = sheetName;
+		this.rowIndex = rowIndex;
+		this.date1904 = date1904;
+		this.kinds = new CellKind[Math.max(expectedCells, 1)];
+		this.texts = new String[kinds.length];
+		this.numbers = new double[kinds.length];
+	}
+
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	// Zero-based index of the row in the sheet
+	public int getRowIndex() {
+		return rowIndex;
+	}
+
+	public boolean isDate1904() {
+		return date1904;
+	}
+
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	public CellKind getKind(int cellIndex) {
+		if (cellIndex < 0 || cellIndex >= cellCount || kinds[cellIndex] == null) {
+			return CellKind.BLANK;
+		}
+		return kinds[cellIndex];
+	}
+
+	public boolean isBlank(int cellIndex) {
+		return getKind(cellIndex) == CellKind.BLANK;
+	}
+
+	public double getNumber(int cellIndex) {
+		CellKind kind = getKind(cellIndex);
+		if (kind != CellKind.NUMERIC && kind != CellKind.DATE) {
+			throw new IllegalStateException("Cell " + (cellIndex + 1) + " is not numeric but " + kind);
+		}
+		return numbers[cellIndex];
+	}
+
+	// Display text of the cell, matching what Cell.toString() yields for the same cell
+	public String getText(int cellIndex) {
+		switch (getKind(cellIndex)) {
+		case BLANK:
+			return "";
+		case NUMERIC:
+			return Double.toString(numbers[cellIndex]);
+		case DATE:
+			LocalDateTime dateTime = DateUtil.getLocalDateTime(numbers[cellIndex], date1904);
+			// A date-formatted number outside Excel's date range shows as the plain number
+			return dateTime != null ? dateTime.format(DISPLAY_DATE) : Double.toString(numbers[cellIndex]);
+		default:
+			return texts[cellIndex];
+		}
+	}
+
+	void setString(int cellIndex, String text) {
+		set(cellIndex, CellKind.STRING, text, 0);
+	}
+
+	void setNumeric(int cellIndex, double value, boolean dateFormatted) {
+		set(cellIndex, dateFormatted ? CellKind.DATE : CellKind.NUMERIC, null, value);
+	}
+
+	void setBoolean(int cellIndex, boolean value) {
+		set(cellIndex, CellKind.BOOLEAN, value ? "TRUE" : "FALSE", 0);
+	}
+
+	void setError(int cellIndex, String errorText) {
+		set(cellIndex, CellKind.ERROR, errorText, 0);
+	}
+
+	private void set(int cellIndex, CellKind kind, String text, double number) {
+		if (cellIndex >= kinds.length) {
+			int capacity = Math.max(cellIndex + 1, kinds.length * 2);
+			kinds = Arrays.copyOf(kinds, capacity);
+			texts = Arrays.copyOf(texts, capacity);
+			numbers = Arrays.copyOf(numbers, capacity);
+		}
+		kinds[cellIndex] = kind;
+		texts[cellIndex] = text;
+		numbers[cellIndex] = number;
+		cellCount = Math.max(cellCount, cellIndex + 1);
+	}
+}
@@ -0,0 +1,9 @@
+package infrastructure.file.parsers;
+
+import common.exception.DataParseException;
+
+@FunctionalInterface
+public interface SheetRowHandler {
+
+	void handle(SheetRow row) throws DataParseException;
+}
@@ -0,0 +1,28 @@
+package infrastructure.file.parsers;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out one shared instance per distinct cell value so a large sheet does not keep a copy of
+// the same department or leave type for every row. Once full it stops growing and returns unseen
+// values as they are, so a column of unique values cannot make it grow without bound.
+final class ValueInterner {
+
+	private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+	private final int maxSize;
+
+	ValueInterner(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	String intern(String value) {
+		String existing = values.get(value);
+		if (existing != null) {
+			return existing;
+		}
+		if (values.size() >= maxSize) {
+			return value;
+		}
+		existing = values.putIfAbsent(value, value);
+		return existing != null ? existing : value;
+	}
+}
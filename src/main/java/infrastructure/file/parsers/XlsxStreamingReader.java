@@ -0,0 +1,248 @@
+package infrastructure.file.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbookPr;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import common.exception.DataParseException;
+
+// Reads the first worksheet of an XLSX file with POI's event model. Rows are pushed to the
+// handler as they are parsed, so memory stays constant regardless of the sheet size.
+final class XlsxStreamingReader {
+
+	private XlsxStreamingReader() {
+	}
+
+	static void readFirstSheet(File file, SheetRowHandler handler) throws DataParseException {
+
+		try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+
+			XSSFReader reader = new XSSFReader(pkg, true);
+			boolean date1904 = isDate1904(reader);
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			if (!sheets.hasNext()) {
+				throw new DataParseException("Workbook contains no sheets: " + file.getName());
+			}
+
+			try (InputStream sheet = sheets.next()) {
+				XMLReader xmlReader = XMLHelper.newXMLReader();
+				xmlReader.setContentHandler(new SheetContentHandler(sheets.getSheetName(), date1904,
+						reader.getSharedStringsTable(), reader.getStylesTable(), handler));
+				xmlReader.parse(new InputSource(sheet));
+			}
+		} catch (SAXException e) {
+			if (e.getException() instanceof DataParseException) {
+				throw (DataParseException) e.getException();
+			}
+			throw new DataParseException("Malformed sheet XML in file: " + file.getName(), e);
+		} catch (IOException | OpenXML4JException | ParserConfigurationException | InvalidOperationException
+				| XmlException e) {
+			throw new DataParseException("Failed to read XLSX file: " + file.getName(), e);
+		}
+	}
+
+	// Read from workbook.xml, which is small, as XSSFWorkbook.isDate1904() would
+	private static boolean isDate1904(XSSFReader reader) throws IOException, OpenXML4JException, XmlException {
+		try (InputStream workbook = reader.getWorkbookData()) {
+			CTWorkbookPr properties = WorkbookDocument.Factory.parse(workbook, POIXMLTypeLoader.DEFAULT_XML_OPTIONS)
+					.getWorkbook().getWorkbookPr();
+			return properties != null && properties.getDate1904();
+		}
+	}
+
+	private static final class SheetContentHandler extends DefaultHandler {
+
+		private final String sheetName;
+		private final boolean date1904;
+		private final SharedStrings sharedStrings;
+		private final StylesTable styles;
+		private final SheetRowHandler handler;
+		private final Map<String, Boolean> dateStyles = new HashMap<>();
+		// Resolved shared strings by index; repeated values (departments, leave types, statuses)
+		// then share one String instead of a copy per cell
+		private final String[] resolvedStrings;
+		private final StringBuilder value = new StringBuilder();
+
+		private SheetRow currentRow;
+		private int nextRowIndex;
+		private int nextColumnIndex;
+		private int columnIndex;
+		private String cellType;
+		private String styleIndex;
+		private boolean collecting;
+
+		private SheetContentHandler(String sheetName, boolean date1904, SharedStrings sharedStrings, StylesTable styles,
+				SheetRowHandler handler) {
+			this.sheetName = sheetName;
+			this.date1904 = date1904;
+			this.sharedStrings = sharedStrings;
+			this.resolvedStrings = new String[sharedStrings != null ? Math.max(sharedStrings.getUniqueCount(), 0) : 0];
+			this.styles = styles;
+			this.handler = handler;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+
+			switch (localName) {
+			case "row":
+				String rowRef = attributes.getValue("r");
+				currentRow = new SheetRow(sheetName, rowRef != null ? Integer.parseInt(rowRef) - 1 : nextRowIndex,
+						date1904);
+				nextColumnIndex = 0;
+				break;
+			case "c":
+				String cellRef = attributes.getValue("r");
+				columnIndex = cellRef != null ? columnIndexOf(cellRef) : nextColumnIndex;
+				cellType = attributes.getValue("t");
+				styleIndex = attributes.getValue("s");
+				value.setLength(0);
+				break;
+			case "v":
+			case "t": // inline string text, possibly split over several rich-text runs
+				collecting = true;
+				break;
+			default:
+				break;
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (collecting) {
+				value.append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+
+			switch (localName) {
+			case "v":
+			case "t":
+				collecting = false;
+				break;
+			case "c":
+				try {
+					finishCell();
+				} catch (NumberFormatException e) {
+					// A damaged <v> would otherwise escape as an unchecked exception
+					throw new SAXException(new DataParseException("Invalid cell value '" + value + "' in sheet "
+							+ sheetName + ", row " + (currentRow.getRowIndex() + 1) + ", column " + (columnIndex + 1),
+							e, columnIndex));
+				}
+				nextColumnIndex = columnIndex + 1;
+				break;
+			case "row":
+				try {
+					handler.handle(currentRow);
+				} catch (DataParseException e) {
+					throw new SAXException(e);
+				}
+				nextRowIndex = currentRow.getRowIndex() + 1;
+				currentRow = null;
+				break;
+			default:
+				break;
+			}
+		}
+
+		// Shared-string and boolean cells are decoded straight from the buffer; only numbers and
+		// inline text need the raw value as a String
+		private void finishCell() {
+
+			if (value.length() == 0) {
+				return; // styled but empty cell
+			}
+
+			if (cellType == null || "n".equals(cellType)) {
+				currentRow.setNumeric(columnIndex, Double.parseDouble(value.toString()), isDateStyle(styleIndex));
+				return;
+			}
+
+			switch (cellType) {
+			case "s":
+				currentRow.setString(columnIndex, sharedString(value));
+				break;
+			case "b":
+				currentRow.setBoolean(columnIndex, value.length() == 1 && value.charAt(0) == '1');
+				break;
+			case "e":
+				currentRow.setError(columnIndex, value.toString());
+				break;
+			default: // inlineStr, str (formula string result)
+				currentRow.setString(columnIndex, value.toString());
+				break;
+			}
+		}
+
+		private String sharedString(CharSequence indexText) {
+			int index = 0;
+			for (int i = 0; i < indexText.length(); i++) {
+				char c = indexText.charAt(i);
+				if (c < '0' || c > '9') {
+					throw new NumberFormatException("Invalid shared string index: " + indexText);
+				}
+				index = index * 10 + (c - '0');
+			}
+			if (index >= resolvedStrings.length) {
+				return sharedStrings.getItemAt(index).getString(); // table grew past its declared count
+			}
+			String resolved = resolvedStrings[index];
+			if (resolved == null) {
+				resolved = sharedStrings.getItemAt(index).getString();
+				resolvedStrings[index] = resolved;
+			}
+			return resolved;
+		}
+
+		private boolean isDateStyle(String styleRef) {
+			if (styleRef == null || styles == null) {
+				return false;
+			}
+			Boolean dateStyle = dateStyles.get(styleRef);
+			if (dateStyle == null) {
+				XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(styleRef));
+				dateStyle = style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+				dateStyles.put(styleRef, dateStyle);
+			}
+			return dateStyle;
+		}
+
+		private static int columnIndexOf(String cellRef) {
+			int column = 0;
+			for (int i = 0; i < cellRef.length(); i++) {
+				char c = cellRef.charAt(i);
+				if (c < 'A' || c > 'Z') {
+					break;
+				}
+				column = column * 26 + (c - 'A' + 1);
+			}
+			return column - 1;
+		}
+	}
+}
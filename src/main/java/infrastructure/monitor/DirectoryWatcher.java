@@ -0,0 +1,315 @@
+package infrastructure.monitor;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// One WatchService and one polling thread for every watched directory in the process. Consumers
+// register a root directory (optionally recursive) and a file-name glob, and receive the paths
+// that changed. Debounce timers share one scheduler and handlers run on a bounded worker pool.
+public class DirectoryWatcher implements AutoCloseable {
+
+	private static final int DEFAULT_WORKER_THREADS = 2;
+	private static final int WORKER_QUEUE_CAPACITY = 64;
+	private static volatile DirectoryWatcher shared;
+
+	private final Object lock = new Object();
+	private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+	private final Map<WatchKey, Path> directoriesByKey = new HashMap<>();
+	private final Map<Path, WatchKey> keysByDirectory = new HashMap<>();
+	private final Map<Path, Integer> directoryUsers = new HashMap<>();
+	private final ScheduledExecutorService scheduler;
+	private final ThreadPoolExecutor workers;
+	private WatchService watchService; // created with the first registration
+	private Thread pollThread;
+	private volatile boolean closed;
+
+	public DirectoryWatcher(int workerThreads) {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("directory-watcher-timer"));
+		// When every worker is busy and the queue is full the timer thread runs the batch itself,
+		// which holds back further dispatches instead of queueing without limit
+		this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY), daemonThreads("directory-watcher-worker"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	// Process-wide instance used by FileMonitor unless one is passed in
+	public static DirectoryWatcher getShared() {
+		if (shared == null) {
+			synchronized (DirectoryWatcher.class) {
+				if (shared == null) {
+					shared = new DirectoryWatcher(DEFAULT_WORKER_THREADS);
+				}
+			}
+		}
+		return shared;
+	}
+
+	// Starts delivering changes to files under root whose name matches fileGlob (e.g. "*.{xlsx,xlsm}").
+	// With recursive set, subdirectories, including ones created later, are watched too.
+	public Registration register(Path root, boolean recursive, String fileGlob, String entityType,
+			Consumer<Path> listener) throws IOException {
+
+		Path directory = root.toAbsolutePath().normalize();
+		if (!Files.isDirectory(directory)) {
+			throw new IOException("Not a directory: " + directory);
+		}
+		Registration registration = new Registration(this, directory, recursive,
+				FileSystems.getDefault().getPathMatcher("glob:" + fileGlob), entityType, listener);
+
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("Directory watcher is closed");
+			}
+			if (watchService == null) {
+				watchService = FileSystems.getDefault().newWatchService();
+				pollThread = daemonThreads("directory-watcher").newThread(this::poll);
+				pollThread.start();
+			}
+			watchTree(registration, directory);
+			registrations.add(registration);
+		}
+		return registration;
+	}
+
+	ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	ThreadPoolExecutor getWorkers() {
+		return workers;
+	}
+
+	@Override
+	public void close() {
+		synchronized (lock) {
+			closed = true;
+			registrations.clear();
+			if (watchService != null) {
+				try {
+					watchService.close();
+				} catch (IOException e) {
+					System.err.println("Error closing watch service: " + e.getMessage());
+				}
+			}
+		}
+		scheduler.shutdown();
+		workers.shutdown();
+	}
+
+	private void unregister(Registration registration) {
+		synchronized (lock) {
+			if (!registrations.remove(registration)) {
+				return;
+			}
+			// Cancel OS watches no other registration needs
+			for (Path directory : registration.directories) {
+				int users = directoryUsers.merge(directory, -1, Integer::sum);
+				if (users <= 0) {
+					directoryUsers.remove(directory);
+					WatchKey key = keysByDirectory.remove(directory);
+					if (key != null) {
+						key.cancel();
+						directoriesByKey.remove(key);
+					}
+				}
+			}
+			registration.directories.clear();
+		}
+	}
+
+	// Caller holds lock
+	private void watchTree(Registration registration, Path start) throws IOException {
+		if (!registration.recursive) {
+			watchDirectory(registration, start);
+			return;
+		}
+		try (Stream<Path> tree = Files.walk(start)) {
+			for (Path directory : (Iterable<Path>) tree.filter(Files::isDirectory)::iterator) {
+				watchDirectory(registration, directory);
+			}
+		}
+	}
+
+	// Caller holds lock
+	private void watchDirectory(Registration registration, Path directory) throws IOException {
+		if (registration.directories.contains(directory)) {
+			return;
+		}
+		if (!keysByDirectory.containsKey(directory)) {
+			WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			keysByDirectory.put(directory, key);
+			directoriesByKey.put(key, directory);
+		}
+		directoryUsers.merge(directory, 1, Integer::sum);
+		registration.directories.add(directory);
+	}
+
+	private void poll() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				WatchKey key = watchService.take();
+				Path directory;
+				synchronized (lock) {
+					directory = directoriesByKey.get(key);
+				}
+				if (directory != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						handleEvent(directory, event);
+					}
+				}
+				if (!key.reset()) {
+					forget(key);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("File monitoring interrupted");
+		} catch (ClosedWatchServiceException e) {
+			System.out.println("File monitoring stopped");
+		}
+	}
+
+	private void handleEvent(Path directory, WatchEvent<?> event) {
+		WatchEvent.Kind<?> kind = event.kind();
+
+		if (kind == StandardWatchEventKinds.OVERFLOW) {
+			// Events were dropped; report every file in the directory and let fingerprints sort it out
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					deliver(file);
+				}
+			} catch (IOException e) {
+				System.err.println("Error rescanning " + directory + ": " + e.getMessage());
+			}
+			return;
+		}
+
+		Path path = directory.resolve((Path) event.context());
+		if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+			watchNewDirectory(path);
+			return;
+		}
+		deliver(path);
+	}
+
+	// A directory created under a recursive root is watched from now on; files copied in with it
+	// may predate the registration, so they are delivered as well
+	private void watchNewDirectory(Path directory) {
+		List<Path> existingFiles = new ArrayList<>();
+		synchronized (lock) {
+			for (Registration registration : registrations) {
+				if (registration.recursive && directory.startsWith(registration.root)) {
+					try {
+						watchTree(registration, directory);
+					} catch (IOException e) {
+						System.err.println("Error watching new directory " + directory + ": " + e.getMessage());
+					}
+				}
+			}
+		}
+		try (Stream<Path> tree = Files.walk(directory)) {
+			tree.filter(Files::isRegularFile).forEach(existingFiles::add);
+		} catch (IOException e) {
+			System.err.println("Error scanning new directory " + directory + ": " + e.getMessage());
+		}
+		for (Path file : existingFiles) {
+			deliver(file);
+		}
+	}
+
+	private void deliver(Path file) {
+		for (Registration registration : registrations) {
+			if (registration.accepts(file)) {
+				registration.listener.accept(file);
+			}
+		}
+	}
+
+	private void forget(WatchKey key) {
+		synchronized (lock) {
+			Path directory = directoriesByKey.remove(key);
+			if (directory != null) {
+				keysByDirectory.remove(directory);
+				directoryUsers.remove(directory);
+				for (Registration registration : registrations) {
+					registration.directories.remove(directory);
+				}
+			}
+		}
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	public static final class Registration implements AutoCloseable {
+
+		private final DirectoryWatcher watcher;
+		private final Path root;
+		private final boolean recursive;
+		private final PathMatcher fileMatcher;
+		private final String entityType;
+		private final Consumer<Path> listener;
+		private final Set<Path> directories = new HashSet<>(); // guarded by watcher.lock
+
+		private Registration(DirectoryWatcher watcher, Path root, boolean recursive, PathMatcher fileMatcher,
+				String entityType, Consumer<Path> listener) {
+			this.watcher = watcher;
+			this.root = root;
+			this.recursive = recursive;
+			this.fileMatcher = fileMatcher;
+			this.entityType = entityType;
+			this.listener = listener;
+		}
+
+		public Path getRoot() {
+			return root;
+		}
+
+		public String getEntityType() {
+			return entityType;
+		}
+
+		private boolean accepts(Path file) {
+			Path parent = file.getParent();
+			boolean inScope = recursive ? file.startsWith(root) : root.equals(parent);
+			return inScope && fileMatcher.matches(file.getFileName());
+		}
+
+		@Override
+		public void close() {
+			watcher.unregister(this);
+		}
+	}
+}
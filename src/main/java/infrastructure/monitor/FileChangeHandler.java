@@ -0,0 +1,11 @@
+package infrastructure.monitor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// Receives every file that changed within one debounce window. Returning normally marks the
+// files as ingested; throwing leaves them to be picked up again on their next change.
+@FunctionalInterface
+public interface FileChangeHandler {
+	void onFilesChanged(List<Path> changedFiles) throws Exception;
+}
@@ -0,0 +1,56 @@
+package infrastructure.monitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// Size, modification time and SHA-256 of a file at the time it was last ingested
+final class FileFingerprint {
+
+	private final long size;
+	private final long lastModifiedMillis;
+	private final byte[] sha256;
+
+	private FileFingerprint(long size, long lastModifiedMillis, byte[] sha256) {
+		this.size = size;
+		this.lastModifiedMillis = lastModifiedMillis;
+		this.sha256 = sha256;
+	}
+
+	static FileFingerprint of(Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), hash(file));
+	}
+
+	// Cheap check first: identical size and mtime are taken as unchanged without reading the file.
+	// Otherwise the content hash decides, so a save that rewrites identical bytes is still skipped.
+	boolean matches(Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		if (attributes.size() != size) {
+			return false;
+		}
+		if (attributes.lastModifiedTime().toMillis() == lastModifiedMillis) {
+			return true;
+		}
+		return Arrays.equals(sha256, hash(file));
+	}
+
+	private static byte[] hash(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e); // required by every JRE
+		}
+	}
+}
@@ -2,67 +2,159 @@ package infrastructure.monitor;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+// One consumer of a DirectoryWatcher: debounces the changes it receives and hands batches of
+// files whose content changed since their last successful ingest to its handler
 public class FileMonitor {
 
-    private final WatchService watchService;
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    // A file that keeps changing still gets ingested at least this often
+    private static final int MAX_DEBOUNCE_WINDOWS = 10;
+    private static final String DEFAULT_FILE_GLOB = "*.{xlsx,xlsm}";
+
+    private final DirectoryWatcher watcher;
     private final Path directory;
-    private final ExecutorService executor;
-    private final Consumer<List<Path>> fileChangeHandler;
+    private final boolean recursive;
+    private final String fileGlob;
+    private final String entityType;
+    private final FileChangeHandler fileChangeHandler;
+    private final long debounceMillis;
+    private DirectoryWatcher.Registration registration;
+
+    private final Object pendingLock = new Object();
+    private final Object handlerLock = new Object(); // one batch at a time per monitor
+    private final Set<Path> pendingFiles = new LinkedHashSet<>();
+    private ScheduledFuture<?> pendingDispatch;
+    private long firstPendingAt;
+    private final Map<Path, FileFingerprint> ingested = new ConcurrentHashMap<>();
+
+    public FileMonitor(Path directory, String entityType, FileChangeHandler fileChangeHandler) {
+        this(DirectoryWatcher.getShared(), directory, false, DEFAULT_FILE_GLOB, entityType, fileChangeHandler,
+                DEFAULT_DEBOUNCE_MILLIS);
+    }
 
-    public FileMonitor(Path directory, Consumer<List<Path>> fileChangeHandler) throws IOException {
-        
+    public FileMonitor(DirectoryWatcher watcher, Path directory, boolean recursive, String fileGlob, String entityType,
+            FileChangeHandler fileChangeHandler, long debounceMillis) {
+
+    	this.watcher = watcher;
     	this.directory = directory;
-        this.watchService = FileSystems.getDefault().newWatchService();
-        this.executor = Executors.newSingleThreadExecutor();
+        this.recursive = recursive;
+        this.fileGlob = fileGlob;
+        this.entityType = entityType;
         this.fileChangeHandler = fileChangeHandler;
+        this.debounceMillis = debounceMillis;
+    }
 
-        // Register the directory for create and modify events
-        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    public synchronized void start() throws IOException {
+        if (registration == null) {
+            registration = watcher.register(directory, recursive, fileGlob, entityType, this::schedule);
+        }
     }
 
-    public void start() {
-        executor.submit(this::monitorDirectory);
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.close();
+            registration = null;
+        }
+        synchronized (pendingLock) {
+            if (pendingDispatch != null) {
+                pendingDispatch.cancel(false);
+                pendingDispatch = null;
+            }
+            pendingFiles.clear();
+        }
     }
 
-    public void stop() {
-        
-    	try {
-            watchService.close();
-        } catch (IOException e) {
-            System.err.println("Error closing watch service: " + e.getMessage());
+    public String getEntityType() {
+        return entityType;
+    }
+
+    // Records files ingested outside the monitor (e.g. at startup) so unchanged saves are skipped
+    public void markIngested(Collection<Path> files) {
+        for (Path file : files) {
+            try {
+                ingested.put(file.toAbsolutePath().normalize(), FileFingerprint.of(file));
+            } catch (IOException e) {
+                System.err.println("Could not fingerprint " + file + ": " + e.getMessage());
+            }
         }
-        executor.shutdown();
     }
 
-    private void monitorDirectory() {
-        
-    	try {
-            while (!Thread.currentThread().isInterrupted()) {
-                WatchKey key = watchService.take();
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    handleWatchEvent(event);
-                }
-                key.reset();
+    // Trailing-edge debounce: every event pushes the dispatch back by debounceMillis, up to
+    // MAX_DEBOUNCE_WINDOWS after the first pending event
+    private void schedule(Path filePath) {
+        synchronized (pendingLock) {
+            long now = System.currentTimeMillis();
+            if (pendingFiles.isEmpty()) {
+                firstPendingAt = now;
+            }
+            pendingFiles.add(filePath.toAbsolutePath().normalize());
+
+            if (pendingDispatch != null && now - firstPendingAt >= debounceMillis * MAX_DEBOUNCE_WINDOWS) {
+                return; // already due soon; don't postpone it again
+            }
+            if (pendingDispatch != null) {
+                pendingDispatch.cancel(false);
+            }
+            try {
+                // The shared timer only hands the batch to the worker pool
+                pendingDispatch = watcher.getScheduler().schedule(
+                        () -> watcher.getWorkers().execute(this::dispatch), debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the watcher was closed; drop the event
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("File monitoring interrupted");
-        } catch (ClosedWatchServiceException e) {
-            System.out.println("File monitoring stopped");
         }
     }
 
-    private void handleWatchEvent(WatchEvent<?> event) {
-        WatchEvent.Kind<?> kind = event.kind();
+    private void dispatch() {
+        synchronized (handlerLock) {
+            List<Path> files;
+            synchronized (pendingLock) {
+                files = new ArrayList<>(pendingFiles);
+                pendingFiles.clear();
+                pendingDispatch = null;
+            }
+
+            // Fingerprints are taken before the handler reads the files, so an edit made while it
+            // runs is seen as a change next time rather than recorded as already ingested
+            Map<Path, FileFingerprint> changed = new LinkedHashMap<>();
+            for (Path file : files) {
+                if (!Files.isRegularFile(file)) {
+                    continue; // deleted again, or a directory
+                }
+                try {
+                    FileFingerprint previous = ingested.get(file);
+                    if (previous == null || !previous.matches(file)) {
+                        changed.put(file, FileFingerprint.of(file));
+                    }
+                } catch (IOException e) {
+                    // Probably still being written; the writer's next event brings it back
+                    System.err.println("Could not read " + file + ", skipping: " + e.getMessage());
+                }
+            }
+            if (changed.isEmpty()) {
+                return;
+            }
 
-        if (kind == StandardWatchEventKinds.ENTRY_CREATE || kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-            Path filePath = directory.resolve((Path) event.context());
-            fileChangeHandler.accept(List.of(filePath));
+            List<Path> changedFiles = new ArrayList<>(changed.keySet());
+            try {
+                fileChangeHandler.onFilesChanged(changedFiles);
+                ingested.putAll(changed);
+            } catch (Exception e) {
+                System.err.println("Error processing changed " + entityType + " files " + changedFiles + ": "
+                        + e.getMessage());
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package infrastructure.persistence;
+
+import java.util.Locale;
+
+// Employee IDs are stored upper-case (the schema checks it), so every lookup can compare emp_id
+// with plain equality and use the indexes instead of wrapping the column in LOWER()/UPPER(). The
+// in-memory caches key employees the same way, so a lookup never misses on case or padding.
+public final class CanonicalKeys {
+
+	private CanonicalKeys() {
+	}
+
+	public static String employeeId(String employeeId) {
+		return employeeId == null ? null : employeeId.trim().toUpperCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,286 @@
+package infrastructure.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+public class ConnectionPool {
+
+	private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+	private final String url;
+	private final Properties connectionProperties;
+	private final ConnectionPoolConfig config;
+
+	// Most recently returned connections sit at the head, so borrowers get warm connections
+	// and the tail holds the ones that have been idle the longest
+	private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+	private final Semaphore leasePermits;
+	private final AtomicInteger totalConnections = new AtomicInteger();
+	private final AtomicInteger activeConnections = new AtomicInteger();
+	private final AtomicLong acquireCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final ScheduledExecutorService evictor;
+	private volatile boolean closed;
+
+	public ConnectionPool(String url, Properties connectionProperties, ConnectionPoolConfig config) {
+		this.url = url;
+		this.connectionProperties = connectionProperties;
+		this.config = config;
+		this.leasePermits = new Semaphore(config.getMaxSize(), true);
+		this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "connection-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.evictor.scheduleWithFixedDelay(this::evictIdleConnections, config.getEvictionIntervalMs(),
+				config.getEvictionIntervalMs(), TimeUnit.MILLISECONDS);
+	}
+
+	public Connection borrow() throws SQLException {
+
+		if (closed) {
+			throw new SQLException("Connection pool is closed");
+		}
+
+		long start = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = leasePermits.tryAcquire(config.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+
+		if (!acquired) {
+			timeoutCount.incrementAndGet();
+			throw new SQLTransientConnectionException("Timed out after " + config.getAcquireTimeoutMs()
+					+ " ms waiting for a database connection: " + getStats());
+		}
+
+		try {
+			PooledConnection pooled = takeValidIdleConnection();
+			if (pooled == null) {
+				pooled = openConnection();
+			}
+			activeConnections.incrementAndGet();
+			return pooled.lease();
+		} catch (SQLException | RuntimeException e) {
+			leasePermits.release();
+			throw e;
+		}
+	}
+
+	public PoolStats getStats() {
+		long acquired = acquireCount.get();
+		double averageWait = acquired == 0 ? 0 : totalWaitNanos.get() / (double) acquired / 1_000_000;
+		return new PoolStats(activeConnections.get(), idleConnections.size(), config.getMaxSize(), acquired,
+				timeoutCount.get(), averageWait, maxWaitNanos.get() / 1_000_000.0);
+	}
+
+	public void close() {
+		closed = true;
+		evictor.shutdownNow();
+		PooledConnection pooled;
+		while ((pooled = idleConnections.pollFirst()) != null) {
+			closePhysical(pooled);
+		}
+		LOGGER.info("Connection pool closed; " + activeConnections.get() + " leased connection(s) will close on return");
+	}
+
+	// Tops up the pool with idle connections until idle and leased ones together reach the minimum.
+	// Each new connection takes a lease permit while it is opened, so the filler never opens one when
+	// maxSize connections are already leased.
+	void fillToMinimum() throws SQLException {
+		while (!closed && totalConnections.get() < config.getMinSize() && leasePermits.tryAcquire()) {
+			try {
+				if (totalConnections.get() < config.getMinSize()) {
+					idleConnections.offerLast(openConnection());
+				}
+			} finally {
+				leasePermits.release();
+			}
+		}
+	}
+
+	// A connection that went back to the pool moments ago is handed out as is; one that has sat idle
+	// long enough for the server or a firewall to drop it is checked first. Connections that break
+	// while leased are caught by their SQLState and never reach the idle deque.
+	private PooledConnection takeValidIdleConnection() {
+		long validateAfterIdleNanos = TimeUnit.MILLISECONDS.toNanos(config.getValidateAfterIdleMs());
+		PooledConnection pooled;
+		while ((pooled = idleConnections.pollFirst()) != null) {
+			if (System.nanoTime() - pooled.lastReturnedNanos < validateAfterIdleNanos || isValid(pooled)) {
+				return pooled;
+			}
+			LOGGER.warning("Discarding pooled connection that failed validation");
+			closePhysical(pooled);
+		}
+		return null;
+	}
+
+	private boolean isValid(PooledConnection pooled) {
+		try {
+			return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	// Counted before connecting, so a concurrent fillToMinimum sees connections still being opened
+	private PooledConnection openConnection() throws SQLException {
+		totalConnections.incrementAndGet();
+		try {
+			return new PooledConnection(DriverManager.getConnection(url, connectionProperties));
+		} catch (SQLException | RuntimeException e) {
+			totalConnections.decrementAndGet();
+			throw e;
+		}
+	}
+
+	private void release(PooledConnection pooled) {
+
+		activeConnections.decrementAndGet();
+		try {
+			if (closed || pooled.broken || !resetState(pooled.physical)) {
+				closePhysical(pooled);
+			} else {
+				pooled.lastReturnedNanos = System.nanoTime();
+				idleConnections.offerFirst(pooled);
+			}
+		} finally {
+			leasePermits.release();
+		}
+	}
+
+	// Undo anything a borrower may have left behind so the next lease starts clean
+	private boolean resetState(Connection physical) {
+		try {
+			if (!physical.getAutoCommit()) {
+				physical.rollback();
+				physical.setAutoCommit(true);
+			}
+			physical.clearWarnings();
+			return true;
+		} catch (SQLException e) {
+			LOGGER.warning("Failed to reset pooled connection, discarding it: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private void evictIdleConnections() {
+
+		long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMs());
+		long now = System.nanoTime();
+		Iterator<PooledConnection> oldestFirst = idleConnections.descendingIterator();
+		while (oldestFirst.hasNext() && totalConnections.get() > config.getMinSize()) {
+			PooledConnection pooled = oldestFirst.next();
+			if (now - pooled.lastReturnedNanos > idleTimeoutNanos && idleConnections.remove(pooled)) {
+				closePhysical(pooled);
+			}
+		}
+
+		try {
+			fillToMinimum();
+		} catch (SQLException e) {
+			LOGGER.warning("Unable to replenish connection pool to minimum size: " + e.getMessage());
+		}
+	}
+
+	private void closePhysical(PooledConnection pooled) {
+		totalConnections.decrementAndGet();
+		try {
+			pooled.physical.close();
+		} catch (SQLException e) {
+			LOGGER.fine("Error closing pooled connection: " + e.getMessage());
+		}
+	}
+
+	private void recordWait(long waitNanos) {
+		acquireCount.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+	}
+
+	private final class PooledConnection {
+
+		private final Connection physical;
+		private volatile long lastReturnedNanos = System.nanoTime();
+		private volatile boolean broken;
+
+		private PooledConnection(Connection physical) {
+			this.physical = physical;
+		}
+
+		private Connection lease() {
+			return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new LeaseHandler(this));
+		}
+	}
+
+	// Hands out a view of the physical connection whose close() returns it to the pool
+	private final class LeaseHandler implements InvocationHandler {
+
+		private final PooledConnection pooled;
+		private boolean returned;
+
+		private LeaseHandler(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			switch (method.getName()) {
+			case "close":
+				if (!returned) {
+					returned = true;
+					release(pooled);
+				}
+				return null;
+			case "isClosed":
+				return returned || pooled.physical.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "PooledConnection[" + pooled.physical + (returned ? ", returned" : "") + "]";
+			default:
+				if (returned) {
+					throw new SQLException("Connection has already been returned to the pool");
+				}
+			}
+
+			try {
+				return method.invoke(pooled.physical, args);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				// SQLState class 08 signals a broken connection; never hand it out again
+				if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null
+						&& ((SQLException) cause).getSQLState().startsWith("08")) {
+					pooled.broken = true;
+				}
+				throw cause;
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package infrastructure.persistence;
+
+import java.util.Properties;
+
+public class ConnectionPoolConfig {
+
+	private static final int DEFAULT_MIN_SIZE = 2;
+	private static final int DEFAULT_MAX_SIZE = 10;
+	private static final long DEFAULT_IDLE_TIMEOUT_MS = 300_000;
+	private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 5_000;
+	private static final long DEFAULT_EVICTION_INTERVAL_MS = 30_000;
+	private static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 2;
+	private static final long DEFAULT_VALIDATE_AFTER_IDLE_MS = 30_000;
+
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMs;
+	private final long acquireTimeoutMs;
+	private final long evictionIntervalMs;
+	private final int validationTimeoutSeconds;
+	private final long validateAfterIdleMs;
+
+	public ConnectionPoolConfig(int minSize, int maxSize, long idleTimeoutMs, long acquireTimeoutMs,
+			long evictionIntervalMs, int validationTimeoutSeconds, long validateAfterIdleMs) {
+
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException(
+					"Invalid pool size: min=" + minSize + ", max=" + maxSize + " (require 0 <= min <= max, max >= 1)");
+		}
+		if (idleTimeoutMs <= 0 || acquireTimeoutMs <= 0 || evictionIntervalMs <= 0 || validationTimeoutSeconds <= 0) {
+			throw new IllegalArgumentException("Pool timeouts and intervals must be positive");
+		}
+		if (validateAfterIdleMs < 0) {
+			throw new IllegalArgumentException("validateAfterIdleMs must not be negative, got " + validateAfterIdleMs);
+		}
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutMs = idleTimeoutMs;
+		this.acquireTimeoutMs = acquireTimeoutMs;
+		this.evictionIntervalMs = evictionIntervalMs;
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+		this.validateAfterIdleMs = validateAfterIdleMs;
+	}
+
+	public static ConnectionPoolConfig defaults() {
+		return new ConnectionPoolConfig(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MS,
+				DEFAULT_ACQUIRE_TIMEOUT_MS, DEFAULT_EVICTION_INTERVAL_MS, DEFAULT_VALIDATION_TIMEOUT_SECONDS,
+				DEFAULT_VALIDATE_AFTER_IDLE_MS);
+	}
+
+	// Reads the optional db.pool.* keys from config.properties, falling back to defaults
+	public static ConnectionPoolConfig fromProperties(Properties props) {
+		return new ConnectionPoolConfig(
+				Integer.parseInt(props.getProperty("db.pool.minSize", String.valueOf(DEFAULT_MIN_SIZE)).trim()),
+				Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(DEFAULT_MAX_SIZE)).trim()),
+				Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", String.valueOf(DEFAULT_IDLE_TIMEOUT_MS)).trim()),
+				Long.parseLong(props.getProperty("db.pool.acquireTimeoutMs", String.valueOf(DEFAULT_ACQUIRE_TIMEOUT_MS)).trim()),
+				Long.parseLong(props.getProperty("db.pool.evictionIntervalMs", String.valueOf(DEFAULT_EVICTION_INTERVAL_MS)).trim()),
+				Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds",
+						String.valueOf(DEFAULT_VALIDATION_TIMEOUT_SECONDS)).trim()),
+				Long.parseLong(props.getProperty("db.pool.validateAfterIdleMs",
+						String.valueOf(DEFAULT_VALIDATE_AFTER_IDLE_MS)).trim()));
+	}
+
+	public int getMinSize() { return minSize; }
+	public int getMaxSize() { return maxSize; }
+	public long getIdleTimeoutMs() { return idleTimeoutMs; }
+	public long getAcquireTimeoutMs() { return acquireTimeoutMs; }
+	public long getEvictionIntervalMs() { return evictionIntervalMs; }
+	public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+	// Connections idle for less than this are handed out without an isValid() round trip
+	public long getValidateAfterIdleMs() { return validateAfterIdleMs; }
+}
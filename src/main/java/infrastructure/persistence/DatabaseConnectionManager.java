@@ -3,7 +3,6 @@ package infrastructure.persistence;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.util.logging.Logger;
@@ -13,15 +12,24 @@ public class DatabaseConnectionManager {
 	private static final Logger LOGGER = Logger.getLogger(DatabaseConnectionManager.class.getName());
     private static volatile DatabaseConnectionManager instance;
 
-    private final String url;
-    private final String username;
-    private final String password;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final ConnectionPool connectionPool;
+    private final int batchSize;
 
     // Private constructor to enforce singleton
-    private DatabaseConnectionManager(String url, String username, String password) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    private DatabaseConnectionManager(String url, String username, String password, ConnectionPoolConfig poolConfig,
+            int batchSize, boolean reWriteBatchedInserts) {
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("user", username);
+        connectionProperties.setProperty("password", password);
+        // Lets the PostgreSQL driver collapse batched INSERTs into multi-row statements
+        connectionProperties.setProperty("reWriteBatchedInserts", String.valueOf(reWriteBatchedInserts));
+        if (batchSize < 1) {
+            throw new RuntimeException("db.batch.size must be at least 1, got " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.connectionPool = new ConnectionPool(url, connectionProperties, poolConfig);
         testConnection(); // Verify connection parameters on startup
     }
 
@@ -52,7 +60,10 @@ public class DatabaseConnectionManager {
             return new DatabaseConnectionManager(
                 getRequiredProperty(props, "db.url"),
                 getRequiredProperty(props, "db.user"),
-                getRequiredProperty(props, "db.password")
+                getRequiredProperty(props, "db.password"),
+                ConnectionPoolConfig.fromProperties(props),
+                Integer.parseInt(props.getProperty("db.batch.size", String.valueOf(DEFAULT_BATCH_SIZE)).trim()),
+                Boolean.parseBoolean(props.getProperty("db.reWriteBatchedInserts", "true").trim())
             );
             
         } catch (IOException e) {
@@ -77,12 +88,27 @@ public class DatabaseConnectionManager {
             }
             
             LOGGER.info("Successfully connected to database");
+            connectionPool.fillToMinimum();
         } catch (SQLException e) {
             throw new RuntimeException("Failed to establish initial database connection", e);
         }
     }
 
+    // Borrows a pooled connection; close() hands it back to the pool
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        return connectionPool.borrow();
+    }
+
+    // Number of rows sent per executeBatch round trip (and committed together) by saveAll
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public PoolStats getPoolStats() {
+        return connectionPool.getStats();
+    }
+
+    public void shutdown() {
+        connectionPool.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package infrastructure.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Keeps the yearly partitions of leave_requests and leave_balances ahead of the calendar: this
+// year's and next year's exist from startup, and a daily check adds the following year's as
+// the year turns. Rows for years without a partition land in the default partitions and are
+// moved into their own partition by the next check.
+public class PartitionMaintainer implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(PartitionMaintainer.class.getName());
+	private static final String ENSURE_SQL = "SELECT ensure_leave_partitions(?, ?)";
+	private static final long CHECK_INTERVAL_HOURS = 24;
+
+	private final DatabaseConnectionManager connectionManager;
+	private final int yearsAhead;
+	private final ScheduledExecutorService scheduler;
+
+	public PartitionMaintainer(DatabaseConnectionManager connectionManager, int yearsAhead) {
+		if (yearsAhead < 0) {
+			throw new IllegalArgumentException("yearsAhead must not be negative, got " + yearsAhead);
+		}
+		this.connectionManager = connectionManager;
+		this.yearsAhead = yearsAhead;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "partition-maintainer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Creates the missing partitions now, then schedules the daily check
+	public void start() throws SQLException {
+		ensurePartitions();
+		scheduler.scheduleWithFixedDelay(this::ensureQuietly, CHECK_INTERVAL_HOURS, CHECK_INTERVAL_HOURS,
+				TimeUnit.HOURS);
+	}
+
+	// Returns the number of partitions created
+	public int ensurePartitions() throws SQLException {
+		int year = LocalDate.now().getYear();
+		try (Connection conn = connectionManager.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(ENSURE_SQL)) {
+
+			stmt.setInt(1, year);
+			stmt.setInt(2, year + yearsAhead);
+			try (ResultSet rs = stmt.executeQuery()) {
+				int created = rs.next() ? rs.getInt(1) : 0;
+				if (created > 0) {
+					LOGGER.info("Created " + created + " leave partitions");
+				}
+				return created;
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+	private void ensureQuietly() {
+		try {
+			ensurePartitions();
+		} catch (SQLException e) {
+			LOGGER.severe("Error creating leave partitions: " + e.getMessage());
+		} catch (RuntimeException e) {
+			// Never let an exception cancel the scheduled check
+			LOGGER.severe("Unexpected error creating leave partitions: " + e.getMessage());
+		}
+	}
+}
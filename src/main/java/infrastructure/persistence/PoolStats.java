@@ -0,0 +1,38 @@
+package infrastructure.persistence;
+
+public class PoolStats {
+
+	private final int active;
+	private final int idle;
+	private final int maxSize;
+	private final long acquireCount;
+	private final long timeoutCount;
+	private final double averageWaitMillis;
+	private final double maxWaitMillis;
+
+	public PoolStats(int active, int idle, int maxSize, long acquireCount, long timeoutCount,
+			double averageWaitMillis, double maxWaitMillis) {
+		this.active = active;
+		this.idle = idle;
+		this.maxSize = maxSize;
+		this.acquireCount = acquireCount;
+		this.timeoutCount = timeoutCount;
+		this.averageWaitMillis = averageWaitMillis;
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	public int getActive() { return active; }
+	public int getIdle() { return idle; }
+	public int getTotal() { return active + idle; }
+	public int getMaxSize() { return maxSize; }
+	public long getAcquireCount() { return acquireCount; }
+	public long getTimeoutCount() { return timeoutCount; }
+	public double getAverageWaitMillis() { return averageWaitMillis; }
+	public double getMaxWaitMillis() { return maxWaitMillis; }
+
+	@Override
+	public String toString() {
+		return String.format("PoolStats{active=%d, idle=%d, max=%d, acquired=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms}",
+				active, idle, maxSize, acquireCount, timeoutCount, averageWaitMillis, maxWaitMillis);
+	}
+}
@@ -0,0 +1,270 @@
+package infrastructure.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Applies the numbered scripts listed in db/migration/migrations.index that are not yet recorded in
+// schema_version. Every pending script runs in one transaction together with its schema_version
+// rows, so a failed startup leaves the schema as it was. Applied scripts are checksummed and a
+// script edited after it was applied stops the startup instead of being silently skipped.
+public class SchemaMigrator {
+
+	private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+	private static final String MIGRATION_DIRECTORY = "/db/migration/";
+	private static final String INDEX_FILE = MIGRATION_DIRECTORY + "migrations.index";
+	private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+	private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version ("
+			+ "version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, script VARCHAR(200) NOT NULL, "
+			+ "checksum CHAR(64) NOT NULL, applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+			+ "execution_ms BIGINT NOT NULL)";
+	// Held until commit, so a second instance starting at the same time waits and then sees our rows
+	private static final String LOCK_VERSION_TABLE = "LOCK TABLE schema_version IN EXCLUSIVE MODE";
+	private static final String INSERT_VERSION = "INSERT INTO schema_version "
+			+ "(version, description, script, checksum, execution_ms) VALUES (?, ?, ?, ?, ?)";
+
+	private final DatabaseConnectionManager connectionManager;
+
+	public SchemaMigrator(DatabaseConnectionManager connectionManager) {
+		this.connectionManager = connectionManager;
+	}
+
+	// Returns the number of scripts applied; 0 when the schema was already current
+	public int migrate() throws SQLException, IOException {
+
+		List<Migration> migrations = loadMigrations();
+		try (Connection conn = connectionManager.getConnection()) {
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try (Statement stmt = conn.createStatement()) {
+				stmt.execute(CREATE_VERSION_TABLE);
+				stmt.execute(LOCK_VERSION_TABLE);
+				Map<Integer, String> applied = appliedChecksums(stmt);
+
+				List<Migration> pending = new ArrayList<>();
+				for (Migration migration : migrations) {
+					String checksum = applied.remove(migration.version);
+					if (checksum == null) {
+						pending.add(migration);
+					} else if (!checksum.equals(migration.checksum)) {
+						throw new IllegalStateException("Migration " + migration.script
+								+ " was changed after it was applied (checksum " + checksum + ", now "
+								+ migration.checksum + "); add a new migration instead");
+					}
+				}
+				for (int version : applied.keySet()) {
+					LOGGER.warning("schema_version records migration V" + version + ", which is no longer listed in "
+							+ INDEX_FILE);
+				}
+
+				for (Migration migration : pending) {
+					long started = System.nanoTime();
+					for (String sql : splitStatements(migration.sql)) {
+						try {
+							stmt.execute(sql);
+							logWarnings(stmt, migration);
+						} catch (SQLException e) {
+							LOGGER.warning("Failed to execute statement from " + migration.script + ": " + sql);
+							throw e;
+						}
+					}
+					record(conn, migration, (System.nanoTime() - started) / 1_000_000);
+					LOGGER.info("Applied migration " + migration.script);
+				}
+				conn.commit();
+
+				if (pending.isEmpty()) {
+					LOGGER.info("Database schema is up to date at version " + currentVersion(migrations));
+				}
+				return pending.size();
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	// RAISE WARNING from a script; plain notices, such as IF NOT EXISTS skipping an object, are not logged
+	private static void logWarnings(Statement stmt, Migration migration) throws SQLException {
+		for (SQLWarning warning = stmt.getWarnings(); warning != null; warning = warning.getNextWarning()) {
+			if (!"00000".equals(warning.getSQLState())) {
+				LOGGER.warning(migration.script + ": " + warning.getMessage());
+			}
+		}
+		stmt.clearWarnings();
+	}
+
+	private static Map<Integer, String> appliedChecksums(Statement stmt) throws SQLException {
+		Map<Integer, String> applied = new HashMap<>();
+		try (ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+			while (rs.next()) {
+				applied.put(rs.getInt("version"), rs.getString("checksum"));
+			}
+		}
+		return applied;
+	}
+
+	private static void record(Connection conn, Migration migration, long executionMillis) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(INSERT_VERSION)) {
+			stmt.setInt(1, migration.version);
+			stmt.setString(2, migration.description);
+			stmt.setString(3, migration.script);
+			stmt.setString(4, migration.checksum);
+			stmt.setLong(5, executionMillis);
+			stmt.executeUpdate();
+		}
+	}
+
+	private static int currentVersion(List<Migration> migrations) {
+		return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+	}
+
+	private static List<Migration> loadMigrations() throws IOException {
+
+		List<Migration> migrations = new ArrayList<>();
+		try (InputStream index = SchemaMigrator.class.getResourceAsStream(INDEX_FILE)) {
+			if (index == null) {
+				throw new IOException("Migration index not found: " + INDEX_FILE);
+			}
+			BufferedReader reader = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String script = line.trim();
+				if (script.isEmpty() || script.startsWith("#")) {
+					continue;
+				}
+				Matcher name = SCRIPT_NAME.matcher(script);
+				if (!name.matches()) {
+					throw new IOException("Migration " + script + " is not named V<version>__<description>.sql");
+				}
+				int version = Integer.parseInt(name.group(1));
+				// Versions must increase in index order, so a merge that reorders scripts is caught
+				if (!migrations.isEmpty() && version <= currentVersion(migrations)) {
+					throw new IOException("Migration " + script + " is listed after version " + currentVersion(migrations));
+				}
+				String sql = loadScript(script);
+				migrations.add(new Migration(version, name.group(2).replace('_', ' '), script, sql, sha256(sql)));
+			}
+		}
+		return migrations;
+	}
+
+	private static String loadScript(String script) throws IOException {
+		try (InputStream inputStream = SchemaMigrator.class.getResourceAsStream(MIGRATION_DIRECTORY + script)) {
+			if (inputStream == null) {
+				throw new IOException("Migration script not found: " + MIGRATION_DIRECTORY + script);
+			}
+			// Line endings are normalised so a checkout on another OS does not change the checksum
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+		}
+	}
+
+	// Splits a script on top-level semicolons, skipping those inside quotes, dollar-quoted bodies
+	// (function and trigger definitions) and comments
+	static List<String> splitStatements(String script) {
+
+		List<String> statements = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		int i = 0;
+		while (i < script.length()) {
+			char c = script.charAt(i);
+			int end;
+			if (c == '-' && script.startsWith("--", i)) {
+				end = script.indexOf('\n', i);
+				end = end < 0 ? script.length() : end;
+				i = end; // comments are dropped
+				continue;
+			} else if (c == '\'') {
+				end = script.indexOf('\'', i + 1);
+				while (end >= 0 && end + 1 < script.length() && script.charAt(end + 1) == '\'') {
+					end = script.indexOf('\'', end + 2); // '' is an escaped quote
+				}
+				end = end < 0 ? script.length() : end + 1;
+			} else if (c == '$' && dollarTag(script, i) != null) {
+				String tag = dollarTag(script, i);
+				end = script.indexOf(tag, i + tag.length());
+				end = end < 0 ? script.length() : end + tag.length();
+			} else if (c == ';') {
+				addStatement(statements, current);
+				i++;
+				continue;
+			} else {
+				end = i + 1;
+			}
+			current.append(script, i, end);
+			i = end;
+		}
+		addStatement(statements, current);
+		return statements;
+	}
+
+	// $$ or $tag$ starting at i, or null
+	private static String dollarTag(String script, int i) {
+		int j = i + 1;
+		while (j < script.length() && (Character.isLetterOrDigit(script.charAt(j)) || script.charAt(j) == '_')) {
+			j++;
+		}
+		if (j < script.length() && script.charAt(j) == '$' && (j == i + 1 || !Character.isDigit(script.charAt(i + 1)))) {
+			return script.substring(i, j + 1);
+		}
+		return null;
+	}
+
+	private static void addStatement(List<String> statements, StringBuilder current) {
+		String sql = current.toString().trim();
+		if (!sql.isEmpty()) {
+			statements.add(sql);
+		}
+		current.setLength(0);
+	}
+
+	private static String sha256(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(64);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static final class Migration {
+
+		private final int version;
+		private final String description;
+		private final String script;
+		private final String sql;
+		private final String checksum;
+
+		private Migration(int version, String description, String script, String sql, String checksum) {
+			this.version = version;
+			this.description = description;
+			this.script = script;
+			this.sql = sql;
+			this.checksum = checksum;
+		}
+	}
+}
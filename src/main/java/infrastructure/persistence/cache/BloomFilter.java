@@ -0,0 +1,83 @@
+package infrastructure.persistence.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Thread-safe bloom filter over strings. A negative answer is definitive; a positive answer may be
+// a false positive with roughly the configured probability once expectedInsertions is reached.
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final int bitCount;
+	private final int hashCount;
+
+	public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+
+		if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("expectedInsertions must be positive and 0 < falsePositiveRate < 1");
+		}
+		long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		this.bitCount = (int) Math.min(Math.max(optimalBits, 64), Integer.MAX_VALUE - 63);
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+		this.bits = new AtomicLongArray((bitCount + 63) / 64);
+	}
+
+	public void put(String value) {
+		long hash = hash64(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			setBit(index(h1 + i * h2));
+		}
+	}
+
+	public boolean mightContain(String value) {
+		long hash = hash64(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			int bit = index(h1 + i * h2);
+			if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void clear() {
+		for (int i = 0; i < bits.length(); i++) {
+			bits.set(i, 0L);
+		}
+	}
+
+	private int index(int combinedHash) {
+		return (combinedHash & Integer.MAX_VALUE) % bitCount;
+	}
+
+	private void setBit(int bit) {
+		int word = bit >>> 6;
+		long mask = 1L << bit;
+		long current;
+		do {
+			current = bits.get(word);
+			if ((current & mask) != 0) {
+				return;
+			}
+		} while (!bits.compareAndSet(word, current, current | mask));
+	}
+
+	// 64-bit FNV-1a followed by a murmur finalizer to spread the bits for double hashing
+	private static long hash64(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
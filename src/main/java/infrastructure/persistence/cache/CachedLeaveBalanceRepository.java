@@ -0,0 +1,500 @@
+package infrastructure.persistence.cache;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import common.exception.DataPersistenceException;
+import domain.model.LeaveBalance;
+import domain.repository.IBulkRepository;
+import domain.repository.IDeltaRepository;
+import domain.repository.ILeaveBalanceRepository;
+import domain.repository.Rejection;
+import infrastructure.persistence.CanonicalKeys;
+
+// Write-behind cache in front of a leave balance repository. Balances are loaded per employee on
+// first access and served from memory afterwards; save and updateBalance only touch memory and mark
+// the (employee, leave type, year) entry dirty. Dirty entries are written in one batch every
+// flushIntervalMillis, so repeated updates to the same balance between flushes cost one row write.
+// At most maxCachedEmployees clean employees are kept; the least recently used are dropped first.
+//
+// Approval deductions follow the durability mode. SYNC_ON_APPROVE leaves them to the approval's
+// own transaction, after the employee's pending changes are flushed synchronously, so an approval
+// is never acknowledged before its deduction is stored. DEFERRED takes them through deductAll:
+// they are applied in memory and each balance's deductions are written as one decrement at the
+// next flush, so an approval burst costs one row write per balance. DEFERRED can lose the last
+// interval's deductions if the process dies, and only checks balances against its own memory, so
+// it is meant for a single application instance.
+public class CachedLeaveBalanceRepository implements ILeaveBalanceRepository, IBulkRepository<LeaveBalance>,
+		IDeltaRepository<LeaveBalance>, AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(CachedLeaveBalanceRepository.class.getName());
+	private static final int DEFAULT_MAX_CACHED_EMPLOYEES = 10_000;
+
+	public enum Durability { SYNC_ON_APPROVE, DEFERRED }
+
+	private final ILeaveBalanceRepository delegate;
+	private final IBulkRepository<LeaveBalance> bulkDelegate;
+	private final IDeltaRepository<LeaveBalance> deltaDelegate;
+	private final Durability durability;
+	private final int maxCachedEmployees;
+	private final ScheduledExecutorService flusher;
+
+	private final Object lock = new Object();
+	private final Object flushLock = new Object(); // keeps flushes in order so an older value never lands last
+	// EMP_ID -> slot -> balance, access ordered
+	private final Map<String, Map<String, LeaveBalance>> byEmployee = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Set<String>> dirty = new LinkedHashMap<>(); // EMP_ID -> dirty slots
+	// EMP_ID -> slot -> days deducted since the last flush, for slots that are not dirty
+	private final Map<String, Map<String, Float>> deducted = new LinkedHashMap<>();
+	private long invalidations; // bumped whenever cached employees are dropped because the database changed
+
+	public <R extends ILeaveBalanceRepository & IBulkRepository<LeaveBalance> & IDeltaRepository<LeaveBalance>> CachedLeaveBalanceRepository(
+			R delegate, long flushIntervalMillis, Durability durability) {
+		this(delegate, flushIntervalMillis, durability, DEFAULT_MAX_CACHED_EMPLOYEES);
+	}
+
+	public <R extends ILeaveBalanceRepository & IBulkRepository<LeaveBalance> & IDeltaRepository<LeaveBalance>> CachedLeaveBalanceRepository(
+			R delegate, long flushIntervalMillis, Durability durability, int maxCachedEmployees) {
+
+		if (flushIntervalMillis < 1 || maxCachedEmployees < 1) {
+			throw new IllegalArgumentException("flushIntervalMillis and maxCachedEmployees must be positive");
+		}
+		this.delegate = delegate;
+		this.bulkDelegate = delegate;
+		this.deltaDelegate = delegate;
+		this.durability = durability;
+		this.maxCachedEmployees = maxCachedEmployees;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "leave-balance-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	@Override
+	public boolean defersDeductions() {
+		return durability == Durability.DEFERRED;
+	}
+
+	@Override
+	public Optional<LeaveBalance> findByEmployeeIdAndLeaveType(String employeeId, String leaveType) {
+
+		String type = leaveType.toLowerCase();
+		int currentYear = LocalDateTime.now().getYear();
+		return withBalancesOf(employeeId, balances -> {
+			LeaveBalance match = null;
+			for (LeaveBalance balance : balances.values()) {
+				if (!balance.getLeaveType().toLowerCase().equals(type)) {
+					continue;
+				}
+				// Prefer this year's balance, otherwise the most recent one
+				if (match == null || balance.getYear() == currentYear
+						|| (match.getYear() != currentYear && balance.getYear() > match.getYear())) {
+					match = balance;
+				}
+			}
+			return Optional.ofNullable(match).map(CachedLeaveBalanceRepository::copyOf);
+		});
+	}
+
+	@Override
+	public List<LeaveBalance> findByEmployeeId(String employeeId) {
+		return withBalancesOf(employeeId, balances -> {
+			List<LeaveBalance> copies = new ArrayList<>();
+			for (LeaveBalance balance : balances.values()) {
+				copies.add(copyOf(balance));
+			}
+			return copies;
+		});
+	}
+
+	@Override
+	public List<LeaveBalance> findByEmployeeIds(Collection<String> employeeIds) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (String employeeId : employeeIds) {
+			keys.add(CanonicalKeys.employeeId(employeeId));
+		}
+		return withBalances(keys, cached -> {
+			List<LeaveBalance> balances = new ArrayList<>();
+			for (Map<String, LeaveBalance> employeeBalances : cached.values()) {
+				for (LeaveBalance balance : employeeBalances.values()) {
+					balances.add(copyOf(balance));
+				}
+			}
+			return balances;
+		});
+	}
+
+	@Override
+	public void save(LeaveBalance leaveBalance) {
+		String employeeId = CanonicalKeys.employeeId(leaveBalance.getEmpId());
+		String slot = slotOf(leaveBalance.getLeaveType(), leaveBalance.getYear());
+		withBalancesOf(employeeId, balances -> {
+			balances.put(slot, copyOf(leaveBalance));
+			markDirty(employeeId, slot);
+			return null;
+		});
+	}
+
+	// DEFERRED: lowers the cached balances and adds the days to the deductions the next flush
+	// writes. SYNC_ON_APPROVE: writes the employees' pending changes and the deductions now.
+	@Override
+	public void deductAll(List<LeaveBalance> deductions) throws DataPersistenceException {
+
+		if (durability == Durability.SYNC_ON_APPROVE) {
+			synchronized (flushLock) {
+				for (LeaveBalance deduction : deductions) {
+					flushPending(CanonicalKeys.employeeId(deduction.getEmpId()));
+				}
+				delegate.deductAll(deductions);
+				invalidate(deductions);
+			}
+			return;
+		}
+
+		Map<String, List<LeaveBalance>> byEmployeeId = new LinkedHashMap<>();
+		for (LeaveBalance deduction : deductions) {
+			byEmployeeId.computeIfAbsent(CanonicalKeys.employeeId(deduction.getEmpId()), k -> new ArrayList<>())
+					.add(deduction);
+		}
+		withBalances(byEmployeeId.keySet(), cached -> {
+			for (Map.Entry<String, List<LeaveBalance>> entry : byEmployeeId.entrySet()) {
+				String employeeId = entry.getKey();
+				Map<String, LeaveBalance> balances = cached.get(employeeId);
+				for (LeaveBalance deduction : entry.getValue()) {
+					String slot = slotOf(deduction.getLeaveType(), deduction.getYear());
+					LeaveBalance current = balances.get(slot);
+					if (current == null) {
+						continue; // no stored balance either, so the database update would not match a row
+					}
+					balances.put(slot, new LeaveBalance(current.getBalanceId(), current.getEmpId(),
+							current.getLeaveType(), current.getBalanceDays() - deduction.getBalanceDays(),
+							current.getYear(), LocalDateTime.now()));
+					addDeduction(employeeId, slot, deduction.getBalanceDays());
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public void updateBalance(String employeeId, String leaveType, float newBalance) {
+		String type = leaveType.toLowerCase();
+		withBalancesOf(employeeId, balances -> {
+			// Same scope as the JDBC update: every year of this leave type
+			for (Map.Entry<String, LeaveBalance> entry : balances.entrySet()) {
+				LeaveBalance current = entry.getValue();
+				if (current.getLeaveType().toLowerCase().equals(type)) {
+					entry.setValue(new LeaveBalance(current.getBalanceId(), current.getEmpId(), current.getLeaveType(),
+							newBalance, current.getYear(), LocalDateTime.now()));
+					markDirty(CanonicalKeys.employeeId(employeeId), entry.getKey());
+				}
+			}
+			return null;
+		});
+	}
+
+	// Writes every dirty balance and pending deduction now
+	public void flushAll() throws DataPersistenceException {
+		flushPending(null);
+	}
+
+	// Writes the employee's pending changes and drops them from the cache. Used around writes
+	// made directly against the database, such as the conditional decrement on approval.
+	@Override
+	public void evict(String employeeId) throws DataPersistenceException {
+		String key = CanonicalKeys.employeeId(employeeId);
+		synchronized (flushLock) {
+			flushPending(key);
+			synchronized (lock) {
+				byEmployee.remove(key);
+				invalidations++;
+			}
+		}
+	}
+
+	// Flushes one employee's pending balances and deductions, or everyone's when employeeId is null
+	private void flushPending(String employeeId) throws DataPersistenceException {
+		synchronized (flushLock) {
+			Map<String, Set<String>> pending = new LinkedHashMap<>();
+			Map<String, Map<String, Float>> pendingDeductions = new LinkedHashMap<>();
+			List<LeaveBalance> balances = new ArrayList<>();
+			List<LeaveBalance> deductions = new ArrayList<>();
+			synchronized (lock) {
+				if (employeeId == null) {
+					pending.putAll(dirty);
+					dirty.clear();
+					pendingDeductions.putAll(deducted);
+					deducted.clear();
+				} else {
+					if (dirty.containsKey(employeeId)) {
+						pending.put(employeeId, dirty.remove(employeeId));
+					}
+					if (deducted.containsKey(employeeId)) {
+						pendingDeductions.put(employeeId, deducted.remove(employeeId));
+					}
+				}
+				for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+					Map<String, LeaveBalance> balancesBySlot = byEmployee.get(entry.getKey());
+					for (String slot : entry.getValue()) {
+						balances.add(copyOf(balancesBySlot.get(slot)));
+					}
+				}
+				for (Map.Entry<String, Map<String, Float>> entry : pendingDeductions.entrySet()) {
+					Map<String, LeaveBalance> balancesBySlot = byEmployee.get(entry.getKey());
+					for (Map.Entry<String, Float> slot : entry.getValue().entrySet()) {
+						LeaveBalance balance = balancesBySlot.get(slot.getKey());
+						deductions.add(new LeaveBalance(balance.getBalanceId(), balance.getEmpId(),
+								balance.getLeaveType(), slot.getValue(), balance.getYear(), null));
+					}
+				}
+			}
+
+			if (!balances.isEmpty()) {
+				try {
+					bulkDelegate.saveAll(balances);
+				} catch (DataPersistenceException e) {
+					// Put everything back so the next flush retries the entries with their latest values
+					synchronized (lock) {
+						for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+							for (String slot : entry.getValue()) {
+								markDirty(entry.getKey(), slot);
+							}
+						}
+						restoreDeductions(pendingDeductions);
+					}
+					throw e;
+				}
+			}
+			if (!deductions.isEmpty()) {
+				try {
+					delegate.deductAll(deductions);
+				} catch (DataPersistenceException e) {
+					synchronized (lock) {
+						restoreDeductions(pendingDeductions);
+					}
+					throw e;
+				}
+			}
+			if (!balances.isEmpty() || !deductions.isEmpty()) {
+				LOGGER.fine("Flushed " + balances.size() + " leave balances and " + deductions.size() + " deductions");
+			}
+		}
+	}
+
+	// Caller holds lock. Deductions made since the failed flush are added to the restored ones.
+	private void restoreDeductions(Map<String, Map<String, Float>> pendingDeductions) {
+		for (Map.Entry<String, Map<String, Float>> entry : pendingDeductions.entrySet()) {
+			for (Map.Entry<String, Float> slot : entry.getValue().entrySet()) {
+				addDeduction(entry.getKey(), slot.getKey(), slot.getValue());
+			}
+		}
+	}
+
+	@Override
+	public void saveAll(List<LeaveBalance> entities) throws DataPersistenceException {
+		synchronized (flushLock) {
+			flushAll();
+			bulkDelegate.saveAll(entities);
+			invalidate(entities);
+		}
+	}
+
+	@Override
+	public List<Rejection<LeaveBalance>> bulkLoad(List<LeaveBalance> entities) throws DataPersistenceException {
+		synchronized (flushLock) {
+			flushAll();
+			List<Rejection<LeaveBalance>> rejected = bulkDelegate.bulkLoad(entities);
+			invalidate(entities);
+			return rejected;
+		}
+	}
+
+	@Override
+	public String naturalKey(LeaveBalance balance) {
+		return deltaDelegate.naturalKey(balance);
+	}
+
+	@Override
+	public String rowSignature(LeaveBalance balance) {
+		return deltaDelegate.rowSignature(balance);
+	}
+
+	@Override
+	public List<Rejection<LeaveBalance>> applyDelta(List<LeaveBalance> inserted, List<LeaveBalance> updated, List<String> deletedKeys)
+			throws DataPersistenceException {
+		synchronized (flushLock) {
+			flushAll();
+			List<Rejection<LeaveBalance>> rejected = deltaDelegate.applyDelta(inserted, updated, deletedKeys);
+			List<LeaveBalance> touched = new ArrayList<>(inserted);
+			touched.addAll(updated);
+			invalidate(touched);
+			Set<String> deletedEmployees = new HashSet<>();
+			for (String key : deletedKeys) {
+				deletedEmployees.add(key.substring(0, key.indexOf('|')));
+			}
+			invalidateEmployees(deletedEmployees);
+			return rejected;
+		}
+	}
+
+	@Override
+	public void close() {
+		flusher.shutdown();
+		flushQuietly();
+	}
+
+	private void flushQuietly() {
+		try {
+			flushAll();
+		} catch (DataPersistenceException e) {
+			LOGGER.severe("Error flushing leave balances: " + e.getMessage());
+		} catch (RuntimeException e) {
+			// Never let an exception cancel the scheduled flush
+			LOGGER.severe("Unexpected error flushing leave balances: " + e.getMessage());
+		}
+	}
+
+	// Drops cached employees touched by a bulk write so they are reloaded from the database.
+	// Employees with changes made while the write ran keep their newer in-memory values.
+	private void invalidate(List<LeaveBalance> entities) {
+		Set<String> employeeIds = new HashSet<>();
+		for (LeaveBalance balance : entities) {
+			employeeIds.add(CanonicalKeys.employeeId(balance.getEmpId()));
+		}
+		invalidateEmployees(employeeIds);
+	}
+
+	private void invalidateEmployees(Set<String> employeeIds) {
+		synchronized (lock) {
+			for (String employeeId : employeeIds) {
+				if (!hasPendingWrites(employeeId)) {
+					byEmployee.remove(employeeId);
+				}
+			}
+			invalidations++;
+		}
+	}
+
+	private <V> V withBalancesOf(String employeeId, Function<Map<String, LeaveBalance>, V> action) {
+		String key = CanonicalKeys.employeeId(employeeId);
+		return withBalances(Collections.singleton(key), cached -> action.apply(cached.get(key)));
+	}
+
+	// Runs the action under the lock once every employee is cached. Missing employees are read
+	// outside the lock, so one slow query does not stall every other caller, and only installed
+	// if nobody cached them meanwhile (a concurrent save wins) and no invalidation happened while
+	// reading (the read may predate a direct database write, such as an approval's deduction).
+	private <V> V withBalances(Set<String> keys, Function<Map<String, Map<String, LeaveBalance>>, V> action) {
+		Map<String, Map<String, LeaveBalance>> loaded = new HashMap<>();
+		long loadedAt = -1;
+		while (true) {
+			Set<String> missing = new LinkedHashSet<>();
+			long readAt;
+			synchronized (lock) {
+				Map<String, Map<String, LeaveBalance>> cached = new LinkedHashMap<>();
+				for (String key : keys) {
+					Map<String, LeaveBalance> balances = byEmployee.get(key);
+					if (balances == null && loadedAt == invalidations && loaded.containsKey(key)) {
+						balances = loaded.get(key);
+						byEmployee.put(key, balances);
+					}
+					if (balances == null) {
+						missing.add(key);
+					} else {
+						cached.put(key, balances);
+					}
+				}
+				if (missing.isEmpty()) {
+					V result = action.apply(cached);
+					trim(keys);
+					return result;
+				}
+				readAt = invalidations;
+			}
+			loaded = load(missing);
+			loadedAt = readAt;
+		}
+	}
+
+	// Every requested employee gets an entry, even without balances, so it is not read again
+	private Map<String, Map<String, LeaveBalance>> load(Set<String> keys) {
+		Map<String, Map<String, LeaveBalance>> loaded = new HashMap<>();
+		for (String key : keys) {
+			loaded.put(key, new LinkedHashMap<>());
+		}
+		List<LeaveBalance> balances = keys.size() == 1 ? delegate.findByEmployeeId(keys.iterator().next())
+				: delegate.findByEmployeeIds(keys);
+		for (LeaveBalance balance : balances) {
+			loaded.computeIfAbsent(CanonicalKeys.employeeId(balance.getEmpId()), k -> new LinkedHashMap<>())
+					.put(slotOf(balance.getLeaveType(), balance.getYear()), balance);
+		}
+		return loaded;
+	}
+
+	// Caller holds lock. Drops the least recently used employees over the bound, except ones with
+	// unflushed changes and the ones the current call is using.
+	private void trim(Set<String> inUse) {
+		Iterator<Map.Entry<String, Map<String, LeaveBalance>>> eldest = byEmployee.entrySet().iterator();
+		int excess = byEmployee.size() - maxCachedEmployees;
+		while (excess > 0 && eldest.hasNext()) {
+			String key = eldest.next().getKey();
+			if (!hasPendingWrites(key) && !inUse.contains(key)) {
+				eldest.remove();
+				excess--;
+			}
+		}
+	}
+
+	// The whole value is written, which covers any deduction pending for the slot
+	private void markDirty(String employeeId, String slot) {
+		dirty.computeIfAbsent(employeeId, k -> new LinkedHashSet<>()).add(slot);
+		Map<String, Float> pendingDeductions = deducted.get(employeeId);
+		if (pendingDeductions != null && pendingDeductions.remove(slot) != null && pendingDeductions.isEmpty()) {
+			deducted.remove(employeeId);
+		}
+	}
+
+	private void addDeduction(String employeeId, String slot, float days) {
+		if (!dirty.getOrDefault(employeeId, Collections.emptySet()).contains(slot)) {
+			deducted.computeIfAbsent(employeeId, k -> new LinkedHashMap<>()).merge(slot, days, Float::sum);
+		}
+	}
+
+	// Caller holds lock
+	private boolean hasPendingWrites(String employeeId) {
+		return dirty.containsKey(employeeId) || deducted.containsKey(employeeId);
+	}
+
+	private static String slotOf(String leaveType, int year) {
+		return leaveType.toLowerCase() + "|" + year;
+	}
+
+	// LeaveBalance is mutable (deductLeave), so callers never share the cached instance
+	private static LeaveBalance copyOf(LeaveBalance balance) {
+		return new LeaveBalance(balance.getBalanceId(), balance.getEmpId(), balance.getLeaveType(),
+				balance.getBalanceDays(), balance.getYear(), balance.getLastUpdated());
+	}
+}
@@ -0,0 +1,136 @@
+package infrastructure.persistence.cache;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import infrastructure.persistence.CanonicalKeys;
+import infrastructure.persistence.DatabaseConnectionManager;
+
+// Answers "does this employee exist?" without a round trip where possible. A bloom filter built
+// from the employees table rejects unknown IDs outright; IDs confirmed by the database are kept in
+// a bounded LRU for ttlMillis. Employees are never deleted, so a confirmed ID only expires to bound
+// memory and to pick up out-of-band changes eventually.
+public class EmployeeExistenceCache {
+
+	private static final Logger LOGGER = Logger.getLogger(EmployeeExistenceCache.class.getName());
+
+	private static final int DEFAULT_EXPECTED_EMPLOYEES = 100_000;
+	private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+	private static final int DEFAULT_MAX_CONFIRMED = 10_000;
+	private static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000L;
+
+	private final DatabaseConnectionManager connectionManager;
+	private final int expectedEmployees;
+	private final double falsePositiveRate;
+	private final int maxConfirmed;
+	private final long ttlMillis;
+
+	private final Map<String, Long> confirmed; // emp_id -> confirmed at (millis), access ordered
+	private volatile BloomFilter bloomFilter;
+	private volatile boolean warmed; // until warm() succeeds the filter cannot reject anything
+
+	public EmployeeExistenceCache(DatabaseConnectionManager connectionManager) {
+		this(connectionManager, DEFAULT_EXPECTED_EMPLOYEES, DEFAULT_FALSE_POSITIVE_RATE, DEFAULT_MAX_CONFIRMED,
+				DEFAULT_TTL_MILLIS);
+	}
+
+	public EmployeeExistenceCache(DatabaseConnectionManager connectionManager, int expectedEmployees,
+			double falsePositiveRate, int maxConfirmed, long ttlMillis) {
+
+		if (maxConfirmed < 1 || ttlMillis < 0) {
+			throw new IllegalArgumentException("maxConfirmed must be positive and ttlMillis non-negative");
+		}
+		this.connectionManager = connectionManager;
+		this.expectedEmployees = expectedEmployees;
+		this.falsePositiveRate = falsePositiveRate;
+		this.maxConfirmed = maxConfirmed;
+		this.ttlMillis = ttlMillis;
+		this.bloomFilter = new BloomFilter(expectedEmployees, falsePositiveRate);
+		this.confirmed = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > EmployeeExistenceCache.this.maxConfirmed;
+			}
+		};
+	}
+
+	// Rebuilds the filter from the employees table; call before serving requests
+	public synchronized void warm() {
+		String sql = "SELECT emp_id FROM employees";
+
+		try (Connection conn = connectionManager.getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(sql)) {
+
+			List<String> ids = new ArrayList<>();
+			while (rs.next()) {
+				ids.add(CanonicalKeys.employeeId(rs.getString("emp_id")));
+			}
+			BloomFilter filter = new BloomFilter(Math.max(expectedEmployees, ids.size()), falsePositiveRate);
+			for (String id : ids) {
+				filter.put(id);
+			}
+			bloomFilter = filter;
+			warmed = true;
+			LOGGER.fine("Loaded " + ids.size() + " employee IDs into existence filter");
+		} catch (SQLException e) {
+			// Leave the cache un-warmed: every lookup then falls through to the database
+			LOGGER.severe("Error warming employee existence cache: " + e.getMessage());
+		}
+	}
+
+	// false means the employee definitely does not exist
+	public boolean mightExist(String employeeId) {
+		return !warmed || bloomFilter.mightContain(CanonicalKeys.employeeId(employeeId));
+	}
+
+	public boolean isConfirmed(String employeeId) {
+		String key = CanonicalKeys.employeeId(employeeId);
+		synchronized (confirmed) {
+			Long confirmedAt = confirmed.get(key);
+			if (confirmedAt == null) {
+				return false;
+			}
+			if (System.currentTimeMillis() - confirmedAt > ttlMillis) {
+				confirmed.remove(key);
+				return false;
+			}
+			return true;
+		}
+	}
+
+	public void confirm(String employeeId) {
+		synchronized (confirmed) {
+			confirmed.put(CanonicalKeys.employeeId(employeeId), System.currentTimeMillis());
+		}
+	}
+
+	// Called after employees are written so new IDs are not rejected by the filter
+	public synchronized void recordSaved(Collection<String> employeeIds) {
+		BloomFilter filter = bloomFilter;
+		for (String employeeId : employeeIds) {
+			filter.put(CanonicalKeys.employeeId(employeeId));
+		}
+	}
+
+	public synchronized void recordSaved(String employeeId) {
+		bloomFilter.put(CanonicalKeys.employeeId(employeeId));
+		confirm(employeeId);
+	}
+
+	public void clear() {
+		synchronized (confirmed) {
+			confirmed.clear();
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package infrastructure.persistence.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import infrastructure.persistence.CanonicalKeys;
+import infrastructure.persistence.DatabaseConnectionManager;
+
+// In-memory copy of every non-rejected leave period, so an overlap check needs no query. Each
+// employee's periods are kept sorted by start date together with the running maximum of their end
+// dates: the periods starting on or before a range's end are found by binary search, and one of them
+// overlaps the range exactly when the running maximum at that point reaches the range's start.
+// Per-employee entries are immutable and swapped on every change, so reads take no lock.
+public class LeaveIntervalIndex {
+
+	private static final Logger LOGGER = Logger.getLogger(LeaveIntervalIndex.class.getName());
+	private static final String SELECT_PERIODS = "SELECT request_id, emp_id, start_date, end_date FROM leave_requests "
+			+ "WHERE status IN ('Pending', 'Approved')";
+
+	private final DatabaseConnectionManager connectionManager;
+	private final Map<String, Periods> byEmployee = new ConcurrentHashMap<>(); // EMP_ID -> periods
+	private final Map<Integer, String> employeeByRequest = new ConcurrentHashMap<>(); // request_id -> EMP_ID
+	private volatile boolean warmed; // until warm() succeeds callers must ask the database
+
+	public LeaveIntervalIndex(DatabaseConnectionManager connectionManager) {
+		this.connectionManager = connectionManager;
+	}
+
+	// Loads every non-rejected period; call before serving requests
+	public synchronized void warm() {
+		try (Connection conn = connectionManager.getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(SELECT_PERIODS)) {
+
+			Map<String, List<Period>> loaded = new HashMap<>();
+			int count = 0;
+			while (rs.next()) {
+				loaded.computeIfAbsent(CanonicalKeys.employeeId(rs.getString("emp_id")), k -> new ArrayList<>())
+						.add(period(rs));
+				count++;
+			}
+			byEmployee.clear();
+			employeeByRequest.clear();
+			for (Map.Entry<String, List<Period>> entry : loaded.entrySet()) {
+				replace(entry.getKey(), entry.getValue());
+			}
+			warmed = true;
+			LOGGER.info("Loaded " + count + " leave periods for " + loaded.size() + " employees into the overlap index");
+		} catch (SQLException e) {
+			warmed = false;
+			LOGGER.severe("Error warming leave interval index: " + e.getMessage());
+		}
+	}
+
+	public boolean isWarmed() {
+		return warmed;
+	}
+
+	// Re-reads the given employees' periods, e.g. after a bulk write that did not return request IDs.
+	// On failure the index is marked cold so overlap checks go back to the database.
+	public void reload(Collection<String> employeeIds) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (String employeeId : employeeIds) {
+			keys.add(CanonicalKeys.employeeId(employeeId));
+		}
+		if (keys.isEmpty() || !warmed) {
+			return;
+		}
+
+		try (Connection conn = connectionManager.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(SELECT_PERIODS + " AND emp_id = ANY(?)")) {
+
+			stmt.setArray(1, conn.createArrayOf("varchar", keys.toArray(new String[0])));
+			Map<String, List<Period>> loaded = new HashMap<>();
+			for (String key : keys) {
+				loaded.put(key, new ArrayList<>());
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					loaded.get(CanonicalKeys.employeeId(rs.getString("emp_id"))).add(period(rs));
+				}
+			}
+			for (Map.Entry<String, List<Period>> entry : loaded.entrySet()) {
+				replace(entry.getKey(), entry.getValue());
+			}
+		} catch (SQLException e) {
+			warmed = false;
+			LOGGER.severe("Error reloading leave periods, overlap checks fall back to the database: " + e.getMessage());
+		}
+	}
+
+	// Records a saved Pending or Approved request, replacing an earlier version of it
+	public void put(int requestId, String employeeId, LocalDate startDate, LocalDate endDate) {
+		remove(requestId);
+		String key = CanonicalKeys.employeeId(employeeId);
+		Period added = new Period(requestId, startDate.toEpochDay(), endDate.toEpochDay());
+		byEmployee.compute(key, (k, periods) -> (periods == null ? Periods.EMPTY : periods).with(added));
+		employeeByRequest.put(requestId, key);
+	}
+
+	// Drops a request that was rejected or deleted
+	public void remove(int requestId) {
+		String key = employeeByRequest.remove(requestId);
+		if (key != null) {
+			byEmployee.computeIfPresent(key, (k, periods) -> periods.without(requestId));
+		}
+	}
+
+	// IDs of the employee's non-rejected requests overlapping [startDate, endDate], in start order
+	public List<Integer> findOverlapping(String employeeId, LocalDate startDate, LocalDate endDate) {
+		Periods periods = byEmployee.get(CanonicalKeys.employeeId(employeeId));
+		return periods == null ? new ArrayList<>() : periods.overlapping(startDate.toEpochDay(), endDate.toEpochDay());
+	}
+
+	public boolean hasOverlap(String employeeId, LocalDate startDate, LocalDate endDate) {
+		Periods periods = byEmployee.get(CanonicalKeys.employeeId(employeeId));
+		return periods != null && periods.overlaps(startDate.toEpochDay(), endDate.toEpochDay());
+	}
+
+	private void replace(String key, List<Period> periods) {
+		Periods previous = byEmployee.remove(key);
+		if (previous != null) {
+			for (int requestId : previous.requestIds) {
+				employeeByRequest.remove(requestId, key);
+			}
+		}
+		if (periods.isEmpty()) {
+			return;
+		}
+		byEmployee.put(key, Periods.of(periods));
+		for (Period period : periods) {
+			employeeByRequest.put(period.requestId, key);
+		}
+	}
+
+	private static Period period(ResultSet rs) throws SQLException {
+		return new Period(rs.getInt("request_id"), rs.getDate("start_date").toLocalDate().toEpochDay(),
+				rs.getDate("end_date").toLocalDate().toEpochDay());
+	}
+
+	private static final class Period {
+
+		private final int requestId;
+		private final long start; // epoch days, inclusive
+		private final long end;
+
+		private Period(int requestId, long start, long end) {
+			this.requestId = requestId;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	// One employee's periods sorted by start, with maxEnd[i] = max(ends[0..i])
+	private static final class Periods {
+
+		private static final Periods EMPTY = new Periods(new int[0], new long[0], new long[0], new long[0]);
+
+		private final int[] requestIds;
+		private final long[] starts;
+		private final long[] ends;
+		private final long[] maxEnd;
+
+		private Periods(int[] requestIds, long[] starts, long[] ends, long[] maxEnd) {
+			this.requestIds = requestIds;
+			this.starts = starts;
+			this.ends = ends;
+			this.maxEnd = maxEnd;
+		}
+
+		private static Periods of(List<Period> periods) {
+			Period[] sorted = periods.toArray(new Period[0]);
+			Arrays.sort(sorted, (a, b) -> a.start != b.start ? Long.compare(a.start, b.start)
+					: Integer.compare(a.requestId, b.requestId));
+			int[] requestIds = new int[sorted.length];
+			long[] starts = new long[sorted.length];
+			long[] ends = new long[sorted.length];
+			long[] maxEnd = new long[sorted.length];
+			for (int i = 0; i < sorted.length; i++) {
+				requestIds[i] = sorted[i].requestId;
+				starts[i] = sorted[i].start;
+				ends[i] = sorted[i].end;
+				maxEnd[i] = i == 0 ? ends[i] : Math.max(maxEnd[i - 1], ends[i]);
+			}
+			return new Periods(requestIds, starts, ends, maxEnd);
+		}
+
+		private Periods with(Period added) {
+			List<Period> periods = toList();
+			periods.add(added);
+			return of(periods);
+		}
+
+		private Periods without(int requestId) {
+			List<Period> periods = toList();
+			periods.removeIf(period -> period.requestId == requestId);
+			return periods.isEmpty() ? null : of(periods);
+		}
+
+		private List<Period> toList() {
+			List<Period> periods = new ArrayList<>(requestIds.length + 1);
+			for (int i = 0; i < requestIds.length; i++) {
+				periods.add(new Period(requestIds[i], starts[i], ends[i]));
+			}
+			return periods;
+		}
+
+		// Index of the last period starting on or before day, or -1
+		private int lastStartingBy(long day) {
+			int low = 0;
+			int high = starts.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (starts[mid] <= day) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			return high;
+		}
+
+		private boolean overlaps(long start, long end) {
+			int last = lastStartingBy(end);
+			return last >= 0 && maxEnd[last] >= start;
+		}
+
+		private List<Integer> overlapping(long start, long end) {
+			List<Integer> ids = new ArrayList<>();
+			// Walking back stops where no earlier period reaches start any more
+			for (int i = lastStartingBy(end); i >= 0 && maxEnd[i] >= start; i--) {
+				if (ends[i] >= start) {
+					ids.add(requestIds[i]);
+				}
+			}
+			Collections.reverse(ids);
+			return ids;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package infrastructure.persistence.cache;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import domain.model.LeaveType;
+import infrastructure.persistence.DatabaseConnectionManager;
+
+// Process-wide copy of the leave_types table. Leave types almost never change but are resolved
+// on every request, so lookups are served from an immutable snapshot that is swapped on reload.
+public class LeaveTypeCache {
+
+	private static final Logger LOGGER = Logger.getLogger(LeaveTypeCache.class.getName());
+
+	private final DatabaseConnectionManager connectionManager;
+	private volatile Snapshot snapshot; // null until loaded, and again after invalidate()
+
+	public LeaveTypeCache(DatabaseConnectionManager connectionManager) {
+		this.connectionManager = connectionManager;
+	}
+
+	public Optional<LeaveType> findByName(String name) {
+		if (name == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(current().byName.get(name.trim().toLowerCase()));
+	}
+
+	public Optional<LeaveType> findById(int leaveTypeId) {
+		return Optional.ofNullable(current().byId.get(leaveTypeId));
+	}
+
+	public List<LeaveType> findAll() {
+		return current().all;
+	}
+
+	// Case-insensitive name -> leave_type_id, as used by the repositories instead of subqueries
+	public Optional<Integer> resolveId(String name) {
+		return findByName(name).map(LeaveType::getLeaveTypeId);
+	}
+
+	public synchronized void reload() {
+		String sql = "SELECT leave_type_id, leave_type_name, default_balance FROM leave_types";
+
+		try (Connection conn = connectionManager.getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(sql)) {
+
+			List<LeaveType> leaveTypes = new ArrayList<>();
+			while (rs.next()) {
+				leaveTypes.add(new LeaveType(rs.getInt("leave_type_id"), rs.getString("leave_type_name"),
+						rs.getInt("default_balance")));
+			}
+			snapshot = new Snapshot(leaveTypes);
+			LOGGER.fine("Loaded " + leaveTypes.size() + " leave types into cache");
+		} catch (SQLException e) {
+			LOGGER.severe("Error loading leave types into cache: " + e.getMessage());
+		}
+	}
+
+	// Drops the snapshot; the next lookup reloads from the database
+	public void invalidate() {
+		snapshot = null;
+	}
+
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					reload();
+				}
+				current = snapshot;
+			}
+		}
+		return current != null ? current : Snapshot.EMPTY;
+	}
+
+	private static final class Snapshot {
+
+		private static final Snapshot EMPTY = new Snapshot(Collections.<LeaveType>emptyList());
+
+		private final List<LeaveType> all;
+		private final Map<String, LeaveType> byName = new HashMap<>();
+		private final Map<Integer, LeaveType> byId = new HashMap<>();
+
+		private Snapshot(List<LeaveType> leaveTypes) {
+			this.all = Collections.unmodifiableList(new ArrayList<>(leaveTypes));
+			for (LeaveType leaveType : leaveTypes) {
+				byName.put(leaveType.getLeaveTypeName().toLowerCase(), leaveType);
+				byId.put(leaveType.getLeaveTypeId(), leaveType);
+			}
+		}
+	}
+}
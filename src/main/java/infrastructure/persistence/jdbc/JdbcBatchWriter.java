@@ -0,0 +1,100 @@
+package infrastructure.persistence.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Shared saveAll plumbing: one connection, one PreparedStatement, addBatch/executeBatch per chunk
+final class JdbcBatchWriter {
+
+	@FunctionalInterface
+	interface StatementBinder<T> {
+		void bind(PreparedStatement stmt, T entity) throws SQLException;
+	}
+
+	private JdbcBatchWriter() {
+	}
+
+	// Each chunk is committed on its own; a failing chunk is rolled back and aborts the rest,
+	// leaving earlier chunks committed. Returns the number of rows written.
+	static <T> int executeInChunks(Connection conn, String sql, List<T> entities, int batchSize,
+			StatementBinder<T> binder) throws SQLException {
+		return execute(conn, sql, entities, batchSize, binder, null);
+	}
+
+	// As executeInChunks, but returns the entities whose statement changed no row, such as an
+	// INSERT ... SELECT ... WHERE NOT EXISTS that found a conflict. Rows the driver reports
+	// without a count are taken as written.
+	static <T> List<T> executeReturningUnchanged(Connection conn, String sql, List<T> entities, int batchSize,
+			StatementBinder<T> binder) throws SQLException {
+		List<T> unchanged = new ArrayList<>();
+		execute(conn, sql, entities, batchSize, binder, unchanged);
+		return unchanged;
+	}
+
+	private static <T> int execute(Connection conn, String sql, List<T> entities, int batchSize,
+			StatementBinder<T> binder, List<T> unchanged) throws SQLException {
+
+		if (entities.isEmpty()) {
+			return 0;
+		}
+
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		int written = 0;
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			for (int start = 0; start < entities.size(); start += batchSize) {
+				List<T> chunk = entities.subList(start, Math.min(start + batchSize, entities.size()));
+				try {
+					for (T entity : chunk) {
+						binder.bind(stmt, entity);
+						stmt.addBatch();
+					}
+					int[] counts = stmt.executeBatch();
+					conn.commit();
+					if (unchanged != null) {
+						for (int i = 0; i < counts.length; i++) {
+							if (counts[i] == 0) {
+								unchanged.add(chunk.get(i));
+							}
+						}
+					}
+					written += chunk.size();
+				} catch (SQLException e) {
+					conn.rollback();
+					stmt.clearBatch();
+					throw new SQLException(String.format("Batch of rows %d-%d failed (%d rows committed before it): %s",
+							start + 1, start + chunk.size(), written, rootMessage(e)), e.getSQLState(), e);
+				}
+			}
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+		return written;
+	}
+
+	// Collapses entities sharing a key, keeping the last one, as sequential upserts would.
+	// Multi-row rewritten upserts reject touching the same row twice, so this is required
+	// before batching ON CONFLICT statements.
+	static <T, K> List<T> lastWins(List<T> entities, Function<T, K> key) {
+		Map<K, T> byKey = new LinkedHashMap<>();
+		for (T entity : entities) {
+			byKey.put(key.apply(entity), entity);
+		}
+		return new ArrayList<>(byKey.values());
+	}
+
+	// BatchUpdateException hides the server error behind getNextException()
+	private static String rootMessage(SQLException e) {
+		if (e instanceof BatchUpdateException && e.getNextException() != null) {
+			return e.getNextException().getMessage();
+		}
+		return e.getMessage();
+	}
+}
@@ -2,23 +2,33 @@ package infrastructure.persistence.jdbc;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
 
 import common.exception.DataPersistenceException;
 import domain.model.Employee;
+import domain.repository.IBulkRepository;
+import domain.repository.IDeltaRepository;
 import domain.repository.IEmployeeRepository;
-import domain.repository.IRepository;
+import domain.repository.Rejection;
+import infrastructure.persistence.CanonicalKeys;
 import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.cache.EmployeeExistenceCache;
 
-public class JdbcEmployeeRepository implements IEmployeeRepository, IRepository<Employee> {
+public class JdbcEmployeeRepository implements IEmployeeRepository, IBulkRepository<Employee>, IDeltaRepository<Employee> {
     
 	private static final Logger LOGGER = Logger.getLogger(JdbcEmployeeRepository.class.getName());
+	private static final String UPSERT_SQL = "INSERT INTO employees (emp_id, emp_name, department) VALUES (?, ?, ?) ON CONFLICT (emp_id) DO UPDATE SET emp_name = ?, department = ?";
     private final DatabaseConnectionManager connectionManager;
+    private final EmployeeExistenceCache existenceCache;
+    private final int batchSize;
 
-    public JdbcEmployeeRepository(DatabaseConnectionManager connectionManager) {
+    public JdbcEmployeeRepository(DatabaseConnectionManager connectionManager, EmployeeExistenceCache existenceCache) {
         this.connectionManager = connectionManager;
+        this.existenceCache = existenceCache;
+        this.batchSize = connectionManager.getBatchSize();
     }
 
     @Override
@@ -28,7 +38,7 @@ public class JdbcEmployeeRepository implements IEmployeeRepository, IRepository<
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, employeeId);
+            stmt.setString(1, CanonicalKeys.employeeId(employeeId));
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     return Optional.of(new Employee(
@@ -71,17 +81,12 @@ public class JdbcEmployeeRepository implements IEmployeeRepository, IRepository<
     @Override
     public void save(Employee employee) {
         
-    	String sql = "INSERT INTO employees (emp_id, emp_name, department) VALUES (?, ?, ?) ON CONFLICT (emp_id) DO UPDATE SET emp_name = ?, department = ?";   
         try (Connection conn = connectionManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, employee.getEmpId());
-            stmt.setString(2, employee.getEmpName());
-            stmt.setString(3, employee.getDepartment());
-            stmt.setString(4, employee.getEmpName());
-            stmt.setString(5, employee.getDepartment());
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
             
+            bindEmployee(stmt, employee);
             stmt.executeUpdate();
+            existenceCache.recordSaved(employee.getEmpId());
         } catch (SQLException e) {
             LOGGER.severe("Error saving employee: " + e.getMessage());
         }
@@ -90,13 +95,25 @@ public class JdbcEmployeeRepository implements IEmployeeRepository, IRepository<
     @Override
     public boolean existsById(String employeeId) {
         
+    	// A bloom filter miss is definitive; a recent confirmation saves the round trip
+    	if (!existenceCache.mightExist(employeeId)) {
+    		return false;
+    	}
+    	if (existenceCache.isConfirmed(employeeId)) {
+    		return true;
+    	}
+
     	String sql = "SELECT 1 FROM employees WHERE emp_id = ?";
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, employeeId.toUpperCase());
+            stmt.setString(1, CanonicalKeys.employeeId(employeeId));
             try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
+                if (rs.next()) {
+                    existenceCache.confirm(employeeId);
+                    return true;
+                }
+                return false;
             }
         } catch (SQLException e) {
             LOGGER.severe("Error checking if employee exists: " + e.getMessage());
@@ -108,15 +125,80 @@ public class JdbcEmployeeRepository implements IEmployeeRepository, IRepository<
 	@Override
 	public void saveAll(List<Employee> entities) throws DataPersistenceException  {
 		
+		// The same employee appears on many workbook rows; only the last version needs writing
+		List<Employee> employees = JdbcBatchWriter.lastWins(entities, JdbcEmployeeRepository::naturalKeyOf);
 		try (Connection conn = connectionManager.getConnection()) {
-			conn.setAutoCommit(false);
-			for (Employee employee : entities) {
-				save(employee);
-			}
-			conn.commit();
-			conn.setAutoCommit(true); 
+			JdbcBatchWriter.executeInChunks(conn, UPSERT_SQL, employees, batchSize, this::bindEmployee);
         } catch (SQLException e) {
-            throw new DataPersistenceException("Failed to save leave types", e);
+            LOGGER.severe("Error saving employees: " + e.getMessage());
+            throw new DataPersistenceException("Failed to save employees", e);
+        } finally {
+            // Earlier chunks may be committed even on failure; extra filter entries are harmless
+            existenceCache.recordSaved(empIds(employees));
         }
 	}
+
+	@Override
+	public List<Rejection<Employee>> bulkLoad(List<Employee> entities) throws DataPersistenceException {
+
+		String stagingDdl = "CREATE TEMP TABLE staging_employees (seq BIGSERIAL, emp_id VARCHAR(10), "
+				+ "emp_name VARCHAR(100), department VARCHAR(50)) ON COMMIT DROP";
+		String copySql = "COPY staging_employees (emp_id, emp_name, department) FROM STDIN WITH (FORMAT csv)";
+		String mergeSql = "INSERT INTO employees (emp_id, emp_name, department) "
+				+ "SELECT DISTINCT ON (emp_id) emp_id, emp_name, department FROM staging_employees "
+				+ "ORDER BY emp_id, seq DESC "
+				+ "ON CONFLICT (emp_id) DO UPDATE SET emp_name = EXCLUDED.emp_name, department = EXCLUDED.department";
+
+		try (Connection conn = connectionManager.getConnection()) {
+			PgBulkLoader.stageAndMerge(conn, stagingDdl, copySql, mergeSql, entities,
+					(line, employee) -> line.add(CanonicalKeys.employeeId(employee.getEmpId())).add(employee.getEmpName()).add(employee.getDepartment()));
+			return Collections.emptyList();
+		} catch (SQLException e) {
+			LOGGER.severe("Error bulk loading employees: " + e.getMessage());
+			throw new DataPersistenceException("Failed to bulk load employees", e);
+		} finally {
+			existenceCache.recordSaved(empIds(entities));
+		}
+	}
+
+	private static List<String> empIds(List<Employee> employees) {
+		List<String> ids = new ArrayList<>(employees.size());
+		for (Employee employee : employees) {
+			ids.add(employee.getEmpId());
+		}
+		return ids;
+	}
+
+	@Override
+	public String naturalKey(Employee employee) {
+		return naturalKeyOf(employee);
+	}
+
+	@Override
+	public String rowSignature(Employee employee) {
+		return naturalKeyOf(employee) + "|" + employee.getEmpName() + "|" + employee.getDepartment();
+	}
+
+	// ' e101' and 'E101' are the same stored row, so they must be one key too
+	private static String naturalKeyOf(Employee employee) {
+		return CanonicalKeys.employeeId(employee.getEmpId());
+	}
+
+	// An employee appears in every leave workbook, so dropping them from one file deletes nothing
+	@Override
+	public List<Rejection<Employee>> applyDelta(List<Employee> inserted, List<Employee> updated, List<String> deletedKeys)
+			throws DataPersistenceException {
+		List<Employee> changed = new ArrayList<>(inserted);
+		changed.addAll(updated);
+		saveAll(changed);
+		return Collections.emptyList();
+	}
+
+	private void bindEmployee(PreparedStatement stmt, Employee employee) throws SQLException {
+		stmt.setString(1, CanonicalKeys.employeeId(employee.getEmpId()));
+		stmt.setString(2, employee.getEmpName());
+		stmt.setString(3, employee.getDepartment());
+		stmt.setString(4, employee.getEmpName());
+		stmt.setString(5, employee.getDepartment());
+	}
 }
@@ -0,0 +1,77 @@
+package infrastructure.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import common.exception.DataPersistenceException;
+import domain.repository.IIngestFingerprintRepository;
+import infrastructure.persistence.DatabaseConnectionManager;
+
+public class JdbcIngestFingerprintRepository implements IIngestFingerprintRepository {
+
+	private static final Logger LOGGER = Logger.getLogger(JdbcIngestFingerprintRepository.class.getName());
+	private static final String UPSERT_SQL = "INSERT INTO ingest_fingerprints (source_file, entity_type, natural_key, row_hash) "
+			+ "VALUES (?, ?, ?, ?) ON CONFLICT (source_file, entity_type, natural_key) DO UPDATE SET row_hash = EXCLUDED.row_hash";
+	private static final String DELETE_SQL = "DELETE FROM ingest_fingerprints "
+			+ "WHERE source_file = ? AND entity_type = ? AND natural_key = ?";
+	private final DatabaseConnectionManager connectionManager;
+	private final int batchSize;
+
+	public JdbcIngestFingerprintRepository(DatabaseConnectionManager connectionManager) {
+		this.connectionManager = connectionManager;
+		this.batchSize = connectionManager.getBatchSize();
+	}
+
+	@Override
+	public Map<String, String> findHashes(String sourceFile, String entityType) {
+
+		Map<String, String> hashes = new HashMap<>();
+		String sql = "SELECT natural_key, row_hash FROM ingest_fingerprints WHERE source_file = ? AND entity_type = ?";
+		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setString(1, sourceFile);
+			stmt.setString(2, entityType);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					hashes.put(rs.getString("natural_key"), rs.getString("row_hash"));
+				}
+			}
+		} catch (SQLException e) {
+			// An empty index only makes the next ingest treat every row as new
+			LOGGER.severe("Error loading ingest fingerprints: " + e.getMessage());
+		}
+		return hashes;
+	}
+
+	@Override
+	public void saveHashes(String sourceFile, String entityType, Map<String, String> changedHashes,
+			Collection<String> removedKeys) throws DataPersistenceException {
+
+		List<Map.Entry<String, String>> upserts = new ArrayList<>(changedHashes.entrySet());
+		List<String> deletes = new ArrayList<>(removedKeys);
+		try (Connection conn = connectionManager.getConnection()) {
+			JdbcBatchWriter.executeInChunks(conn, UPSERT_SQL, upserts, batchSize, (stmt, entry) -> {
+				stmt.setString(1, sourceFile);
+				stmt.setString(2, entityType);
+				stmt.setString(3, entry.getKey());
+				stmt.setString(4, entry.getValue());
+			});
+			JdbcBatchWriter.executeInChunks(conn, DELETE_SQL, deletes, batchSize, (stmt, key) -> {
+				stmt.setString(1, sourceFile);
+				stmt.setString(2, entityType);
+				stmt.setString(3, key);
+			});
+		} catch (SQLException e) {
+			LOGGER.severe("Error saving ingest fingerprints: " + e.getMessage());
+			throw new DataPersistenceException("Failed to save ingest fingerprints", e);
+		}
+	}
+}
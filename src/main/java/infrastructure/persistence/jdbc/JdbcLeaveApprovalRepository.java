@@ -0,0 +1,274 @@
+package infrastructure.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import common.exception.DataPersistenceException;
+import domain.model.LeaveRequest;
+import domain.model.LeaveStatus;
+import domain.repository.ILeaveApprovalRepository;
+import infrastructure.persistence.CanonicalKeys;
+import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.cache.LeaveIntervalIndex;
+import infrastructure.persistence.cache.LeaveTypeCache;
+
+// Both statements are guarded by their WHERE clause, so concurrent approvals of the same request
+// or against the same balance serialize on the row locks instead of overdrawing
+public class JdbcLeaveApprovalRepository implements ILeaveApprovalRepository {
+
+	private static final Logger LOGGER = Logger.getLogger(JdbcLeaveApprovalRepository.class.getName());
+	private static final String DECIDE_SQL = "UPDATE leave_requests SET status = ?, remarks = COALESCE(?, remarks), "
+			+ "updated_at = CURRENT_TIMESTAMP WHERE request_id = ? AND status = ?";
+	private static final String DEDUCT_SQL = "UPDATE leave_balances SET balance_days = balance_days - ?, "
+			+ "last_updated = CURRENT_TIMESTAMP "
+			+ "WHERE emp_id = ? AND leave_type_id = ? AND year = ? AND balance_days >= ?";
+	private final DatabaseConnectionManager connectionManager;
+	private final LeaveTypeCache leaveTypeCache;
+	private final LeaveIntervalIndex intervalIndex; // rejected requests leave it; may be null
+
+	public JdbcLeaveApprovalRepository(DatabaseConnectionManager connectionManager, LeaveTypeCache leaveTypeCache) {
+		this(connectionManager, leaveTypeCache, null);
+	}
+
+	public JdbcLeaveApprovalRepository(DatabaseConnectionManager connectionManager, LeaveTypeCache leaveTypeCache,
+			LeaveIntervalIndex intervalIndex) {
+		this.connectionManager = connectionManager;
+		this.leaveTypeCache = leaveTypeCache;
+		this.intervalIndex = intervalIndex;
+	}
+
+	@Override
+	public Outcome approve(int requestId, String employeeId, String leaveType, int balanceYear, float days)
+			throws DataPersistenceException {
+
+		try (Connection conn = connectionManager.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement decide = conn.prepareStatement(DECIDE_SQL);
+					PreparedStatement deduct = conn.prepareStatement(DEDUCT_SQL)) {
+
+				bindDecision(decide, requestId, LeaveStatus.APPROVED, null);
+				if (decide.executeUpdate() == 0) {
+					conn.rollback();
+					return Outcome.NOT_PENDING;
+				}
+
+				deduct.setFloat(1, days);
+				deduct.setString(2, CanonicalKeys.employeeId(employeeId));
+				deduct.setInt(3, leaveTypeId(leaveType));
+				deduct.setInt(4, balanceYear);
+				deduct.setFloat(5, days);
+				if (deduct.executeUpdate() == 0) {
+					conn.rollback();
+					return Outcome.INSUFFICIENT_BALANCE;
+				}
+
+				conn.commit();
+				return Outcome.APPLIED;
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
+		} catch (SQLException e) {
+			LOGGER.severe("Error approving leave request " + requestId + ": " + e.getMessage());
+			throw new DataPersistenceException("Failed to approve leave request " + requestId, e);
+		}
+	}
+
+	@Override
+	public Outcome reject(int requestId, String reason) throws DataPersistenceException {
+
+		try (Connection conn = connectionManager.getConnection();
+				PreparedStatement decide = conn.prepareStatement(DECIDE_SQL)) {
+
+			bindDecision(decide, requestId, LeaveStatus.REJECTED, reason);
+			if (decide.executeUpdate() == 0) {
+				return Outcome.NOT_PENDING;
+			}
+			unindex(requestId);
+			return Outcome.APPLIED;
+		} catch (SQLException e) {
+			LOGGER.severe("Error rejecting leave request " + requestId + ": " + e.getMessage());
+			throw new DataPersistenceException("Failed to reject leave request " + requestId, e);
+		}
+	}
+
+	@Override
+	public Map<Integer, Outcome> approveAll(List<LeaveRequest> requests, Map<Integer, Integer> balanceYears)
+			throws DataPersistenceException {
+
+		Map<Integer, Outcome> outcomes = new LinkedHashMap<>();
+		if (requests.isEmpty()) {
+			return outcomes;
+		}
+
+		boolean fallBack = false;
+		try (Connection conn = connectionManager.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement decide = conn.prepareStatement(DECIDE_SQL);
+					PreparedStatement deduct = conn.prepareStatement(DEDUCT_SQL)) {
+
+				for (LeaveRequest request : requests) {
+					bindDecision(decide, request.getRequestId(), LeaveStatus.APPROVED, null);
+					decide.addBatch();
+				}
+				int[] decided = decide.executeBatch();
+
+				// One decrement per balance row, covering every request that was still pending
+				Map<String, Deduction> deductions = new LinkedHashMap<>();
+				for (int i = 0; i < decided.length; i++) {
+					LeaveRequest request = requests.get(i);
+					if (decided[i] == 0) {
+						outcomes.put(request.getRequestId(), Outcome.NOT_PENDING);
+						continue;
+					}
+					outcomes.put(request.getRequestId(), Outcome.APPLIED);
+					int leaveTypeId = leaveTypeId(request.getLeaveTypeId());
+					int year = balanceYears.get(request.getRequestId());
+					String employeeId = CanonicalKeys.employeeId(request.getEmpId());
+					deductions.computeIfAbsent(employeeId + "|" + leaveTypeId + "|" + year,
+							k -> new Deduction(employeeId, leaveTypeId, year)).days += request.getDays();
+				}
+
+				for (Deduction deduction : deductions.values()) {
+					deduct.setFloat(1, deduction.days);
+					deduct.setString(2, CanonicalKeys.employeeId(deduction.employeeId));
+					deduct.setInt(3, deduction.leaveTypeId);
+					deduct.setInt(4, deduction.year);
+					deduct.setFloat(5, deduction.days);
+					deduct.addBatch();
+				}
+				for (int count : deduct.executeBatch()) {
+					if (count == 0) {
+						fallBack = true;
+					}
+				}
+
+				if (fallBack) {
+					conn.rollback();
+				} else {
+					conn.commit();
+				}
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
+		} catch (SQLException e) {
+			LOGGER.severe("Error approving leave requests: " + e.getMessage());
+			throw new DataPersistenceException("Failed to approve leave requests", e);
+		}
+
+		if (fallBack) {
+			// A balance no longer covers its combined deduction (it changed after validation), so
+			// decide each request on its own to approve as many as the balance allows
+			LOGGER.warning("Batched approval rolled back; approving " + requests.size() + " requests one by one");
+			outcomes.clear();
+			for (LeaveRequest request : requests) {
+				outcomes.put(request.getRequestId(), approve(request.getRequestId(), request.getEmpId(),
+						request.getLeaveTypeId(), balanceYears.get(request.getRequestId()), request.getDays()));
+			}
+		}
+		return outcomes;
+	}
+
+	@Override
+	public Map<Integer, Outcome> markApproved(List<Integer> requestIds) throws DataPersistenceException {
+
+		Map<Integer, String> remarks = new LinkedHashMap<>();
+		for (Integer requestId : requestIds) {
+			remarks.put(requestId, null);
+		}
+		try {
+			return decideAll(remarks, LeaveStatus.APPROVED);
+		} catch (SQLException e) {
+			LOGGER.severe("Error approving leave requests: " + e.getMessage());
+			throw new DataPersistenceException("Failed to approve leave requests", e);
+		}
+	}
+
+	@Override
+	public Map<Integer, Outcome> rejectAll(Map<Integer, String> reasons) throws DataPersistenceException {
+
+		try {
+			Map<Integer, Outcome> outcomes = decideAll(reasons, LeaveStatus.REJECTED);
+			for (Map.Entry<Integer, Outcome> outcome : outcomes.entrySet()) {
+				if (outcome.getValue() == Outcome.APPLIED) {
+					unindex(outcome.getKey());
+				}
+			}
+			return outcomes;
+		} catch (SQLException e) {
+			LOGGER.severe("Error rejecting leave requests: " + e.getMessage());
+			throw new DataPersistenceException("Failed to reject leave requests", e);
+		}
+	}
+
+	// Moves every still-pending request to the status in one transaction, with its remarks if not null
+	private Map<Integer, Outcome> decideAll(Map<Integer, String> remarks, LeaveStatus status) throws SQLException {
+
+		Map<Integer, Outcome> outcomes = new LinkedHashMap<>();
+		if (remarks.isEmpty()) {
+			return outcomes;
+		}
+
+		try (Connection conn = connectionManager.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement decide = conn.prepareStatement(DECIDE_SQL)) {
+
+				List<Integer> requestIds = new ArrayList<>(remarks.keySet());
+				for (int requestId : requestIds) {
+					bindDecision(decide, requestId, status, remarks.get(requestId));
+					decide.addBatch();
+				}
+				int[] decided = decide.executeBatch();
+				conn.commit();
+
+				for (int i = 0; i < decided.length; i++) {
+					outcomes.put(requestIds.get(i), decided[i] == 0 ? Outcome.NOT_PENDING : Outcome.APPLIED);
+				}
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
+		}
+		return outcomes;
+	}
+
+	private void unindex(int requestId) {
+		if (intervalIndex != null) {
+			intervalIndex.remove(requestId);
+		}
+	}
+
+	private static void bindDecision(PreparedStatement stmt, int requestId, LeaveStatus status, String remarks)
+			throws SQLException {
+		stmt.setString(1, status.getStatus());
+		stmt.setString(2, remarks);
+		stmt.setInt(3, requestId);
+		stmt.setString(4, LeaveStatus.PENDING.getStatus());
+	}
+
+	private int leaveTypeId(String leaveTypeName) throws SQLException {
+		return leaveTypeCache.resolveId(leaveTypeName)
+				.orElseThrow(() -> new SQLException("Unknown leave type: " + leaveTypeName));
+	}
+
+	private static final class Deduction {
+
+		private final String employeeId;
+		private final int leaveTypeId;
+		private final int year;
+		private float days;
+
+		private Deduction(String employeeId, int leaveTypeId, int year) {
+			this.employeeId = employeeId;
+			this.leaveTypeId = leaveTypeId;
+			this.year = year;
+		}
+	}
+}
@@ -1,39 +1,60 @@
 package infrastructure.persistence.jdbc;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
 
 import common.exception.DataPersistenceException;
 import domain.model.LeaveBalance;
+import domain.repository.IBulkRepository;
+import domain.repository.IDeltaRepository;
 import domain.repository.ILeaveBalanceRepository;
-import domain.repository.IRepository;
+import domain.repository.Rejection;
+import infrastructure.persistence.CanonicalKeys;
 import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.cache.LeaveTypeCache;
 
-public class JdbcLeaveBalanceRepository implements ILeaveBalanceRepository, IRepository<LeaveBalance> {
+public class JdbcLeaveBalanceRepository implements ILeaveBalanceRepository, IBulkRepository<LeaveBalance>,
+		IDeltaRepository<LeaveBalance> {
     
 	private static final Logger LOGGER = Logger.getLogger(JdbcLeaveBalanceRepository.class.getName());
+	private static final String UPSERT_SQL = "INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) " +
+            "VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (emp_id, leave_type_id, year) DO UPDATE " + // if exists, update balance_days 
+            "SET balance_days = ?, last_updated = CURRENT_TIMESTAMP";
+	// Served by uq_leave_balances_emp_type_year; IndexUsageTest checks the plan
+	private static final String DEDUCT_SQL = "UPDATE leave_balances SET balance_days = balance_days - ?, "
+			+ "last_updated = CURRENT_TIMESTAMP WHERE emp_id = ? AND leave_type_id = ? AND year = ?";
+	static final String FIND_BY_EMPLOYEE_AND_TYPE_SQL = "SELECT lb.balance_id, lb.emp_id, lt.leave_type_name, "
+			+ "lb.balance_days, lb.year, lb.last_updated FROM leave_balances lb "
+			+ "JOIN leave_types lt ON lb.leave_type_id = lt.leave_type_id WHERE lb.emp_id = ? AND lb.leave_type_id = ?";
     private final DatabaseConnectionManager connectionManager;
+    private final LeaveTypeCache leaveTypeCache;
+    private final int batchSize;
 
-    public JdbcLeaveBalanceRepository(DatabaseConnectionManager connectionManager) {
+    public JdbcLeaveBalanceRepository(DatabaseConnectionManager connectionManager, LeaveTypeCache leaveTypeCache) {
         this.connectionManager = connectionManager;
+        this.leaveTypeCache = leaveTypeCache;
+        this.batchSize = connectionManager.getBatchSize();
     }
 
     @Override
     public Optional<LeaveBalance> findByEmployeeIdAndLeaveType(String employeeId, String leaveType) {
         
-    	String sql = "SELECT lb.balance_id, lb.emp_id, lt.leave_type_name, " +
-                     "lb.balance_days, lb.year, lb.last_updated " +
-                     "FROM leave_balances lb " +
-                     "JOIN leave_types lt ON lb.leave_type_id = lt.leave_type_id " +
-                     "WHERE LOWER(lb.emp_id) = LOWER(?) AND LOWER(lt.leave_type_name) = LOWER(?)";
-        
+        Optional<Integer> leaveTypeId = leaveTypeCache.resolveId(leaveType);
+        if (leaveTypeId.isEmpty()) {
+            return Optional.empty();
+        }
+
         try (Connection conn = connectionManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_EMPLOYEE_AND_TYPE_SQL)) {
             
-            stmt.setString(1, employeeId);
-            stmt.setString(2, leaveType);
+            stmt.setString(1, CanonicalKeys.employeeId(employeeId));
+            stmt.setInt(2, leaveTypeId.get());
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     return Optional.of(new LeaveBalance(
@@ -66,7 +87,7 @@ public class JdbcLeaveBalanceRepository implements ILeaveBalanceRepository, IRep
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, employeeId.toUpperCase());
+            stmt.setString(1, CanonicalKeys.employeeId(employeeId));
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     balances.add(new LeaveBalance(
@@ -87,22 +108,54 @@ public class JdbcLeaveBalanceRepository implements ILeaveBalanceRepository, IRep
     }
 
     @Override
-    public void save(LeaveBalance leaveBalance) {
-    	
-        String sql = "INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) " +
-                "VALUES (?, (SELECT leave_type_id FROM leave_types WHERE LOWER(leave_type_name) = LOWER(?)), ?, ?) " +
-                "ON CONFLICT (emp_id, leave_type_id, year) DO UPDATE " + // if exists, update balance_days 
-                "SET balance_days = ?, last_updated = CURRENT_TIMESTAMP";
+    public List<LeaveBalance> findByEmployeeIds(Collection<String> employeeIds) {
+        
+    	List<LeaveBalance> balances = new ArrayList<>();
+    	if (employeeIds.isEmpty()) {
+    		return balances;
+    	}
+        String sql = "SELECT lb.balance_id, lb.emp_id, lt.leave_type_name, " +
+                     "lb.balance_days, lb.year, lb.last_updated " +
+                     "FROM leave_balances lb " +
+                     "JOIN leave_types lt ON lb.leave_type_id = lt.leave_type_id " +
+                     "WHERE lb.emp_id = ANY(?)";
         
+        String[] ids = new String[employeeIds.size()];
+        int i = 0;
+        for (String employeeId : employeeIds) {
+            ids[i++] = CanonicalKeys.employeeId(employeeId);
+        }
+
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, leaveBalance.getEmpId());
-            stmt.setString(2, leaveBalance.getLeaveType());
-            stmt.setFloat(3, leaveBalance.getBalanceDays());
-            stmt.setInt(4, leaveBalance.getYear());
-            stmt.setFloat(5, leaveBalance.getBalanceDays());
+            stmt.setArray(1, conn.createArrayOf("varchar", ids));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.add(new LeaveBalance(
+                        rs.getInt("balance_id"),
+                        rs.getString("emp_id"),
+                        rs.getString("leave_type_name"),
+                        rs.getFloat("balance_days"),
+                        rs.getInt("year"),
+                        rs.getTimestamp("last_updated").toLocalDateTime()
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.severe("Error finding leave balances by employee ids: " + e.getMessage());
+        }
+        
+        return balances;
+    }
+
+    @Override
+    public void save(LeaveBalance leaveBalance) {
+    	
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
             
+            bindBalance(stmt, leaveBalance);
             stmt.executeUpdate();
         } catch (SQLException e) {
             LOGGER.severe("Error saving leave balance: " + e.getMessage());
@@ -113,14 +166,14 @@ public class JdbcLeaveBalanceRepository implements ILeaveBalanceRepository, IRep
     public void updateBalance(String employeeId, String leaveType, float newBalance) {
         
     	String sql = "UPDATE leave_balances SET balance_days = ?, last_updated = CURRENT_TIMESTAMP " +
-                     "WHERE emp_id = ? AND leave_type_id = (SELECT leave_type_id FROM leave_types WHERE LOWER(leave_type_name) = LOWER(?))";
+                     "WHERE emp_id = ? AND leave_type_id = ?";
         
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setFloat(1, newBalance);
-            stmt.setString(2, employeeId);
-            stmt.setString(3, leaveType);
+            stmt.setString(2, CanonicalKeys.employeeId(employeeId));
+            stmt.setInt(3, leaveTypeId(leaveType));
             
             stmt.executeUpdate();
         } catch (SQLException e) {
@@ -128,18 +181,117 @@ public class JdbcLeaveBalanceRepository implements ILeaveBalanceRepository, IRep
         }
     }
 
+	@Override
+	public void deductAll(List<LeaveBalance> deductions) throws DataPersistenceException {
+
+		try (Connection conn = connectionManager.getConnection()) {
+			JdbcBatchWriter.executeInChunks(conn, DEDUCT_SQL, deductions, batchSize, this::bindDeduction);
+		} catch (SQLException e) {
+			LOGGER.severe("Error deducting leave balances: " + e.getMessage());
+			throw new DataPersistenceException("Error deducting leave balances", e);
+		}
+	}
+
 	@Override
 	public void saveAll(List<LeaveBalance> entities) throws DataPersistenceException {
 		
+		List<LeaveBalance> balances = JdbcBatchWriter.lastWins(entities, JdbcLeaveBalanceRepository::balanceKey);
 		try (Connection conn = connectionManager.getConnection()) {
-			conn.setAutoCommit(false);
-			for (LeaveBalance entity : entities) {
-				save(entity);
-			}
-			conn.commit();
+			JdbcBatchWriter.executeInChunks(conn, UPSERT_SQL, balances, batchSize, this::bindBalance);
 		} catch (SQLException e) {
 			LOGGER.severe("Error saving leave balances: " + e.getMessage());
 			throw new DataPersistenceException("Error saving leave balances", e);
 		}
 	}
+
+	@Override
+	public List<Rejection<LeaveBalance>> bulkLoad(List<LeaveBalance> entities) throws DataPersistenceException {
+
+		// Leave types are resolved through the cache while staging; unknown ones are staged as NULL and rejected
+		String stagingDdl = "CREATE TEMP TABLE staging_leave_balances (seq BIGSERIAL, emp_id VARCHAR(10), "
+				+ "leave_type_id INT, balance_days REAL, year INT) ON COMMIT DROP";
+		String copySql = "COPY staging_leave_balances (emp_id, leave_type_id, balance_days, year) FROM STDIN WITH (FORMAT csv)";
+		String rejectedSql = "SELECT seq, 'has an unknown leave type' FROM staging_leave_balances WHERE leave_type_id IS NULL";
+		String mergeSql = "INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) "
+				+ "SELECT DISTINCT ON (emp_id, leave_type_id, year) emp_id, leave_type_id, balance_days, year "
+				+ "FROM staging_leave_balances WHERE leave_type_id IS NOT NULL "
+				+ "ORDER BY emp_id, leave_type_id, year, seq DESC "
+				+ "ON CONFLICT (emp_id, leave_type_id, year) DO UPDATE "
+				+ "SET balance_days = EXCLUDED.balance_days, last_updated = CURRENT_TIMESTAMP";
+
+		try (Connection conn = connectionManager.getConnection()) {
+			Map<Integer, String> reasons = PgBulkLoader.stageAndMerge(conn, stagingDdl, copySql, rejectedSql, mergeSql,
+					entities, (line, balance) -> line.add(CanonicalKeys.employeeId(balance.getEmpId()))
+							.add(leaveTypeCache.resolveId(balance.getLeaveType()).orElse(null))
+							.add(balance.getBalanceDays()).add(balance.getYear()));
+			List<Rejection<LeaveBalance>> rejected = new ArrayList<>();
+			for (Map.Entry<Integer, String> reason : reasons.entrySet()) {
+				LeaveBalance balance = entities.get(reason.getKey());
+				rejected.add(new Rejection<>(balance, balance.getLeaveType() + " balance of "
+						+ CanonicalKeys.employeeId(balance.getEmpId()) + " for " + balance.getYear() + " " + reason.getValue()));
+			}
+			return rejected;
+		} catch (SQLException e) {
+			LOGGER.severe("Error bulk loading leave balances: " + e.getMessage());
+			throw new DataPersistenceException("Error bulk loading leave balances", e);
+		}
+	}
+
+	@Override
+	public String naturalKey(LeaveBalance balance) {
+		return balanceKey(balance);
+	}
+
+	@Override
+	public String rowSignature(LeaveBalance balance) {
+		return balanceKey(balance) + "|" + balance.getBalanceDays();
+	}
+
+	@Override
+	public List<Rejection<LeaveBalance>> applyDelta(List<LeaveBalance> inserted, List<LeaveBalance> updated, List<String> deletedKeys)
+			throws DataPersistenceException {
+
+		String deleteSql = "DELETE FROM leave_balances WHERE emp_id = ? AND leave_type_id = ? AND year = ?";
+		List<LeaveBalance> changed = new ArrayList<>(inserted);
+		changed.addAll(updated);
+		saveAll(changed);
+
+		try (Connection conn = connectionManager.getConnection()) {
+			JdbcBatchWriter.executeInChunks(conn, deleteSql, deletedKeys, batchSize, (stmt, key) -> {
+				String[] parts = key.split("\\|");
+				stmt.setString(1, parts[0]);
+				stmt.setInt(2, leaveTypeId(parts[1]));
+				stmt.setInt(3, Integer.parseInt(parts[2]));
+			});
+		} catch (SQLException e) {
+			LOGGER.severe("Error deleting leave balances: " + e.getMessage());
+			throw new DataPersistenceException("Error deleting leave balances", e);
+		}
+		return Collections.emptyList();
+	}
+
+	// EMP_ID|leave type (lower case)|year, as used by lastWins and the ingest fingerprints
+	private static String balanceKey(LeaveBalance balance) {
+		return CanonicalKeys.employeeId(balance.getEmpId()) + "|" + balance.getLeaveType().toLowerCase() + "|" + balance.getYear();
+	}
+
+	private void bindBalance(PreparedStatement stmt, LeaveBalance leaveBalance) throws SQLException {
+		stmt.setString(1, CanonicalKeys.employeeId(leaveBalance.getEmpId()));
+		stmt.setInt(2, leaveTypeId(leaveBalance.getLeaveType()));
+		stmt.setFloat(3, leaveBalance.getBalanceDays());
+		stmt.setInt(4, leaveBalance.getYear());
+		stmt.setFloat(5, leaveBalance.getBalanceDays());
+	}
+
+	private void bindDeduction(PreparedStatement stmt, LeaveBalance deduction) throws SQLException {
+		stmt.setFloat(1, deduction.getBalanceDays());
+		stmt.setString(2, CanonicalKeys.employeeId(deduction.getEmpId()));
+		stmt.setInt(3, leaveTypeId(deduction.getLeaveType()));
+		stmt.setInt(4, deduction.getYear());
+	}
+
+	private int leaveTypeId(String leaveTypeName) throws SQLException {
+		return leaveTypeCache.resolveId(leaveTypeName)
+				.orElseThrow(() -> new SQLException("Unknown leave type: " + leaveTypeName));
+	}
 }
\ No newline at end of file
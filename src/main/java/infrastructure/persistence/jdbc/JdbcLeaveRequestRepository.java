@@ -3,24 +3,103 @@ package infrastructure.persistence.jdbc;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import common.exception.DataPersistenceException;
+import common.exception.InvalidLeaveRequestException;
 import domain.model.LeaveRequest;
 import domain.model.LeaveStatus;
+import domain.repository.IBulkRepository;
+import domain.repository.IDeltaRepository;
 import domain.repository.ILeaveRequestRepository;
-import domain.repository.IRepository;
+import domain.repository.Rejection;
+import infrastructure.persistence.CanonicalKeys;
 import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.cache.LeaveIntervalIndex;
+import infrastructure.persistence.cache.LeaveTypeCache;
 
-public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRepository<LeaveRequest> {
+public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IBulkRepository<LeaveRequest>,
+		IDeltaRepository<LeaveRequest> {
 
 	private static final Logger LOGGER = Logger.getLogger(JdbcLeaveRequestRepository.class.getName());
+	private static final String INSERT_SQL = "INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, "
+			+ "leave_days, status, remarks) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+	private static final String UPDATE_SQL = "UPDATE leave_requests SET leave_type_id = ?, "
+			+ "start_date = ?, end_date = ?, leave_days = ?, status = ?, remarks = ?, "
+			+ "updated_at = CURRENT_TIMESTAMP " + "WHERE request_id = ?";
+	// Requests have no natural key in the table, so incremental ingest matches rows on
+	// (emp_id, leave_type_id, start_date, end_date); the insert writes nothing when the row already
+	// exists, and applyDelta updates it instead. Ingested rows that would overlap a Pending or Approved
+	// request are not written either, rather than failing their whole batch on the
+	// leave_request_periods_no_overlap constraint, and applyDelta returns them as rejected
+	private static final String INSERT_IF_ABSENT_SQL = "INSERT INTO leave_requests (emp_id, leave_type_id, start_date, "
+			+ "end_date, leave_days, status, remarks) SELECT ?, ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM leave_requests "
+			+ "WHERE emp_id = ? AND leave_type_id = ? AND start_date = ? AND end_date = ?) "
+			+ "AND (? = 'Rejected' OR NOT EXISTS (SELECT 1 FROM leave_request_periods "
+			+ "WHERE emp_id = ? AND period && daterange(?, ?, '[]')))";
+	private static final String UPDATE_BY_KEY_SQL = "UPDATE leave_requests lr SET leave_days = ?, status = ?, remarks = ?, "
+			+ "updated_at = CURRENT_TIMESTAMP WHERE emp_id = ? AND leave_type_id = ? AND start_date = ? AND end_date = ? "
+			+ "AND (lr.status <> 'Rejected' OR ? = 'Rejected' OR NOT EXISTS (SELECT 1 FROM leave_request_periods p "
+			+ "WHERE p.emp_id = lr.emp_id AND p.period && daterange(lr.start_date, lr.end_date, '[]')))";
+	// Served by idx_leave_requests_natural_key; IndexUsageTest checks the plan
+	static final String DELETE_BY_KEY_SQL = "DELETE FROM leave_requests "
+			+ "WHERE emp_id = ? AND leave_type_id = ? AND start_date = ? AND end_date = ?";
+	private static final String EXISTS_BY_KEY_SQL = "SELECT 1 FROM leave_requests "
+			+ "WHERE emp_id = ? AND leave_type_id = ? AND start_date = ? AND end_date = ?";
+	// Staged rows bulkLoad leaves out: unknown leave types, and Pending or Approved rows that overlap a
+	// stored request or an earlier staged one
+	private static final String BULK_REJECTED_CONDITION = "s.leave_type_id IS NULL OR (s.status <> 'Rejected' AND ("
+			+ "EXISTS (SELECT 1 FROM leave_request_periods p WHERE p.emp_id = s.emp_id "
+			+ "AND p.period && daterange(s.start_date, s.end_date, '[]')) "
+			+ "OR EXISTS (SELECT 1 FROM staging_leave_requests o WHERE o.emp_id = s.emp_id AND o.seq < s.seq "
+			+ "AND o.leave_type_id IS NOT NULL AND o.status <> 'Rejected' "
+			+ "AND daterange(o.start_date, o.end_date, '[]') && daterange(s.start_date, s.end_date, '[]'))))";
+	private static final String OVERLAP_REASON = "overlaps a Pending or Approved leave request of the employee";
+	// Served by idx_leave_requests_emp_status_dates. The last start_date bound is implied by the
+	// overlap, but lets the planner prune older partitions.
+	static final String FIND_OVERLAPPING_SQL = "SELECT lr.request_id, lr.emp_id, lt.leave_type_name, "
+			+ "lr.start_date, lr.end_date, lr.leave_days, lr.status, lr.remarks FROM leave_requests lr "
+			+ "JOIN leave_types lt ON lr.leave_type_id = lt.leave_type_id "
+			+ "WHERE lr.emp_id = ? AND lr.status IN ('Pending', 'Approved') "
+			+ "AND lr.start_date <= ? AND lr.end_date >= ? AND lr.start_date >= ?";
+	// leave_requests is partitioned by start_date and its leave_requests_span check keeps a request
+	// within a year, so overlap checks only scan the partitions this far back from their range
+	static final int MAX_REQUEST_SPAN_DAYS = 366;
+	// exclusion_violation, raised by leave_request_periods_no_overlap
+	private static final String OVERLAP_SQL_STATE = "23P01";
 	private final DatabaseConnectionManager connectionManager;
+	private final LeaveTypeCache leaveTypeCache;
+	private final LeaveIntervalIndex intervalIndex; // null when overlap checks always query
+	private final OverlapCheck overlapCheck;
+	private final int batchSize;
+
+	// How findOverlappingRequests is answered
+	public enum OverlapCheck {
+		DATABASE, // range query on leave_requests
+		INDEX, // from the in-memory interval index; only overlapping rows are read back
+		VERIFY // both, logging any disagreement and trusting the database
+	}
+
+	public JdbcLeaveRequestRepository(DatabaseConnectionManager connectionManager, LeaveTypeCache leaveTypeCache) {
+		this(connectionManager, leaveTypeCache, null, OverlapCheck.DATABASE);
+	}
 
-	public JdbcLeaveRequestRepository(DatabaseConnectionManager connectionManager) {
+	public JdbcLeaveRequestRepository(DatabaseConnectionManager connectionManager, LeaveTypeCache leaveTypeCache,
+			LeaveIntervalIndex intervalIndex, OverlapCheck overlapCheck) {
 		this.connectionManager = connectionManager;
+		this.leaveTypeCache = leaveTypeCache;
+		this.intervalIndex = intervalIndex;
+		this.overlapCheck = intervalIndex == null ? OverlapCheck.DATABASE : overlapCheck;
+		this.batchSize = connectionManager.getBatchSize();
 	}
 
 	@Override
@@ -49,6 +128,35 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 		return Optional.empty();
 	}
 
+	@Override
+	public List<LeaveRequest> findByIds(Collection<Integer> requestIds) {
+
+		List<LeaveRequest> requests = new ArrayList<>();
+		if (requestIds.isEmpty()) {
+			return requests;
+		}
+		String sql = "SELECT lr.request_id, lr.emp_id, lt.leave_type_name, "
+				+ "lr.start_date, lr.end_date, lr.leave_days, lr.status, lr.remarks " + "FROM leave_requests lr "
+				+ "JOIN leave_types lt ON lr.leave_type_id = lt.leave_type_id " + "WHERE lr.request_id = ANY(?)";
+
+		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setArray(1, conn.createArrayOf("integer", requestIds.toArray(new Integer[0])));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					requests.add(new LeaveRequest(rs.getInt("request_id"), rs.getString("emp_id"),
+							rs.getString("leave_type_name"), rs.getDate("start_date").toLocalDate(),
+							rs.getDate("end_date").toLocalDate(), rs.getFloat("leave_days"),
+							LeaveStatus.fromString(rs.getString("status")), rs.getString("remarks")));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.severe("Error finding leave requests by ids: " + e.getMessage());
+		}
+
+		return requests;
+	}
+
 	@Override
 	public List<LeaveRequest> findByEmployeeId(String employeeId) {
 
@@ -59,7 +167,7 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 
 		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-			stmt.setString(1, employeeId);
+			stmt.setString(1, CanonicalKeys.employeeId(employeeId));
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					requests.add(new LeaveRequest(rs.getInt("request_id"), rs.getString("emp_id"),
@@ -75,6 +183,35 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 		return requests;
 	}
 
+	// Requests starting in the given year; reads only that year's partition
+	@Override
+	public List<LeaveRequest> findByEmployeeId(String employeeId, int year) {
+
+		List<LeaveRequest> requests = new ArrayList<>();
+		String sql = "SELECT lr.request_id, lr.emp_id, lt.leave_type_name, "
+				+ "lr.start_date, lr.end_date, lr.leave_days, lr.status, lr.remarks " + "FROM leave_requests lr "
+				+ "JOIN leave_types lt ON lr.leave_type_id = lt.leave_type_id "
+				+ "WHERE lr.emp_id = ? AND lr.start_date >= ? AND lr.start_date < ?";
+
+		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setString(1, CanonicalKeys.employeeId(employeeId));
+			bindYear(stmt, 2, year);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					requests.add(new LeaveRequest(rs.getInt("request_id"), rs.getString("emp_id"),
+							rs.getString("leave_type_name"), rs.getDate("start_date").toLocalDate(),
+							rs.getDate("end_date").toLocalDate(), rs.getInt("leave_days"),
+							LeaveStatus.fromString(rs.getString("status")), rs.getString("remarks")));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.severe("Error finding leave requests by employee id and year: " + e.getMessage());
+		}
+
+		return requests;
+	}
+
 	@Override
 	public List<LeaveRequest> findByEmployeeIdAndLeaveType(String employeeId, String leaveType) {
 
@@ -82,12 +219,17 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 		String sql = "SELECT lr.request_id, lr.emp_id, lt.leave_type_name, "
 				+ "lr.start_date, lr.end_date, lr.leave_days, lr.status, lr.remarks " + "FROM leave_requests lr "
 				+ "JOIN leave_types lt ON lr.leave_type_id = lt.leave_type_id "
-				+ "WHERE lr.emp_id = ? AND lt.leave_type_name = ?";
+				+ "WHERE lr.emp_id = ? AND lr.leave_type_id = ?";
+
+		Optional<Integer> leaveTypeId = leaveTypeCache.resolveId(leaveType);
+		if (leaveTypeId.isEmpty()) {
+			return requests;
+		}
 
 		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-			stmt.setString(1, employeeId);
-			stmt.setString(2, leaveType);
+			stmt.setString(1, CanonicalKeys.employeeId(employeeId));
+			stmt.setInt(2, leaveTypeId.get());
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					requests.add(new LeaveRequest(rs.getInt("request_id"), rs.getString("emp_id"),
@@ -129,8 +271,37 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 		return requests;
 	}
 
+	// Requests with the status that start in the given year; reads only that year's partition
+	@Override
+	public List<LeaveRequest> findByStatus(LeaveStatus status, int year) {
+
+		List<LeaveRequest> requests = new ArrayList<>();
+		String sql = "SELECT lr.request_id, lr.emp_id, lt.leave_type_name, "
+				+ "lr.start_date, lr.end_date, lr.leave_days, lr.status, lr.remarks " + "FROM leave_requests lr "
+				+ "JOIN leave_types lt ON lr.leave_type_id = lt.leave_type_id "
+				+ "WHERE lr.status = ? AND lr.start_date >= ? AND lr.start_date < ?";
+
+		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setString(1, status.getStatus());
+			bindYear(stmt, 2, year);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					requests.add(new LeaveRequest(rs.getInt("request_id"), rs.getString("emp_id"),
+							rs.getString("leave_type_name"), rs.getDate("start_date").toLocalDate(),
+							rs.getDate("end_date").toLocalDate(), rs.getFloat("leave_days"),
+							LeaveStatus.fromString(rs.getString("status")), rs.getString("remarks")));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.severe("Error finding leave requests by status and year: " + e.getMessage());
+		}
+
+		return requests;
+	}
+
 	@Override
-	public LeaveRequest save(LeaveRequest leaveRequest) {
+	public LeaveRequest save(LeaveRequest leaveRequest) throws InvalidLeaveRequestException {
 
 		if (leaveRequest.getRequestId() == 0) {
 
@@ -140,22 +311,11 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 		}
 	}
 
-	private LeaveRequest insert(LeaveRequest leaveRequest) {
-		String sql = "INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, "
-				+ "leave_days, status, remarks) "
-				+ "VALUES (?, (SELECT leave_type_id FROM leave_types WHERE LOWER(leave_type_name) = LOWER(?)), ?, ?, ?, ?, ?)";
-
+	private LeaveRequest insert(LeaveRequest leaveRequest) throws InvalidLeaveRequestException {
 		try (Connection conn = connectionManager.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-			stmt.setString(1, leaveRequest.getEmpId());
-			stmt.setString(2, leaveRequest.getLeaveTypeName());
-			stmt.setDate(3, Date.valueOf(leaveRequest.getStartDate()));
-			stmt.setDate(4, Date.valueOf(leaveRequest.getEndDate()));
-			stmt.setFloat(5, leaveRequest.getDays());
-			stmt.setString(6, leaveRequest.getStatus().getStatus());
-			stmt.setString(7, leaveRequest.getRemarks());
+				PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
+			bindInsert(stmt, leaveRequest);
 			stmt.executeUpdate();
 
 			try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
@@ -164,43 +324,50 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 					LeaveRequest newRequest = new LeaveRequest(requestId, leaveRequest.getEmpId(),
 							leaveRequest.getLeaveTypeName(), leaveRequest.getStartDate(), leaveRequest.getEndDate(),
 							leaveRequest.getDays(), leaveRequest.getStatus(), leaveRequest.getRemarks());
+					index(requestId, leaveRequest.getEmpId(), leaveRequest.getStartDate(), leaveRequest.getEndDate(),
+							leaveRequest.getStatus());
 					return newRequest;
 				}
 			}
 		} catch (SQLException e) {
+			rejectOverlap(e, leaveRequest);
 			LOGGER.severe("Error inserting leave request: " + e.getMessage());
 		}
 
 		return leaveRequest;
 	}
 
-	private LeaveRequest update(LeaveRequest leaveRequest) {
-		String sql = "UPDATE leave_requests SET leave_type_id = (SELECT leave_type_id FROM leave_types WHERE leave_type_name = ?), "
-				+ "start_date = ?, end_date = ?, leave_days = ?, status = ?, remarks = ?, "
-				+ "updated_at = CURRENT_TIMESTAMP " + "WHERE request_id = ?";
-
-		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			stmt.setString(1, leaveRequest.getLeaveTypeId());
-			stmt.setDate(2, Date.valueOf(leaveRequest.getStartDate()));
-			stmt.setDate(3, Date.valueOf(leaveRequest.getEndDate()));
-			stmt.setFloat(4, leaveRequest.getDays());
-			stmt.setString(5, leaveRequest.getStatus().getStatus());
-			stmt.setString(6, leaveRequest.getRemarks());
-			stmt.setInt(7, leaveRequest.getRequestId());
+	private LeaveRequest update(LeaveRequest leaveRequest) throws InvalidLeaveRequestException {
+		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
 
-			stmt.executeUpdate();
+			bindUpdate(stmt, leaveRequest);
+			if (stmt.executeUpdate() > 0) {
+				index(leaveRequest.getRequestId(), leaveRequest.getEmpId(), leaveRequest.getStartDate(),
+						leaveRequest.getEndDate(), leaveRequest.getStatus());
+			}
 		} catch (SQLException e) {
+			rejectOverlap(e, leaveRequest);
 			LOGGER.severe("Error updating leave request: " + e.getMessage());
 		}
 
 		return leaveRequest;
 	}
 
+	// The constraint is the last word on overlaps: it also catches a concurrent submission that
+	// passed LeaveService's overlap check at the same time as this one
+	private static void rejectOverlap(SQLException e, LeaveRequest leaveRequest) throws InvalidLeaveRequestException {
+		if (OVERLAP_SQL_STATE.equals(e.getSQLState())) {
+			throw new InvalidLeaveRequestException("Leave request overlaps with an existing request for employee "
+					+ leaveRequest.getEmpId() + " between " + leaveRequest.getStartDate() + " and "
+					+ leaveRequest.getEndDate());
+		}
+	}
+
 	@Override
-	public void updateStatus(int requestId, LeaveStatus status, String remarks) {
+	public void updateStatus(int requestId, LeaveStatus status, String remarks) throws InvalidLeaveRequestException {
+		// The period is returned so a request moving into or out of Rejected can be reindexed
 		String sql = "UPDATE leave_requests SET status = ?, remarks = ?, updated_at = CURRENT_TIMESTAMP "
-				+ "WHERE request_id = ?";
+				+ "WHERE request_id = ? RETURNING emp_id, start_date, end_date";
 
 		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
@@ -208,8 +375,18 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 			stmt.setString(2, remarks);
 			stmt.setInt(3, requestId);
 
-			stmt.executeUpdate();
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (rs.next()) {
+					index(requestId, rs.getString("emp_id"), rs.getDate("start_date").toLocalDate(),
+							rs.getDate("end_date").toLocalDate(), status);
+				}
+			}
 		} catch (SQLException e) {
+			// Reopening a Rejected request brings its period back into leave_request_periods
+			if (OVERLAP_SQL_STATE.equals(e.getSQLState())) {
+				throw new InvalidLeaveRequestException("Leave request " + requestId + " cannot become "
+						+ status.getStatus() + " because it overlaps another Pending or Approved request of the employee");
+			}
 			LOGGER.severe("Error updating leave request status: " + e.getMessage());
 		}
 	}
@@ -217,18 +394,38 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 	@Override
 	public List<LeaveRequest> findOverlappingRequests(String employeeId, LocalDate startDate, LocalDate endDate) {
 
-		List<LeaveRequest> requests = new ArrayList<>();
-		String sql = "SELECT lr.request_id, lr.emp_id, lt.leave_type_name, "
-				+ "lr.start_date, lr.end_date, lr.leave_days, lr.status, lr.remarks " + "FROM leave_requests lr "
-				+ "JOIN leave_types lt ON lr.leave_type_id = lt.leave_type_id "
-				+ "WHERE lr.emp_id = ? AND lr.status != 'Rejected' "
-				+ "AND (lr.start_date <= ? AND lr.end_date >= ?)";
+		if (overlapCheck == OverlapCheck.DATABASE || !intervalIndex.isWarmed()) {
+			return queryOverlappingRequests(employeeId, startDate, endDate);
+		}
 
-		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+		List<Integer> indexed = intervalIndex.findOverlapping(employeeId, startDate, endDate);
+		if (overlapCheck == OverlapCheck.INDEX) {
+			return findByIds(indexed);
+		}
+
+		List<LeaveRequest> requests = queryOverlappingRequests(employeeId, startDate, endDate);
+		Set<Integer> queried = new HashSet<>();
+		for (LeaveRequest request : requests) {
+			queried.add(request.getRequestId());
+		}
+		if (!queried.equals(new HashSet<>(indexed))) {
+			LOGGER.warning("Overlap index disagrees with leave_requests for " + employeeId + " " + startDate + " to "
+					+ endDate + ": index " + indexed + ", database " + queried + "; reloading the employee");
+			intervalIndex.reload(Collections.singletonList(employeeId));
+		}
+		return requests;
+	}
+
+	private List<LeaveRequest> queryOverlappingRequests(String employeeId, LocalDate startDate, LocalDate endDate) {
+
+		List<LeaveRequest> requests = new ArrayList<>();
+		try (Connection conn = connectionManager.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(FIND_OVERLAPPING_SQL)) {
 
-			stmt.setString(1, employeeId);
+			stmt.setString(1, CanonicalKeys.employeeId(employeeId));
 			stmt.setDate(2, Date.valueOf(endDate));
 			stmt.setDate(3, Date.valueOf(startDate));
+			stmt.setDate(4, Date.valueOf(startDate.minusDays(MAX_REQUEST_SPAN_DAYS)));
 
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
@@ -248,15 +445,218 @@ public class JdbcLeaveRequestRepository implements ILeaveRequestRepository, IRep
 	@Override
 	public void saveAll(List<LeaveRequest> entities) throws DataPersistenceException {
 
+		List<LeaveRequest> inserts = new ArrayList<>();
+		List<LeaveRequest> updates = new ArrayList<>();
+		for (LeaveRequest request : entities) {
+			(request.getRequestId() == 0 ? inserts : updates).add(request);
+		}
+
 		try (Connection conn = connectionManager.getConnection()) {
-			conn.setAutoCommit(false);
-			for (LeaveRequest request : entities) {
-				save(request);
-			}
-			conn.commit();
+			JdbcBatchWriter.executeInChunks(conn, INSERT_SQL, inserts, batchSize, this::bindInsert);
+			JdbcBatchWriter.executeInChunks(conn, UPDATE_SQL, updates, batchSize, this::bindUpdate);
 		} catch (SQLException e) {
 			LOGGER.severe("Error saving leave requests: " + e.getMessage());
 			throw new DataPersistenceException("Error saving leave requests", e);
+		} finally {
+			// Batched inserts do not return their request IDs, so the affected employees are re-read
+			reindex(empIds(entities));
 		}
 	}
+
+	@Override
+	public List<Rejection<LeaveRequest>> bulkLoad(List<LeaveRequest> entities) throws DataPersistenceException {
+
+		// Leave types are resolved through the cache while staging; unknown ones are staged as NULL
+		String stagingDdl = "CREATE TEMP TABLE staging_leave_requests (seq BIGSERIAL, emp_id VARCHAR(10), leave_type_id INT, "
+				+ "start_date DATE, end_date DATE, leave_days REAL, status VARCHAR(20), remarks VARCHAR(255)) ON COMMIT DROP";
+		String copySql = "COPY staging_leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status, remarks) "
+				+ "FROM STDIN WITH (FORMAT csv)";
+		String rejectedSql = "SELECT s.seq, CASE WHEN s.leave_type_id IS NULL THEN 'has an unknown leave type' "
+				+ "ELSE '" + OVERLAP_REASON + " or an earlier row of the load' END "
+				+ "FROM staging_leave_requests s WHERE " + BULK_REJECTED_CONDITION;
+		String mergeSql = "INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status, remarks) "
+				+ "SELECT s.emp_id, s.leave_type_id, s.start_date, s.end_date, s.leave_days, s.status, s.remarks "
+				+ "FROM staging_leave_requests s WHERE NOT (" + BULK_REJECTED_CONDITION + ") ORDER BY s.seq";
+
+		try (Connection conn = connectionManager.getConnection()) {
+			Map<Integer, String> reasons = PgBulkLoader.stageAndMerge(conn, stagingDdl, copySql, rejectedSql, mergeSql,
+					entities, (line, request) -> line.add(CanonicalKeys.employeeId(request.getEmpId()))
+							.add(leaveTypeCache.resolveId(request.getLeaveTypeName()).orElse(null))
+							.add(request.getStartDate()).add(request.getEndDate()).add(request.getDays())
+							.add(request.getStatus().getStatus()).add(request.getRemarks()));
+			List<Rejection<LeaveRequest>> rejected = new ArrayList<>();
+			for (Map.Entry<Integer, String> reason : reasons.entrySet()) {
+				LeaveRequest request = entities.get(reason.getKey());
+				rejected.add(new Rejection<>(request, describe(request) + " " + reason.getValue()));
+			}
+			return rejected;
+		} catch (SQLException e) {
+			LOGGER.severe("Error bulk loading leave requests: " + e.getMessage());
+			throw new DataPersistenceException("Error bulk loading leave requests", e);
+		} finally {
+			reindex(empIds(entities));
+		}
+	}
+
+	@Override
+	public String naturalKey(LeaveRequest request) {
+		return CanonicalKeys.employeeId(request.getEmpId()) + "|" + request.getLeaveTypeName().toLowerCase() + "|"
+				+ request.getStartDate() + "|" + request.getEndDate();
+	}
+
+	@Override
+	public String rowSignature(LeaveRequest request) {
+		return naturalKey(request) + "|" + request.getDays() + "|" + request.getStatus().getStatus() + "|"
+				+ request.getRemarks();
+	}
+
+	@Override
+	public List<Rejection<LeaveRequest>> applyDelta(List<LeaveRequest> inserted, List<LeaveRequest> updated,
+			List<String> deletedKeys) throws DataPersistenceException {
+
+		List<Rejection<LeaveRequest>> rejected = new ArrayList<>();
+		try (Connection conn = connectionManager.getConnection()) {
+			// Deletions go first, so a request whose dates changed in the file is not held up by its old row
+			JdbcBatchWriter.executeInChunks(conn, DELETE_BY_KEY_SQL, deletedKeys, batchSize, (stmt, key) -> {
+				String[] parts = key.split("\\|");
+				bindNaturalKey(stmt, 1, parts[0], parts[1], LocalDate.parse(parts[2]), LocalDate.parse(parts[3]));
+			});
+			List<LeaveRequest> notInserted = insertIfAbsent(conn, inserted);
+			List<LeaveRequest> notUpdated = updateByKey(conn, updated);
+
+			// A new row may already be stored (its fingerprint was lost) and a changed one may have been
+			// deleted since the last ingest; those are written the other way once. What is left overlaps.
+			List<LeaveRequest> toUpdate = new ArrayList<>();
+			List<LeaveRequest> toInsert = new ArrayList<>();
+			List<LeaveRequest> overlapping = new ArrayList<>();
+			for (LeaveRequest request : notInserted) {
+				(isStored(conn, request) ? toUpdate : overlapping).add(request);
+			}
+			for (LeaveRequest request : notUpdated) {
+				(isStored(conn, request) ? overlapping : toInsert).add(request);
+			}
+			overlapping.addAll(updateByKey(conn, toUpdate));
+			overlapping.addAll(insertIfAbsent(conn, toInsert));
+			for (LeaveRequest request : overlapping) {
+				rejected.add(new Rejection<>(request, describe(request) + " " + OVERLAP_REASON));
+			}
+		} catch (SQLException e) {
+			LOGGER.severe("Error applying leave request changes: " + e.getMessage());
+			throw new DataPersistenceException("Error applying leave request changes", e);
+		} finally {
+			Set<String> employeeIds = empIds(inserted);
+			employeeIds.addAll(empIds(updated));
+			for (String key : deletedKeys) {
+				employeeIds.add(key.substring(0, key.indexOf('|')));
+			}
+			reindex(employeeIds);
+		}
+		return rejected;
+	}
+
+	// Returns the requests that were not inserted, because they are already stored or would overlap
+	private List<LeaveRequest> insertIfAbsent(Connection conn, List<LeaveRequest> requests) throws SQLException {
+		return JdbcBatchWriter.executeReturningUnchanged(conn, INSERT_IF_ABSENT_SQL, requests, batchSize,
+				(stmt, request) -> {
+					bindInsert(stmt, request);
+					bindNaturalKey(stmt, 8, request.getEmpId(), request.getLeaveTypeName(), request.getStartDate(),
+							request.getEndDate());
+					stmt.setString(12, request.getStatus().getStatus());
+					stmt.setString(13, CanonicalKeys.employeeId(request.getEmpId()));
+					stmt.setDate(14, Date.valueOf(request.getStartDate()));
+					stmt.setDate(15, Date.valueOf(request.getEndDate()));
+				});
+	}
+
+	// Returns the requests that were not updated, because they are not stored or would overlap
+	private List<LeaveRequest> updateByKey(Connection conn, List<LeaveRequest> requests) throws SQLException {
+		return JdbcBatchWriter.executeReturningUnchanged(conn, UPDATE_BY_KEY_SQL, requests, batchSize,
+				(stmt, request) -> {
+					stmt.setFloat(1, request.getDays());
+					stmt.setString(2, request.getStatus().getStatus());
+					stmt.setString(3, request.getRemarks());
+					bindNaturalKey(stmt, 4, request.getEmpId(), request.getLeaveTypeName(), request.getStartDate(),
+							request.getEndDate());
+					stmt.setString(8, request.getStatus().getStatus());
+				});
+	}
+
+	private boolean isStored(Connection conn, LeaveRequest request) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(EXISTS_BY_KEY_SQL)) {
+			bindNaturalKey(stmt, 1, request.getEmpId(), request.getLeaveTypeName(), request.getStartDate(),
+					request.getEndDate());
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	private static String describe(LeaveRequest request) {
+		return request.getLeaveTypeName() + " leave of " + CanonicalKeys.employeeId(request.getEmpId()) + " from "
+				+ request.getStartDate() + " to " + request.getEndDate();
+	}
+
+	private void index(int requestId, String employeeId, LocalDate startDate, LocalDate endDate, LeaveStatus status) {
+		if (intervalIndex == null) {
+			return;
+		}
+		if (status == LeaveStatus.REJECTED) {
+			intervalIndex.remove(requestId);
+		} else {
+			intervalIndex.put(requestId, employeeId, startDate, endDate);
+		}
+	}
+
+	private void reindex(Collection<String> employeeIds) {
+		if (intervalIndex != null) {
+			intervalIndex.reload(employeeIds);
+		}
+	}
+
+	private static Set<String> empIds(List<LeaveRequest> requests) {
+		Set<String> employeeIds = new LinkedHashSet<>();
+		for (LeaveRequest request : requests) {
+			employeeIds.add(request.getEmpId());
+		}
+		return employeeIds;
+	}
+
+	// Binds [January 1st of year, January 1st of the next year) as two start_date bounds
+	private static void bindYear(PreparedStatement stmt, int firstIndex, int year) throws SQLException {
+		stmt.setDate(firstIndex, Date.valueOf(LocalDate.of(year, 1, 1)));
+		stmt.setDate(firstIndex + 1, Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+	}
+
+	private void bindNaturalKey(PreparedStatement stmt, int firstIndex, String employeeId, String leaveTypeName,
+			LocalDate startDate, LocalDate endDate) throws SQLException {
+		stmt.setString(firstIndex, CanonicalKeys.employeeId(employeeId));
+		stmt.setInt(firstIndex + 1, leaveTypeId(leaveTypeName));
+		stmt.setDate(firstIndex + 2, Date.valueOf(startDate));
+		stmt.setDate(firstIndex + 3, Date.valueOf(endDate));
+	}
+
+	private void bindInsert(PreparedStatement stmt, LeaveRequest leaveRequest) throws SQLException {
+		stmt.setString(1, CanonicalKeys.employeeId(leaveRequest.getEmpId()));
+		stmt.setInt(2, leaveTypeId(leaveRequest.getLeaveTypeName()));
+		stmt.setDate(3, Date.valueOf(leaveRequest.getStartDate()));
+		stmt.setDate(4, Date.valueOf(leaveRequest.getEndDate()));
+		stmt.setFloat(5, leaveRequest.getDays());
+		stmt.setString(6, leaveRequest.getStatus().getStatus());
+		stmt.setString(7, leaveRequest.getRemarks());
+	}
+
+	private void bindUpdate(PreparedStatement stmt, LeaveRequest leaveRequest) throws SQLException {
+		stmt.setInt(1, leaveTypeId(leaveRequest.getLeaveTypeName()));
+		stmt.setDate(2, Date.valueOf(leaveRequest.getStartDate()));
+		stmt.setDate(3, Date.valueOf(leaveRequest.getEndDate()));
+		stmt.setFloat(4, leaveRequest.getDays());
+		stmt.setString(5, leaveRequest.getStatus().getStatus());
+		stmt.setString(6, leaveRequest.getRemarks());
+		stmt.setInt(7, leaveRequest.getRequestId());
+	}
+
+	private int leaveTypeId(String leaveTypeName) throws SQLException {
+		return leaveTypeCache.resolveId(leaveTypeName)
+				.orElseThrow(() -> new SQLException("Unknown leave type: " + leaveTypeName));
+	}
 }
\ No newline at end of file
@@ -2,93 +2,63 @@ package infrastructure.persistence.jdbc;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
 
 import common.exception.DataPersistenceException;
 import domain.model.LeaveType;
+import domain.repository.IDeltaRepository;
 import domain.repository.ILeaveTypeRepository;
 import domain.repository.IRepository;
+import domain.repository.Rejection;
 import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.cache.LeaveTypeCache;
 
-public class JdbcLeaveTypeRepository implements ILeaveTypeRepository, IRepository<LeaveType> {
+public class JdbcLeaveTypeRepository implements ILeaveTypeRepository, IRepository<LeaveType>, IDeltaRepository<LeaveType> {
 	private static final Logger LOGGER = Logger.getLogger(JdbcLeaveTypeRepository.class.getName());
+	private static final String INSERT_SQL = "INSERT INTO leave_types (leave_type_name, default_balance) VALUES (?, ?)";
+	private static final String UPDATE_SQL = "UPDATE leave_types SET leave_type_name = ? WHERE leave_type_id = ?";
 	private final DatabaseConnectionManager connectionManager;
+	private final LeaveTypeCache leaveTypeCache;
+	private final int batchSize;
 
-	public JdbcLeaveTypeRepository(DatabaseConnectionManager connectionManager) {
+	public JdbcLeaveTypeRepository(DatabaseConnectionManager connectionManager, LeaveTypeCache leaveTypeCache) {
 		this.connectionManager = connectionManager;
+		this.leaveTypeCache = leaveTypeCache;
+		this.batchSize = connectionManager.getBatchSize();
 	}
 
 	@Override
 	public Optional<LeaveType> findById(int id) {
-
-		String sql = "SELECT leave_type_id, leave_type_name, leave_default  FROM leave_types WHERE leave_type_id = ?";
-
-		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			stmt.setInt(1, id);
-			try (ResultSet rs = stmt.executeQuery()) {
-				if (rs.next()) {
-					return Optional.of(new LeaveType(rs.getInt("leave_type_id"), rs.getString("leave_type_name"),
-							rs.getInt("default_balance")));
-				}
-			}
-		} catch (SQLException e) {
-			LOGGER.severe("Error finding leave type by id: " + e.getMessage());
-		}
-
-		return Optional.empty();
+		return leaveTypeCache.findById(id);
 	}
 
 	@Override
 	public Optional<LeaveType> findByName(String name) {
-
-		List<LeaveType> leaveTypes = findAll();
-		return leaveTypes.stream()
-				.filter(lt -> lt.getLeaveTypeName().equalsIgnoreCase(name))
-				.findFirst();
+		return leaveTypeCache.findByName(name);
 	}
 
 	@Override
 	public List<LeaveType> findAll() {
-		List<LeaveType> leaveTypes = new ArrayList<>();
-		String sql = "SELECT leave_type_id, leave_type_name, default_balance FROM leave_types";
-
-		try (Connection conn = connectionManager.getConnection();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(sql)) {
-
-			while (rs.next()) {
-
-				leaveTypes.add(new LeaveType(rs.getInt("leave_type_id"), rs.getString("leave_type_name"),
-						rs.getInt("default_balance")));
-			}
-		} catch (SQLException e) {
-			LOGGER.severe("Error finding all leave types: " + e.getMessage());
-		}
-
-		return leaveTypes;
+		return leaveTypeCache.findAll();
 	}
 
 	@Override
 	public LeaveType save(LeaveType leaveType) {
 
-		if (leaveType.getLeaveTypeId() == 0) {
-			return insert(leaveType);
-		} else {
-			return update(leaveType);
-		}
+		LeaveType saved = leaveType.getLeaveTypeId() == 0 ? insert(leaveType) : update(leaveType);
+		leaveTypeCache.reload();
+		return saved;
 	}
 
 	private LeaveType insert(LeaveType leaveType) {
 
-		String sql = "INSERT INTO leave_types (leave_type_name) VALUES (?, ?)";
 		try (Connection conn = connectionManager.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+				PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
-			stmt.setString(1, leaveType.getLeaveTypeName());
-			stmt.setInt(2, leaveType.getDefaultBalance());
+			bindInsert(stmt, leaveType);
 			stmt.executeUpdate();
 
 			try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
@@ -106,11 +76,9 @@ public class JdbcLeaveTypeRepository implements ILeaveTypeRepository, IRepositor
 
 	private LeaveType update(LeaveType leaveType) {
 
-		String sql = "UPDATE leave_types SET leave_type_name = ? WHERE leave_type_id = ?";
-		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+		try (Connection conn = connectionManager.getConnection(); PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
 
-			stmt.setString(1, leaveType.getLeaveTypeName());
-			stmt.setInt(2, leaveType.getLeaveTypeId());
+			bindUpdate(stmt, leaveType);
 			stmt.executeUpdate();
 		} catch (SQLException e) {
 			LOGGER.severe("Error updating leave type: " + e.getMessage());
@@ -122,16 +90,53 @@ public class JdbcLeaveTypeRepository implements ILeaveTypeRepository, IRepositor
 	@Override
 	public void saveAll(List<LeaveType> entities) throws DataPersistenceException {
 
+		// Every workbook row carries its leave type, so collapse them before writing
+		List<LeaveType> inserts = new ArrayList<>();
+		List<LeaveType> updates = new ArrayList<>();
+		for (LeaveType leaveType : JdbcBatchWriter.lastWins(entities, lt -> lt.getLeaveTypeId() == 0
+				? "new:" + lt.getLeaveTypeName().toLowerCase() : "id:" + lt.getLeaveTypeId())) {
+			(leaveType.getLeaveTypeId() == 0 ? inserts : updates).add(leaveType);
+		}
+
 		try (Connection conn = connectionManager.getConnection()) {
 
-			conn.setAutoCommit(false);
-			for (LeaveType leaveType : entities) {
-				save(leaveType);
-			}
-			conn.commit();
-			conn.setAutoCommit(true);
+			JdbcBatchWriter.executeInChunks(conn, INSERT_SQL, inserts, batchSize, this::bindInsert);
+			JdbcBatchWriter.executeInChunks(conn, UPDATE_SQL, updates, batchSize, this::bindUpdate);
 		} catch (SQLException e) {
+			LOGGER.severe("Error saving leave types: " + e.getMessage());
 			throw new DataPersistenceException("Failed to save leave types", e);
+		} finally {
+			leaveTypeCache.reload();
 		}
 	}
+
+	@Override
+	public String naturalKey(LeaveType leaveType) {
+		return leaveType.getLeaveTypeName().toLowerCase();
+	}
+
+	@Override
+	public String rowSignature(LeaveType leaveType) {
+		return leaveType.getLeaveTypeId() + "|" + leaveType.getLeaveTypeName() + "|" + leaveType.getDefaultBalance();
+	}
+
+	// Leave types are shared by every workbook and referenced by balances and requests; never deleted here
+	@Override
+	public List<Rejection<LeaveType>> applyDelta(List<LeaveType> inserted, List<LeaveType> updated, List<String> deletedKeys)
+			throws DataPersistenceException {
+		List<LeaveType> changed = new ArrayList<>(inserted);
+		changed.addAll(updated);
+		saveAll(changed);
+		return Collections.emptyList();
+	}
+
+	private void bindInsert(PreparedStatement stmt, LeaveType leaveType) throws SQLException {
+		stmt.setString(1, leaveType.getLeaveTypeName());
+		stmt.setInt(2, leaveType.getDefaultBalance());
+	}
+
+	private void bindUpdate(PreparedStatement stmt, LeaveType leaveType) throws SQLException {
+		stmt.setString(1, leaveType.getLeaveTypeName());
+		stmt.setInt(2, leaveType.getLeaveTypeId());
+	}
 }
\ No newline at end of file
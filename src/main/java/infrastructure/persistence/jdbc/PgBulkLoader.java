@@ -0,0 +1,135 @@
+package infrastructure.persistence.jdbc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+// Bulk path for first-time loads: COPY the rows into a temporary staging table, then merge
+// them into the real table with one set-based statement, all in a single transaction
+final class PgBulkLoader {
+
+	private static final Logger LOGGER = Logger.getLogger(PgBulkLoader.class.getName());
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	@FunctionalInterface
+	interface CsvRowWriter<T> {
+		void write(CsvLine line, T entity);
+	}
+
+	private PgBulkLoader() {
+	}
+
+	// Returns the number of rows the merge statement inserted or updated
+	static <T> int stageAndMerge(Connection conn, String stagingDdl, String copySql, String mergeSql,
+			List<T> entities, CsvRowWriter<T> rowWriter) throws SQLException {
+		return stageAndMerge(conn, stagingDdl, copySql, null, mergeSql, entities, rowWriter, null);
+	}
+
+	// As above, but first runs rejectedSql, which selects (seq, reason) for the staged rows the merge
+	// leaves out; seq is a BIGSERIAL of the staging table, so it numbers the rows from 1 in list order.
+	// Returns the reasons keyed by index into entities.
+	static <T> Map<Integer, String> stageAndMerge(Connection conn, String stagingDdl, String copySql,
+			String rejectedSql, String mergeSql, List<T> entities, CsvRowWriter<T> rowWriter) throws SQLException {
+		Map<Integer, String> rejected = new LinkedHashMap<>();
+		stageAndMerge(conn, stagingDdl, copySql, rejectedSql, mergeSql, entities, rowWriter, rejected);
+		return rejected;
+	}
+
+	private static <T> int stageAndMerge(Connection conn, String stagingDdl, String copySql, String rejectedSql,
+			String mergeSql, List<T> entities, CsvRowWriter<T> rowWriter, Map<Integer, String> rejected)
+			throws SQLException {
+
+		if (entities.isEmpty()) {
+			return 0;
+		}
+
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try (Statement stmt = conn.createStatement()) {
+
+			stmt.execute(stagingDdl);
+			copy(conn, copySql, entities, rowWriter);
+			if (rejectedSql != null) {
+				try (ResultSet rs = stmt.executeQuery(rejectedSql + " ORDER BY 1")) {
+					while (rs.next()) {
+						rejected.put((int) rs.getLong(1) - 1, rs.getString(2));
+					}
+				}
+			}
+			int merged = stmt.executeUpdate(mergeSql);
+			conn.commit();
+
+			if (merged < entities.size()) {
+				LOGGER.info(String.format("Bulk load merged %d of %d staged rows (duplicates collapsed or rows rejected)",
+						merged, entities.size()));
+			}
+			return merged;
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	private static <T> void copy(Connection conn, String copySql, List<T> entities, CsvRowWriter<T> rowWriter)
+			throws SQLException {
+
+		PGConnection pgConnection = conn.unwrap(PGConnection.class);
+		CsvLine line = new CsvLine();
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(
+				new PGCopyOutputStream(pgConnection, copySql, COPY_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+			for (T entity : entities) {
+				line.reset();
+				rowWriter.write(line, entity);
+				out.append(line.toCsv()).append('\n');
+			}
+		} catch (IOException e) {
+			throw new SQLException("COPY into staging table failed: " + e.getMessage(), e);
+		}
+	}
+
+	// One CSV record for COPY ... WITH (FORMAT csv); null values become unquoted empty fields (NULL)
+	static final class CsvLine {
+
+		private final StringBuilder buffer = new StringBuilder(128);
+		private boolean first = true;
+
+		CsvLine add(Object value) {
+			separator();
+			if (value != null) {
+				buffer.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+			}
+			return this;
+		}
+
+		private void separator() {
+			if (!first) {
+				buffer.append(',');
+			}
+			first = false;
+		}
+
+		private void reset() {
+			buffer.setLength(0);
+			first = true;
+		}
+
+		private CharSequence toCsv() {
+			return buffer;
+		}
+	}
+}
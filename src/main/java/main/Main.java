@@ -2,11 +2,17 @@ package main;
 
 import infrastructure.file.parsers.*;
 import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.PartitionMaintainer;
 import infrastructure.persistence.SchemaManager;
+import infrastructure.persistence.cache.CachedLeaveBalanceRepository;
+import infrastructure.persistence.cache.EmployeeExistenceCache;
+import infrastructure.persistence.cache.LeaveIntervalIndex;
+import infrastructure.persistence.cache.LeaveTypeCache;
 import infrastructure.persistence.jdbc.*;
 import presentation.ApplicationRunner;
 import application.services.FileProcessingService;
 import application.services.LeaveService;
+import application.services.WorkbookIngestService;
 import domain.model.Employee;
 import domain.model.LeaveBalance;
 import domain.model.LeaveRequest;
@@ -28,17 +34,39 @@ public class Main {
 			// Initialize database connection
 			DatabaseConnectionManager dbManager = DatabaseConnectionManager.getInstance();
 
-			// Initialize database schema
-			SchemaManager.initializeSchema(getSchemaDirectory());
+			// Apply any new schema migrations; data from earlier runs is kept
+			SchemaManager.initializeSchema();
+			// leave_requests and leave_balances are partitioned by year; keep next year's partitions ready
+			new PartitionMaintainer(dbManager, 1).start();
+			// Leave types are shared by every repository that resolves leave_type_id
+			LeaveTypeCache leaveTypeCache = new LeaveTypeCache(dbManager);
+			leaveTypeCache.reload();
+			// Rejects unknown employee IDs without a query; the ingest below adds new IDs as it saves them
+			EmployeeExistenceCache employeeExistenceCache = new EmployeeExistenceCache(dbManager);
+			employeeExistenceCache.warm();
+			// Overlap checks for new requests are answered from memory; repositories keep it current
+			LeaveIntervalIndex leaveIntervalIndex = new LeaveIntervalIndex(dbManager);
+			leaveIntervalIndex.warm();
+
 			// Initialize repositories
-			JdbcEmployeeRepository employeeRepository = new JdbcEmployeeRepository(dbManager);
-			JdbcLeaveBalanceRepository leaveBalanceRepository = new JdbcLeaveBalanceRepository(dbManager);
-			JdbcLeaveRequestRepository leaveRequestRepository = new JdbcLeaveRequestRepository(dbManager);
-			JdbcLeaveTypeRepository leaveTypeRepository = new JdbcLeaveTypeRepository(dbManager);
+			JdbcEmployeeRepository employeeRepository = new JdbcEmployeeRepository(dbManager, employeeExistenceCache);
+			// Balance reads are served from memory and updates are written in batches every second.
+			// Approvals flush the employee's pending updates synchronously and deduct in their own
+			// transaction, so an acknowledged deduction is never lost.
+			CachedLeaveBalanceRepository leaveBalanceRepository = new CachedLeaveBalanceRepository(
+					new JdbcLeaveBalanceRepository(dbManager, leaveTypeCache), 1000,
+					CachedLeaveBalanceRepository.Durability.SYNC_ON_APPROVE);
+			Runtime.getRuntime().addShutdownHook(new Thread(leaveBalanceRepository::close, "leave-balance-shutdown"));
+			JdbcLeaveRequestRepository leaveRequestRepository = new JdbcLeaveRequestRepository(dbManager, leaveTypeCache,
+					leaveIntervalIndex, JdbcLeaveRequestRepository.OverlapCheck.INDEX);
+			JdbcLeaveTypeRepository leaveTypeRepository = new JdbcLeaveTypeRepository(dbManager, leaveTypeCache);
+			JdbcLeaveApprovalRepository leaveApprovalRepository = new JdbcLeaveApprovalRepository(dbManager, leaveTypeCache,
+					leaveIntervalIndex);
+			JdbcIngestFingerprintRepository fingerprintRepository = new JdbcIngestFingerprintRepository(dbManager);
 
 			// Initialize leave service
 			LeaveService leaveService = new LeaveService(leaveRequestRepository, leaveBalanceRepository, employeeRepository,
-                    leaveTypeRepository );
+                    leaveTypeRepository, leaveApprovalRepository);
 			// Start the application
 			
 			// Set up data directory
@@ -48,20 +76,35 @@ public class Main {
 
 			// Initialize data processing services
 			FileProcessingService<LeaveType> leaveTypeProcess = new FileProcessingService<>(new LeaveTypeXlsxParser(),
-					new FileValidator(), dataDirectory, leaveTypeRepository);
+					new FileValidator(), dataDirectory, leaveTypeRepository, fingerprintRepository);
 			FileProcessingService<Employee> employeeProcess = new FileProcessingService<>(new EmployeeXlsxParser(),
-					new FileValidator(), dataDirectory, employeeRepository);
+					new FileValidator(), dataDirectory, employeeRepository, fingerprintRepository);
 			
 			FileProcessingService<LeaveRequest> leaveRequestProcess = new FileProcessingService<>(
-					new LeaveRequestXlsxParser(), new FileValidator(), dataDirectory, leaveRequestRepository);
+					new LeaveRequestXlsxParser(), new FileValidator(), dataDirectory, leaveRequestRepository, fingerprintRepository);
 			FileProcessingService<LeaveBalance> leaveBalanceProcess = new FileProcessingService<>(
-					new LeaveBalanceXlsxParser(), new FileValidator(), dataDirectory, leaveBalanceRepository);
+					new LeaveBalanceXlsxParser(), new FileValidator(), dataDirectory, leaveBalanceRepository, fingerprintRepository);
+
+			// The database survives restarts, so only rows that changed since the last ingest are written.
+			// A bad row stops the ingest unless -Dingest.rejectedDirectory=<dir> is given; then the rows that
+			// cannot be loaded are saved to a CSV there and the rest are still written.
+			String rejectedDirectory = System.getProperty("ingest.rejectedDirectory");
+			for (FileProcessingService<?> process : Arrays.asList(leaveTypeProcess, employeeProcess,
+					leaveRequestProcess, leaveBalanceProcess)) {
+				process.setIngestMode(FileProcessingService.IngestMode.INCREMENTAL);
+				if (rejectedDirectory != null) {
+					process.setErrorMode(FileProcessingService.ErrorMode.LENIENT, Paths.get(rejectedDirectory));
+				}
+			}
 
-			// Process initial data files
-			leaveTypeProcess.processFiles(files);
-			employeeProcess.processFiles(files);
-			leaveRequestProcess.processFiles(files);
-			leaveBalanceProcess.processFiles(files);
+			// Process initial data files, reading each workbook once for all four entities
+			WorkbookIngestService ingestService = new WorkbookIngestService(
+					Arrays.asList(leaveTypeProcess, employeeProcess, leaveRequestProcess, leaveBalanceProcess),
+					new FileValidator());
+			if (rejectedDirectory != null) {
+				ingestService.setErrorMode(FileProcessingService.ErrorMode.LENIENT, Paths.get(rejectedDirectory));
+			}
+			ingestService.processFiles(files);
 
 			// Configure and run application
 			ApplicationRunner runner = new ApplicationRunner(leaveService);
@@ -90,12 +133,4 @@ public class Main {
 
 		return directory;
 	}
-
-	private static String getSchemaDirectory() {
-		String sep = File.separator;
-		String pathToSchema= System.getProperty("user.dir") + sep + "src" + sep + "main" + sep + "resources" + sep
-				+ "schema"+sep+"leave_management_schema.sql";
-
-		return pathToSchema;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,360 @@
+package tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbookType;
+
+// Writes leave workbooks in the layout of the files in src/main/resources/data, for load testing the
+// ingest. Rows are streamed with SXSSF, so only a small window of rows is held in memory and files
+// with millions of rows can be generated. The same seed always produces the same workbook.
+//
+// Usage: WorkbookGenerator <output.xlsm|output.xlsx> [--employees N] [--requests-per-employee D]
+//        [--leave-types Sick=1,Casual=1,Paid=1] [--error-rate R] [--year Y] [--seed S]
+// An output given as a bare file name is written to target/workbooks. The sample workbooks the
+// application ships in src/main/resources/data are never overwritten.
+public class WorkbookGenerator {
+
+	public static final String[] HEADERS = { "EMP_ID", "EMP_NAME", "DEPARTMENT", "LEAVE_TYPE", "LEAVE_START_DATE",
+			"LEAVE_END_DATE", "LEAVE_DAYS", "LEAVE_STATUS", "REMARKS", "BALANCE_LEAVE" };
+
+	// Each injected error makes at least one of the parsers throw a DataParseException (a misspelt
+	// leave type fails LeaveTypeXlsxParser), so a lenient workbook ingest reports the row in its
+	// dead-letter file instead of failing
+	public enum InjectedError { MISSING_DATE, BAD_DATE, BAD_DAYS, BAD_STATUS, BAD_LEAVE_TYPE, BAD_BALANCE }
+
+	public static final Path DEFAULT_OUTPUT_DIRECTORY = Paths.get("target", "workbooks");
+	private static final Path SHIPPED_DATA_DIRECTORY = Paths.get("src", "main", "resources", "data");
+
+	private static final int ROW_WINDOW = 100;
+	private static final int MAX_LEAVE_DAYS = 5;
+	// Requests of one employee never overlap, so at most one every two days of the year
+	private static final double MAX_REQUESTS_PER_EMPLOYEE = 180;
+
+	private static final String[] FIRST_NAMES = { "John", "Jane", "Alice", "Bob", "Charlie", "Diana", "Ethan", "Fiona",
+			"George", "Hannah", "Ivan", "Julia", "Kevin", "Laura", "Michael", "Nina" };
+	private static final String[] LAST_NAMES = { "Doe", "Smith", "Johnson", "Brown", "Wilson", "Taylor", "Clark",
+			"Lewis", "Walker", "Young", "King", "Wright" };
+	private static final String[] DEPARTMENTS = { "IT", "HR", "Finance", "Sales", "Marketing" };
+	private static final String[] STATUSES = { "Approved", "Approved", "Pending", "Rejected" };
+	private static final Map<String, String[]> REMARKS = new LinkedHashMap<>();
+	private static final Map<String, Float> ENTITLEMENTS = new LinkedHashMap<>();
+
+	static {
+		REMARKS.put("Sick", new String[] { "Fever", "Cold", "Flu", "Back Pain", "Injury", "Stomach", "Medical" });
+		REMARKS.put("Casual", new String[] { "Personal", "Family Event", "Travel", "Medical" });
+		REMARKS.put("Paid", new String[] { "Vacation", "Conference", "Travel", "Family Event" });
+		ENTITLEMENTS.put("Sick", 10f);
+		ENTITLEMENTS.put("Casual", 12f);
+		ENTITLEMENTS.put("Paid", 20f);
+	}
+
+	private final int employees;
+	private final double requestsPerEmployee;
+	private final String[] leaveTypes;
+	private final int[] cumulativeWeights;
+	private final double errorRate;
+	private final int year;
+	private final long seed;
+
+	public WorkbookGenerator(int employees, double requestsPerEmployee, Map<String, Integer> leaveTypeWeights,
+			double errorRate, int year, long seed) {
+
+		if (employees < 1) {
+			throw new IllegalArgumentException("employees must be positive, got " + employees);
+		}
+		if (requestsPerEmployee <= 0 || requestsPerEmployee > MAX_REQUESTS_PER_EMPLOYEE) {
+			throw new IllegalArgumentException("requestsPerEmployee must be in (0, " + MAX_REQUESTS_PER_EMPLOYEE
+					+ "], got " + requestsPerEmployee);
+		}
+		if (errorRate < 0 || errorRate > 1) {
+			throw new IllegalArgumentException("errorRate must be between 0 and 1, got " + errorRate);
+		}
+		this.employees = employees;
+		this.requestsPerEmployee = requestsPerEmployee;
+		this.leaveTypes = new String[leaveTypeWeights.size()];
+		this.cumulativeWeights = new int[leaveTypeWeights.size()];
+		int total = 0;
+		int i = 0;
+		for (Map.Entry<String, Integer> weight : leaveTypeWeights.entrySet()) {
+			String type = canonicalLeaveType(weight.getKey());
+			if (weight.getValue() < 0) {
+				throw new IllegalArgumentException("Negative weight for leave type " + type);
+			}
+			total += weight.getValue();
+			leaveTypes[i] = type;
+			cumulativeWeights[i++] = total;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("At least one leave type needs a positive weight");
+		}
+		this.errorRate = errorRate;
+		this.year = year;
+		this.seed = seed;
+	}
+
+	// Equal weights for the three leave types, no injected errors
+	public static WorkbookGenerator clean(int employees, double requestsPerEmployee, int year, long seed) {
+		return new WorkbookGenerator(employees, requestsPerEmployee, parseWeights("Sick=1,Casual=1,Paid=1"), 0, year,
+				seed);
+	}
+
+	// Writes the workbook; a path ending in .xlsm gets a macro-enabled workbook like the sample files
+	public Summary write(Path file) throws IOException {
+
+		boolean macroEnabled = file.getFileName().toString().toLowerCase().endsWith(".xlsm");
+		XSSFWorkbook template = new XSSFWorkbook(macroEnabled ? XSSFWorkbookType.XLSM : XSSFWorkbookType.XLSX);
+		SXSSFWorkbook workbook = new SXSSFWorkbook(template, ROW_WINDOW);
+		workbook.setCompressTempFiles(true);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			CellStyle dateStyle = workbook.createCellStyle();
+			dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd-mmm-yyyy"));
+
+			Sheet sheet = workbook.createSheet("Leave");
+			Row header = sheet.createRow(0);
+			for (int i = 0; i < HEADERS.length; i++) {
+				header.createCell(i).setCellValue(HEADERS[i]);
+			}
+
+			Summary summary = new Summary();
+			Random random = new Random(seed);
+			LocalDate firstDay = LocalDate.of(year, 1, 1);
+			int daysInYear = firstDay.lengthOfYear();
+			Map<String, Float> balances = new LinkedHashMap<>();
+			int rowIndex = 1;
+			for (int employee = 0; employee < employees; employee++) {
+				String empId = "E" + (101 + employee);
+				String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+						+ LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+				String department = DEPARTMENTS[random.nextInt(DEPARTMENTS.length)];
+				balances.clear();
+
+				// The fractional part of the density is the chance of one extra request
+				int requests = (int) requestsPerEmployee;
+				if (random.nextDouble() < requestsPerEmployee - requests) {
+					requests++;
+				}
+				if (requests == 0) {
+					continue;
+				}
+				// One request per slot of the year keeps an employee's requests apart and in date order
+				int slot = daysInYear / requests;
+				for (int request = 0; request < requests; request++) {
+					String leaveType = pickLeaveType(random);
+					int days = 1 + random.nextInt(Math.min(MAX_LEAVE_DAYS, slot - 1));
+					LocalDate start = firstDay.plusDays((long) request * slot + random.nextInt(slot - days + 1));
+					String status = STATUSES[random.nextInt(STATUSES.length)];
+					String[] remarks = REMARKS.get(leaveType);
+
+					// Approved requests are deducted, so the balance column falls through the year
+					float balance = balances.containsKey(leaveType) ? balances.get(leaveType) : ENTITLEMENTS.get(leaveType);
+					if ("Approved".equals(status)) {
+						balance = Math.max(0, balance - days);
+					}
+					balances.put(leaveType, balance);
+
+					Row row = sheet.createRow(rowIndex++);
+					row.createCell(0).setCellValue(empId);
+					row.createCell(1).setCellValue(name);
+					row.createCell(2).setCellValue(department);
+					row.createCell(3).setCellValue(leaveType);
+					setDate(row, 4, start, dateStyle);
+					setDate(row, 5, start.plusDays(days - 1), dateStyle);
+					row.createCell(6).setCellValue(days);
+					row.createCell(7).setCellValue(status);
+					row.createCell(8).setCellValue(remarks[random.nextInt(remarks.length)]);
+					row.createCell(9).setCellValue(balance);
+
+					if (errorRate > 0 && random.nextDouble() < errorRate) {
+						summary.injected(inject(row, random));
+					}
+					summary.rows++;
+				}
+			}
+			workbook.write(out);
+			return summary;
+		} finally {
+			workbook.close(); // also deletes the temporary sheet files
+		}
+	}
+
+	private String pickLeaveType(Random random) {
+		int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (pick < cumulativeWeights[i]) {
+				return leaveTypes[i];
+			}
+		}
+		return leaveTypes[leaveTypes.length - 1];
+	}
+
+	private static InjectedError inject(Row row, Random random) {
+		InjectedError error = InjectedError.values()[random.nextInt(InjectedError.values().length)];
+		switch (error) {
+		case MISSING_DATE:
+			row.getCell(5).setBlank();
+			break;
+		case BAD_DATE:
+			row.getCell(4).setCellValue("31/02/" + (2000 + random.nextInt(30)));
+			break;
+		case BAD_DAYS:
+			row.getCell(6).setCellValue("two");
+			break;
+		case BAD_STATUS:
+			row.getCell(7).setCellValue("Aproved");
+			break;
+		case BAD_LEAVE_TYPE:
+			row.getCell(3).setCellValue("Annual");
+			break;
+		case BAD_BALANCE:
+			row.getCell(9).setCellValue("n/a");
+			break;
+		}
+		return error;
+	}
+
+	private static void setDate(Row row, int column, LocalDate date, CellStyle style) {
+		Cell cell = row.createCell(column);
+		cell.setCellValue(date);
+		cell.setCellStyle(style);
+	}
+
+	private static String canonicalLeaveType(String name) {
+		for (String type : ENTITLEMENTS.keySet()) {
+			if (type.equalsIgnoreCase(name.trim())) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("Unknown leave type: " + name + " (expected one of " + ENTITLEMENTS.keySet() + ")");
+	}
+
+	// Parses "Sick=2,Casual=1,Paid=1"
+	public static Map<String, Integer> parseWeights(String spec) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String part : spec.split(",")) {
+			String[] pair = part.split("=");
+			if (pair.length != 2) {
+				throw new IllegalArgumentException("Expected TYPE=WEIGHT, got: " + part);
+			}
+			weights.put(canonicalLeaveType(pair[0]), Integer.parseInt(pair[1].trim()));
+		}
+		return weights;
+	}
+
+	public static final class Summary {
+
+		private long rows;
+		private final Map<InjectedError, Long> errors = new EnumMap<>(InjectedError.class);
+
+		private void injected(InjectedError error) {
+			errors.merge(error, 1L, Long::sum);
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getInjectedErrors() {
+			long total = 0;
+			for (long count : errors.values()) {
+				total += count;
+			}
+			return total;
+		}
+
+		public Map<InjectedError, Long> getInjectedErrorsByKind() {
+			return new EnumMap<>(errors);
+		}
+
+		@Override
+		public String toString() {
+			return rows + " rows, " + getInjectedErrors() + " with injected errors " + errors;
+		}
+	}
+
+	// A bare file name goes to the default output directory; anything with a directory is used as given
+	private static Path outputPath(String argument) {
+		Path path = Paths.get(argument);
+		return path.getParent() == null ? DEFAULT_OUTPUT_DIRECTORY.resolve(path) : path;
+	}
+
+	public static void main(String[] args) {
+
+		if (args.length == 0 || args[0].startsWith("--")) {
+			System.err.println("Usage: WorkbookGenerator <output.xlsm|output.xlsx> [--employees N]"
+					+ " [--requests-per-employee D] [--leave-types Sick=1,Casual=1,Paid=1] [--error-rate R]"
+					+ " [--year Y] [--seed S]");
+			System.exit(2);
+		}
+
+		Path output = outputPath(args[0]);
+		int employees = 1000;
+		double requestsPerEmployee = 4;
+		String leaveTypes = "Sick=1,Casual=1,Paid=1";
+		double errorRate = 0;
+		int year = LocalDate.now().getYear();
+		long seed = 42;
+		try {
+			for (int i = 1; i < args.length; i += 2) {
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+				String value = args[i + 1];
+				switch (args[i]) {
+				case "--employees":
+					employees = Integer.parseInt(value);
+					break;
+				case "--requests-per-employee":
+					requestsPerEmployee = Double.parseDouble(value);
+					break;
+				case "--leave-types":
+					leaveTypes = value;
+					break;
+				case "--error-rate":
+					errorRate = Double.parseDouble(value);
+					break;
+				case "--year":
+					year = Integer.parseInt(value);
+					break;
+				case "--seed":
+					seed = Long.parseLong(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+
+			if (output.toAbsolutePath().normalize().startsWith(SHIPPED_DATA_DIRECTORY.toAbsolutePath())) {
+				throw new IllegalArgumentException("Refusing to overwrite the shipped sample workbooks in "
+						+ SHIPPED_DATA_DIRECTORY + "; write to " + DEFAULT_OUTPUT_DIRECTORY + " instead");
+			}
+			WorkbookGenerator generator = new WorkbookGenerator(employees, requestsPerEmployee,
+					parseWeights(leaveTypes), errorRate, year, seed);
+			Files.createDirectories(output.toAbsolutePath().getParent());
+			long started = System.nanoTime();
+			Summary summary = generator.write(output);
+			System.out.println("Wrote " + output + ": " + summary + " in "
+					+ (System.nanoTime() - started) / 1_000_000 + " ms");
+		} catch (IllegalArgumentException e) {
+			System.err.println("Error: " + e.getMessage());
+			System.exit(2);
+		} catch (IOException e) {
+			System.err.println("Error writing " + output + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+-- Database schema for Leave Management System
+-- Baseline migration. Written with IF NOT EXISTS so a database created by the old
+-- drop-and-recreate script is adopted as version 1 instead of failing.
+
+-- Create employees table
+CREATE TABLE IF NOT EXISTS employees (
+    emp_id VARCHAR(10) PRIMARY KEY,
+    emp_name VARCHAR(100) NOT NULL,
+    department VARCHAR(50) NOT NULL,
+    -- IDs are stored upper-case so lookups compare emp_id directly and can use its indexes
+    CONSTRAINT employees_emp_id_canonical CHECK (emp_id = UPPER(emp_id))
+);
+
+-- Create leave_types table
+CREATE TABLE IF NOT EXISTS leave_types (
+    leave_type_id SERIAL PRIMARY KEY,
+    leave_type_name VARCHAR(50) UNIQUE NOT NULL,
+    default_balance INT NOT NULL
+);
+
+-- Create leave_balances table
+CREATE TABLE IF NOT EXISTS leave_balances (
+    balance_id SERIAL PRIMARY KEY,
+    emp_id VARCHAR(10) NOT NULL,
+    leave_type_id INT NOT NULL,
+    balance_days INT NOT NULL,
+    year INT NOT NULL,
+    last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (emp_id) REFERENCES employees(emp_id) ON DELETE CASCADE,
+    FOREIGN KEY (leave_type_id) REFERENCES leave_types(leave_type_id) ON DELETE CASCADE,
+    -- Also the index behind every (emp_id[, leave_type_id[, year]]) balance lookup
+    CONSTRAINT uq_leave_balances_emp_type_year UNIQUE (emp_id, leave_type_id, year)
+);
+
+-- Create leave_requests table
+CREATE TABLE IF NOT EXISTS leave_requests (
+    request_id SERIAL PRIMARY KEY,
+    emp_id VARCHAR(10) NOT NULL,
+    leave_type_id INT NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    leave_days INT NOT NULL,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('Pending', 'Approved', 'Rejected')),
+    remarks VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (emp_id) REFERENCES employees(emp_id) ON DELETE CASCADE,
+    FOREIGN KEY (leave_type_id) REFERENCES leave_types(leave_type_id) ON DELETE CASCADE
+);
+
+-- Row fingerprints from the last incremental ingest of each workbook, per entity type
+CREATE TABLE IF NOT EXISTS ingest_fingerprints (
+    source_file VARCHAR(500) NOT NULL,
+    entity_type VARCHAR(50) NOT NULL,
+    natural_key VARCHAR(200) NOT NULL,
+    row_hash CHAR(64) NOT NULL,
+    PRIMARY KEY (source_file, entity_type, natural_key)
+);
+
+-- Insert default leave types
+INSERT INTO leave_types (leave_type_name, default_balance) VALUES
+    ('Sick', 10),
+    ('Casual', 12),
+    ('Paid', 15)
+ON CONFLICT (leave_type_name) DO NOTHING;
+
+-- Create indexes for better performance
+DROP INDEX IF EXISTS idx_leave_requests_emp_id;
+DROP INDEX IF EXISTS idx_leave_balances_emp_id;
+-- Lookups by employee are served by the composite indexes below and uq_leave_balances_emp_type_year,
+-- whose leading emp_id column replaces the former single-column emp_id indexes
+-- findOverlappingRequests: emp_id and status equality, then the start_date range
+CREATE INDEX IF NOT EXISTS idx_leave_requests_emp_status_dates ON leave_requests(emp_id, status, start_date, end_date);
+-- Incremental ingest matches rows on (emp_id, leave_type_id, start_date, end_date)
+CREATE INDEX IF NOT EXISTS idx_leave_requests_natural_key ON leave_requests(emp_id, leave_type_id, start_date, end_date);
+CREATE INDEX IF NOT EXISTS idx_leave_requests_leave_type_id ON leave_requests(leave_type_id);
+CREATE INDEX IF NOT EXISTS idx_leave_balances_leave_type_id ON leave_balances(leave_type_id);
@@ -0,0 +1,170 @@
+-- Range-partitions leave_requests by start_date and leave_balances by year, one partition per
+-- calendar year plus a default partition that catches years without one. Queries that bound
+-- start_date or year only touch the matching partitions.
+
+ALTER TABLE leave_requests RENAME TO leave_requests_unpartitioned;
+ALTER SEQUENCE leave_requests_request_id_seq OWNED BY NONE;
+
+CREATE TABLE leave_requests (
+    request_id INT NOT NULL DEFAULT nextval('leave_requests_request_id_seq'),
+    emp_id VARCHAR(10) NOT NULL,
+    leave_type_id INT NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    leave_days INT NOT NULL,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('Pending', 'Approved', 'Rejected')),
+    remarks VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- The partition key has to be part of the primary key; request_id alone stays unique through its sequence
+    CONSTRAINT pk_leave_requests PRIMARY KEY (request_id, start_date),
+    -- No request spans more than a year, so an overlap check only has to look at requests starting
+    -- at most that long before its range (JdbcLeaveRequestRepository.MAX_REQUEST_SPAN_DAYS)
+    CONSTRAINT leave_requests_span CHECK (end_date >= start_date AND end_date - start_date <= 365),
+    FOREIGN KEY (emp_id) REFERENCES employees(emp_id) ON DELETE CASCADE,
+    FOREIGN KEY (leave_type_id) REFERENCES leave_types(leave_type_id) ON DELETE CASCADE
+) PARTITION BY RANGE (start_date);
+
+CREATE TABLE leave_requests_default PARTITION OF leave_requests DEFAULT;
+
+ALTER TABLE leave_balances RENAME TO leave_balances_unpartitioned;
+-- Frees the name for the partitioned table. Databases created by the original schema script carry
+-- the unnamed UNIQUE under a generated name, so the constraint is found by its columns.
+DO $$
+DECLARE
+    existing NAME;
+BEGIN
+    SELECT c.conname INTO existing
+    FROM pg_constraint c
+    WHERE c.conrelid = 'leave_balances_unpartitioned'::regclass
+      AND c.contype = 'u'
+      AND (SELECT array_agg(a.attname::text ORDER BY k.ord)
+           FROM unnest(c.conkey) WITH ORDINALITY AS k(attnum, ord)
+           JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = k.attnum)
+          = ARRAY['emp_id', 'leave_type_id', 'year'];
+    IF existing IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE leave_balances_unpartitioned RENAME CONSTRAINT %I TO uq_leave_balances_unpartitioned',
+                existing);
+    END IF;
+END
+$$;
+ALTER SEQUENCE leave_balances_balance_id_seq OWNED BY NONE;
+
+CREATE TABLE leave_balances (
+    balance_id INT NOT NULL DEFAULT nextval('leave_balances_balance_id_seq'),
+    emp_id VARCHAR(10) NOT NULL,
+    leave_type_id INT NOT NULL,
+    balance_days INT NOT NULL,
+    year INT NOT NULL,
+    last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_leave_balances PRIMARY KEY (balance_id, year),
+    FOREIGN KEY (emp_id) REFERENCES employees(emp_id) ON DELETE CASCADE,
+    FOREIGN KEY (leave_type_id) REFERENCES leave_types(leave_type_id) ON DELETE CASCADE,
+    CONSTRAINT uq_leave_balances_emp_type_year UNIQUE (emp_id, leave_type_id, year)
+) PARTITION BY RANGE (year);
+
+CREATE TABLE leave_balances_default PARTITION OF leave_balances DEFAULT;
+
+-- Creates the yearly partitions from first_year to last_year, plus one for every year that has
+-- rows in a default partition, moving those rows across. Returns the number of partitions created.
+-- Called by the application at startup and daily so next year's partitions exist before they are needed.
+CREATE OR REPLACE FUNCTION ensure_leave_partitions(first_year INT, last_year INT) RETURNS INT AS $$
+DECLARE
+    y INT;
+    part TEXT;
+    created INT := 0;
+BEGIN
+    FOR y IN
+        SELECT generate_series(first_year, last_year)
+        UNION SELECT EXTRACT(YEAR FROM start_date)::INT FROM leave_requests_default
+        UNION SELECT year FROM leave_balances_default
+    LOOP
+        part := 'leave_requests_y' || y;
+        IF to_regclass(part) IS NULL THEN
+            -- Filled while detached, because a default partition may not hold rows of an attached range
+            EXECUTE format('CREATE TABLE %I (LIKE leave_requests INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part);
+            EXECUTE format('WITH moved AS (DELETE FROM leave_requests_default WHERE start_date >= %L AND start_date < %L '
+                    'RETURNING *) INSERT INTO %I SELECT * FROM moved', make_date(y, 1, 1), make_date(y + 1, 1, 1), part);
+            EXECUTE format('ALTER TABLE leave_requests ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                    part, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+            created := created + 1;
+        END IF;
+
+        part := 'leave_balances_y' || y;
+        IF to_regclass(part) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE leave_balances INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part);
+            EXECUTE format('WITH moved AS (DELETE FROM leave_balances_default WHERE year = %s '
+                    'RETURNING *) INSERT INTO %I SELECT * FROM moved', y, part);
+            EXECUTE format('ALTER TABLE leave_balances ATTACH PARTITION %I FOR VALUES FROM (%s) TO (%s)',
+                    part, y, y + 1);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The old schema checked neither the dates nor the status of a request. Rows the new table would
+-- refuse are moved aside with the reason, so one bad row does not stop the upgrade, and listed in a
+-- warning for someone to correct and insert again.
+CREATE TABLE leave_requests_quarantine (
+    LIKE leave_requests_unpartitioned,
+    reason VARCHAR(100) NOT NULL,
+    quarantined_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+WITH quarantined AS (
+    DELETE FROM leave_requests_unpartitioned
+    WHERE status NOT IN ('Pending', 'Approved', 'Rejected') OR end_date < start_date OR end_date - start_date > 365
+    RETURNING *)
+INSERT INTO leave_requests_quarantine (request_id, emp_id, leave_type_id, start_date, end_date, leave_days, status,
+        remarks, created_at, updated_at, reason)
+    SELECT request_id, emp_id, leave_type_id, start_date, end_date, leave_days, status, remarks, created_at, updated_at,
+        CASE
+            WHEN status NOT IN ('Pending', 'Approved', 'Rejected') THEN 'status is not Pending, Approved or Rejected'
+            WHEN end_date < start_date THEN 'ends before it starts'
+            ELSE 'spans more than 365 days'
+        END
+    FROM quarantined;
+
+DO $$
+DECLARE
+    quarantined TEXT;
+BEGIN
+    SELECT string_agg(request_id || ' (' || reason || ')', ', ' ORDER BY request_id) INTO quarantined
+    FROM leave_requests_quarantine;
+    IF quarantined IS NOT NULL THEN
+        RAISE WARNING 'Leave requests % break the checks on leave_requests and were moved to leave_requests_quarantine',
+                quarantined;
+    END IF;
+END
+$$;
+
+-- Partitions for every year already in the tables, then the rows themselves
+SELECT ensure_leave_partitions(
+    LEAST(EXTRACT(YEAR FROM CURRENT_DATE)::INT,
+          (SELECT MIN(EXTRACT(YEAR FROM start_date))::INT FROM leave_requests_unpartitioned),
+          (SELECT MIN(year) FROM leave_balances_unpartitioned)),
+    GREATEST(EXTRACT(YEAR FROM CURRENT_DATE)::INT + 1,
+             (SELECT MAX(EXTRACT(YEAR FROM start_date))::INT FROM leave_requests_unpartitioned),
+             (SELECT MAX(year) FROM leave_balances_unpartitioned)));
+
+INSERT INTO leave_requests (request_id, emp_id, leave_type_id, start_date, end_date, leave_days, status, remarks,
+        created_at, updated_at)
+    SELECT request_id, emp_id, leave_type_id, start_date, end_date, leave_days, status, remarks, created_at, updated_at
+    FROM leave_requests_unpartitioned;
+INSERT INTO leave_balances (balance_id, emp_id, leave_type_id, balance_days, year, last_updated)
+    SELECT balance_id, emp_id, leave_type_id, balance_days, year, last_updated
+    FROM leave_balances_unpartitioned;
+
+DROP TABLE leave_requests_unpartitioned;
+DROP TABLE leave_balances_unpartitioned;
+ALTER SEQUENCE leave_requests_request_id_seq OWNED BY leave_requests.request_id;
+ALTER SEQUENCE leave_balances_balance_id_seq OWNED BY leave_balances.balance_id;
+
+-- Indexes on the partitioned tables are created on every partition, present and future
+CREATE INDEX idx_leave_requests_emp_status_dates ON leave_requests(emp_id, status, start_date, end_date);
+CREATE INDEX idx_leave_requests_natural_key ON leave_requests(emp_id, leave_type_id, start_date, end_date);
+CREATE INDEX idx_leave_requests_leave_type_id ON leave_requests(leave_type_id);
+CREATE INDEX idx_leave_requests_status_start ON leave_requests(status, start_date);
+CREATE INDEX idx_leave_balances_leave_type_id ON leave_balances(leave_type_id);
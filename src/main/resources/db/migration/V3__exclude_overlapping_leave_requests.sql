@@ -0,0 +1,122 @@
+-- Makes overlapping Pending/Approved requests of one employee impossible, whichever connection
+-- writes them. A GiST exclusion constraint cannot be declared on leave_requests itself, because
+-- an exclusion constraint on a partitioned table must compare the partition key with equality.
+-- The periods therefore live in leave_request_periods, kept in step with leave_requests by a
+-- trigger in the same statement, so an overlapping INSERT or UPDATE fails with SQLSTATE 23P01.
+
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+CREATE TABLE leave_request_periods (
+    request_id INT PRIMARY KEY,
+    emp_id VARCHAR(10) NOT NULL,
+    period DATERANGE NOT NULL, -- [start_date, end_date], both days inclusive
+    CONSTRAINT leave_request_periods_no_overlap EXCLUDE USING gist (emp_id WITH =, period WITH &&)
+);
+
+-- Existing requests are taken in start order; one that overlaps an earlier request keeps its
+-- status but is left out, and is only checked again once its dates or status change
+INSERT INTO leave_request_periods (request_id, emp_id, period)
+    SELECT request_id, emp_id, daterange(start_date, end_date, '[]')
+    FROM leave_requests
+    WHERE status <> 'Rejected'
+    ORDER BY emp_id, start_date, request_id
+    ON CONFLICT DO NOTHING;
+
+-- The requests left out above, with the ones they overlap, for someone to reject or reschedule.
+-- Written once by this migration and not maintained afterwards.
+CREATE TABLE leave_request_overlap_conflicts (
+    request_id INT PRIMARY KEY,
+    emp_id VARCHAR(10) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    conflicts_with INT[] NOT NULL,
+    found_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO leave_request_overlap_conflicts (request_id, emp_id, start_date, end_date, status, conflicts_with)
+    SELECT r.request_id, r.emp_id, r.start_date, r.end_date, r.status, array_agg(p.request_id ORDER BY p.request_id)
+    FROM leave_requests r
+    JOIN leave_request_periods p ON p.emp_id = r.emp_id AND p.period && daterange(r.start_date, r.end_date, '[]')
+    WHERE r.status <> 'Rejected'
+      AND NOT EXISTS (SELECT 1 FROM leave_request_periods own WHERE own.request_id = r.request_id)
+    GROUP BY r.request_id, r.emp_id, r.start_date, r.end_date, r.status;
+
+DO $$
+DECLARE
+    conflicts TEXT;
+BEGIN
+    SELECT string_agg(request_id::text, ', ' ORDER BY request_id) INTO conflicts FROM leave_request_overlap_conflicts;
+    IF conflicts IS NOT NULL THEN
+        RAISE WARNING 'Leave requests % overlap earlier requests of the same employee and are not covered by '
+                'leave_request_periods_no_overlap; see leave_request_overlap_conflicts', conflicts;
+    END IF;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION sync_leave_request_period() RETURNS TRIGGER AS $$
+BEGIN
+    -- Rows moved out of a default partition by ensure_leave_partitions keep their period
+    IF current_setting('leave.moving_partitions', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND NEW.emp_id = OLD.emp_id AND NEW.start_date = OLD.start_date
+            AND NEW.end_date = OLD.end_date AND (NEW.status = 'Rejected') = (OLD.status = 'Rejected') THEN
+        RETURN NULL; -- e.g. Pending to Approved, or new remarks
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM leave_request_periods WHERE request_id = OLD.request_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status <> 'Rejected' THEN
+        INSERT INTO leave_request_periods (request_id, emp_id, period)
+            VALUES (NEW.request_id, NEW.emp_id, daterange(NEW.start_date, NEW.end_date, '[]'));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Row triggers on a partitioned table are cloned to every partition, including ones attached later.
+-- An update that moves a row to another partition fires the DELETE and INSERT triggers instead.
+CREATE TRIGGER leave_requests_sync_period
+    AFTER INSERT OR UPDATE OR DELETE ON leave_requests
+    FOR EACH ROW EXECUTE FUNCTION sync_leave_request_period();
+
+-- As in V2, but flags the row moves so the trigger above leaves leave_request_periods alone
+CREATE OR REPLACE FUNCTION ensure_leave_partitions(first_year INT, last_year INT) RETURNS INT AS $$
+DECLARE
+    y INT;
+    part TEXT;
+    created INT := 0;
+BEGIN
+    PERFORM set_config('leave.moving_partitions', 'on', true);
+    FOR y IN
+        SELECT generate_series(first_year, last_year)
+        UNION SELECT EXTRACT(YEAR FROM start_date)::INT FROM leave_requests_default
+        UNION SELECT year FROM leave_balances_default
+    LOOP
+        part := 'leave_requests_y' || y;
+        IF to_regclass(part) IS NULL THEN
+            -- Filled while detached, because a default partition may not hold rows of an attached range
+            EXECUTE format('CREATE TABLE %I (LIKE leave_requests INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part);
+            EXECUTE format('WITH moved AS (DELETE FROM leave_requests_default WHERE start_date >= %L AND start_date < %L '
+                    'RETURNING *) INSERT INTO %I SELECT * FROM moved', make_date(y, 1, 1), make_date(y + 1, 1, 1), part);
+            EXECUTE format('ALTER TABLE leave_requests ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                    part, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+            created := created + 1;
+        END IF;
+
+        part := 'leave_balances_y' || y;
+        IF to_regclass(part) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE leave_balances INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part);
+            EXECUTE format('WITH moved AS (DELETE FROM leave_balances_default WHERE year = %s '
+                    'RETURNING *) INSERT INTO %I SELECT * FROM moved', y, part);
+            EXECUTE format('ALTER TABLE leave_balances ATTACH PARTITION %I FOR VALUES FROM (%s) TO (%s)',
+                    part, y, y + 1);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    PERFORM set_config('leave.moving_partitions', 'off', true);
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
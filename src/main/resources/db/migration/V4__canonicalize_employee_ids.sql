@@ -0,0 +1,43 @@
+-- Stores every employee ID trimmed and upper-case, as CanonicalKeys.employeeId produces it. V1 only
+-- creates tables that are missing, so a database adopted from the original schema script kept its
+-- employees table without the canonical-ID check, and may hold lower-case or padded IDs that
+-- lookups by the canonical key never find.
+
+-- Two spellings of one ID would become the same key; which employee to keep is not ours to guess
+DO $$
+DECLARE
+    clashes TEXT;
+BEGIN
+    SELECT string_agg(spellings, '; ') INTO clashes
+    FROM (SELECT string_agg(quote_literal(emp_id), ', ' ORDER BY emp_id) AS spellings
+          FROM employees
+          GROUP BY UPPER(BTRIM(emp_id))
+          HAVING count(*) > 1) AS clash;
+    IF clashes IS NOT NULL THEN
+        RAISE EXCEPTION 'Employee IDs that differ only in case or padding: %', clashes
+            USING HINT = 'Merge or rename these employees, then start the application again';
+    END IF;
+END
+$$;
+
+-- The foreign keys do not cascade updates, so each employee is copied under its canonical ID, its
+-- rows are moved across and the old row is removed. The moves bypass sync_leave_request_period:
+-- periods are renamed in place, and requests V3 left out of leave_request_periods stay out.
+INSERT INTO employees (emp_id, emp_name, department)
+    SELECT UPPER(BTRIM(emp_id)), emp_name, department
+    FROM employees
+    WHERE emp_id <> UPPER(BTRIM(emp_id));
+
+SELECT set_config('leave.moving_partitions', 'on', true);
+UPDATE leave_requests SET emp_id = UPPER(BTRIM(emp_id)) WHERE emp_id <> UPPER(BTRIM(emp_id));
+UPDATE leave_request_periods SET emp_id = UPPER(BTRIM(emp_id)) WHERE emp_id <> UPPER(BTRIM(emp_id));
+UPDATE leave_request_overlap_conflicts SET emp_id = UPPER(BTRIM(emp_id)) WHERE emp_id <> UPPER(BTRIM(emp_id));
+SELECT set_config('leave.moving_partitions', 'off', true);
+UPDATE leave_balances SET emp_id = UPPER(BTRIM(emp_id)) WHERE emp_id <> UPPER(BTRIM(emp_id));
+UPDATE leave_requests_quarantine SET emp_id = UPPER(BTRIM(emp_id)) WHERE emp_id <> UPPER(BTRIM(emp_id));
+
+DELETE FROM employees WHERE emp_id <> UPPER(BTRIM(emp_id));
+
+-- Replaces V1's upper-case-only check where it exists, and adds it where V1 adopted the table
+ALTER TABLE employees DROP CONSTRAINT IF EXISTS employees_emp_id_canonical;
+ALTER TABLE employees ADD CONSTRAINT employees_emp_id_canonical CHECK (emp_id = UPPER(BTRIM(emp_id)));
@@ -0,0 +1,206 @@
+package application.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import common.exception.DataPersistenceException;
+import common.exception.InvalidLeaveRequestException;
+import domain.model.LeaveBalance;
+import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.TestDatabase;
+import infrastructure.persistence.cache.CachedLeaveBalanceRepository;
+import infrastructure.persistence.cache.CachedLeaveBalanceRepository.Durability;
+import infrastructure.persistence.cache.EmployeeExistenceCache;
+import infrastructure.persistence.cache.LeaveTypeCache;
+import infrastructure.persistence.jdbc.JdbcEmployeeRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveApprovalRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveBalanceRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveRequestRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveTypeRepository;
+
+// Many threads approve the same pending requests against one balance that covers only half: split
+// over two service instances with their own balance caches (as two application instances would be),
+// and through one instance whose cache defers deductions.
+class LeaveServiceConcurrentApprovalTest {
+
+	private static final int REQUESTS = 20;
+	private static final int BALANCE_DAYS = 10;
+	private static final int THREADS = 8;
+
+	private static DatabaseConnectionManager db;
+	private final List<CachedLeaveBalanceRepository> balanceCaches = new ArrayList<>();
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		db = TestDatabase.migrated();
+	}
+
+	@BeforeEach
+	void seed() throws Exception {
+		TestDatabase.clear();
+		int year = LocalDate.now().getYear();
+		TestDatabase.execute("INSERT INTO employees VALUES ('E1', 'Ann', 'IT')",
+				"INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) "
+						+ "SELECT 'E1', leave_type_id, " + BALANCE_DAYS + ", " + year
+						+ " FROM leave_types WHERE leave_type_name = 'Sick'",
+				// One-day requests on consecutive days, so none of them overlap
+				"INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status) "
+						+ "SELECT 'E1', leave_type_id, d, d, 1, 'Pending' FROM leave_types, "
+						+ "generate_series(make_date(" + year + ", 1, 1), make_date(" + year + ", 1, " + REQUESTS
+						+ "), interval '1 day') AS d WHERE leave_type_name = 'Sick'");
+	}
+
+	@AfterEach
+	void closeCaches() {
+		for (CachedLeaveBalanceRepository cache : balanceCaches) {
+			cache.close();
+		}
+	}
+
+	@Test
+	void concurrentApprovalsNeverOverdrawOrApproveTwice() throws Exception {
+		LeaveService[] services = { newService(Durability.SYNC_ON_APPROVE), newService(Durability.SYNC_ON_APPROVE) };
+		AtomicInteger lowestBalance = new AtomicInteger(BALANCE_DAYS);
+		Map<Integer, AtomicInteger> approvals = approveConcurrently(services, lowestBalance);
+
+		assertApprovedOnce(approvals);
+		assertEquals(0, balanceDays());
+		assertTrue(lowestBalance.get() >= 0, "balance went negative: " + lowestBalance.get());
+		for (LeaveService service : services) {
+			assertEquals(0f, service.getLeaveBalances("E1").get(0).getBalanceDays());
+		}
+	}
+
+	// One instance deferring deductions: the balance is checked and lowered in memory under the
+	// employee's lock, and the flush writes the ten deductions as a single decrement
+	@Test
+	void deferredApprovalsNeverOverdrawAndFlushOneDecrement() throws Exception {
+		LeaveTypeCache leaveTypeCache = new LeaveTypeCache(db);
+		leaveTypeCache.reload();
+		List<List<LeaveBalance>> written = Collections.synchronizedList(new ArrayList<>());
+		JdbcLeaveBalanceRepository recording = new JdbcLeaveBalanceRepository(db, leaveTypeCache) {
+			@Override
+			public void deductAll(List<LeaveBalance> deductions) throws DataPersistenceException {
+				written.add(new ArrayList<>(deductions));
+				super.deductAll(deductions);
+			}
+		};
+		// Long enough that only the flush below writes
+		CachedLeaveBalanceRepository balances = new CachedLeaveBalanceRepository(recording, 600_000,
+				Durability.DEFERRED);
+		balanceCaches.add(balances);
+		LeaveService service = newService(leaveTypeCache, balances);
+
+		AtomicInteger lowestBalance = new AtomicInteger(BALANCE_DAYS);
+		assertApprovedOnce(approveConcurrently(new LeaveService[] { service }, lowestBalance));
+		assertEquals(BALANCE_DAYS, balanceDays());
+		assertEquals(0f, service.getLeaveBalances("E1").get(0).getBalanceDays());
+
+		balances.flushAll();
+		assertEquals(0, balanceDays());
+		assertEquals(1, written.size());
+		assertEquals(1, written.get(0).size());
+		assertEquals((float) BALANCE_DAYS, written.get(0).get(0).getBalanceDays());
+	}
+
+	// Every thread tries every request, in its own order, through one of the services
+	private Map<Integer, AtomicInteger> approveConcurrently(LeaveService[] services, AtomicInteger lowestBalance)
+			throws Exception {
+
+		List<Integer> requestIds = new ArrayList<>();
+		for (String id : TestDatabase.queryColumn("SELECT request_id FROM leave_requests ORDER BY request_id")) {
+			requestIds.add(Integer.valueOf(id));
+		}
+
+		Map<Integer, AtomicInteger> approvals = new ConcurrentHashMap<>();
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+		try {
+			Future<?> monitor = executor.submit(() -> {
+				while (running.get()) {
+					lowestBalance.accumulateAndGet(balanceDays(), Math::min);
+				}
+				return null;
+			});
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				LeaveService service = services[t % services.length];
+				List<Integer> order = new ArrayList<>(requestIds);
+				Collections.shuffle(order, new Random(t));
+				workers.add(executor.submit(() -> {
+					start.await();
+					for (int requestId : order) {
+						try {
+							service.approveLeave(requestId);
+							approvals.computeIfAbsent(requestId, k -> new AtomicInteger()).incrementAndGet();
+						} catch (InvalidLeaveRequestException e) {
+							// Already decided, or the balance is used up
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> worker : workers) {
+				worker.get(2, TimeUnit.MINUTES);
+			}
+			running.set(false);
+			monitor.get(1, TimeUnit.MINUTES);
+		} finally {
+			running.set(false);
+			executor.shutdownNow();
+		}
+		return approvals;
+	}
+
+	private static void assertApprovedOnce(Map<Integer, AtomicInteger> approvals) throws Exception {
+		for (Map.Entry<Integer, AtomicInteger> entry : approvals.entrySet()) {
+			assertEquals(1, entry.getValue().get(), "request " + entry.getKey() + " approved more than once");
+		}
+		assertEquals(BALANCE_DAYS, approvals.size());
+		assertEquals(String.valueOf(BALANCE_DAYS),
+				TestDatabase.queryValue("SELECT count(*) FROM leave_requests WHERE status = 'Approved'"));
+	}
+
+	private LeaveService newService(Durability durability) {
+		LeaveTypeCache leaveTypeCache = new LeaveTypeCache(db);
+		leaveTypeCache.reload();
+		CachedLeaveBalanceRepository balances = new CachedLeaveBalanceRepository(
+				new JdbcLeaveBalanceRepository(db, leaveTypeCache), 50, durability);
+		balanceCaches.add(balances);
+		return newService(leaveTypeCache, balances);
+	}
+
+	private LeaveService newService(LeaveTypeCache leaveTypeCache, CachedLeaveBalanceRepository balances) {
+		EmployeeExistenceCache existenceCache = new EmployeeExistenceCache(db);
+		existenceCache.warm();
+		return new LeaveService(new JdbcLeaveRequestRepository(db, leaveTypeCache), balances,
+				new JdbcEmployeeRepository(db, existenceCache), new JdbcLeaveTypeRepository(db, leaveTypeCache),
+				new JdbcLeaveApprovalRepository(db, leaveTypeCache));
+	}
+
+	private static int balanceDays() throws Exception {
+		return Integer.parseInt(TestDatabase.queryValue("SELECT balance_days FROM leave_balances WHERE emp_id = 'E1'"));
+	}
+}
@@ -0,0 +1,131 @@
+package application.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.validation.FileValidator;
+import infrastructure.file.parsers.EmployeeXlsxParser;
+import infrastructure.file.parsers.LeaveBalanceXlsxParser;
+import infrastructure.file.parsers.LeaveRequestXlsxParser;
+import infrastructure.file.parsers.LeaveTypeXlsxParser;
+import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.TestDatabase;
+import infrastructure.persistence.cache.EmployeeExistenceCache;
+import infrastructure.persistence.cache.LeaveTypeCache;
+import infrastructure.persistence.jdbc.JdbcEmployeeRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveBalanceRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveRequestRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveTypeRepository;
+import tools.WorkbookGenerator;
+
+// A lenient ingest writes the good rows and one dead letter per bad row; a strict one writes nothing
+class WorkbookIngestErrorModeTest {
+
+	private static final int YEAR = 2024;
+
+	private static DatabaseConnectionManager db;
+
+	@TempDir
+	static Path workbooks;
+	private static Path workbook;
+	private static WorkbookGenerator.Summary summary;
+
+	@TempDir
+	Path rejected;
+	private LeaveTypeCache leaveTypeCache;
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		db = TestDatabase.migrated();
+		workbook = workbooks.resolve("errors.xlsm");
+		summary = new WorkbookGenerator(50, 4, WorkbookGenerator.parseWeights("Sick=1,Casual=1,Paid=1"), 0.1, YEAR, 11)
+				.write(workbook);
+	}
+
+	@BeforeEach
+	void clear() throws Exception {
+		TestDatabase.clear();
+		leaveTypeCache = new LeaveTypeCache(db);
+		leaveTypeCache.reload();
+	}
+
+	@Test
+	void lenientIngestDeadLettersEachBadRowAndWritesTheRest() throws Exception {
+		WorkbookIngestService ingest = ingestService();
+		ingest.setErrorMode(FileProcessingService.ErrorMode.LENIENT, rejected);
+
+		ingest.processFiles(Collections.singletonList(workbook));
+
+		long good = summary.getRows() - summary.getInjectedErrors();
+		assertTrue(summary.getInjectedErrors() > 0);
+		assertEquals(String.valueOf(good), TestDatabase.queryValue("SELECT count(*) FROM leave_requests"));
+
+		List<String> lines = deadLetterLines();
+		assertEquals("file,sheet,row,column,error", lines.get(0));
+		assertEquals(summary.getInjectedErrors(), lines.size() - 1);
+		for (String line : lines.subList(1, lines.size())) {
+			assertTrue(line.startsWith(workbook.toString() + ",Leave,"), line);
+		}
+		assertEquals(injected(WorkbookGenerator.InjectedError.BAD_STATUS), count(lines, "Unknown leave status in cell 8"));
+		assertEquals(injected(WorkbookGenerator.InjectedError.BAD_LEAVE_TYPE), count(lines, "Unknown leave type in cell 4"));
+	}
+
+	@Test
+	void strictIngestStopsAtTheFirstBadRow() throws Exception {
+		ingestService().processFiles(Collections.singletonList(workbook));
+
+		assertEquals("0", TestDatabase.queryValue("SELECT count(*) FROM leave_requests"));
+		assertEquals("0", TestDatabase.queryValue("SELECT count(*) FROM employees"));
+		assertTrue(deadLetterFiles().isEmpty());
+	}
+
+	private WorkbookIngestService ingestService() throws Exception {
+		EmployeeExistenceCache employees = new EmployeeExistenceCache(db);
+		employees.warm();
+		List<FileProcessingService<?>> services = new ArrayList<>();
+		services.add(new FileProcessingService<>(new LeaveTypeXlsxParser(), new FileValidator(), Paths.get("."),
+				new JdbcLeaveTypeRepository(db, leaveTypeCache)));
+		services.add(new FileProcessingService<>(new EmployeeXlsxParser(), new FileValidator(), Paths.get("."),
+				new JdbcEmployeeRepository(db, employees)));
+		services.add(new FileProcessingService<>(new LeaveRequestXlsxParser(), new FileValidator(), Paths.get("."),
+				new JdbcLeaveRequestRepository(db, leaveTypeCache)));
+		services.add(new FileProcessingService<>(new LeaveBalanceXlsxParser(), new FileValidator(), Paths.get("."),
+				new JdbcLeaveBalanceRepository(db, leaveTypeCache)));
+		return new WorkbookIngestService(services, new FileValidator());
+	}
+
+	private static long injected(WorkbookGenerator.InjectedError error) {
+		return summary.getInjectedErrorsByKind().getOrDefault(error, 0L);
+	}
+
+	private static long count(List<String> lines, String error) {
+		return lines.stream().filter(line -> line.contains(error)).count();
+	}
+
+	private List<Path> deadLetterFiles() throws Exception {
+		try (Stream<Path> files = Files.list(rejected)) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	private List<String> deadLetterLines() throws Exception {
+		List<Path> files = deadLetterFiles();
+		assertEquals(1, files.size(), files.toString());
+		return Files.readAllLines(files.get(0), StandardCharsets.UTF_8);
+	}
+}
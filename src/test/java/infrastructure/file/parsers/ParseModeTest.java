@@ -0,0 +1,148 @@
+package infrastructure.file.parsers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import common.exception.DataParseException;
+import domain.model.Employee;
+import domain.model.LeaveBalance;
+import domain.model.LeaveRequest;
+import domain.model.LeaveType;
+import tools.WorkbookGenerator;
+
+// Every parse mode turns a generated workbook into the same entities, and a lenient parse into the
+// same failures, as the in-memory parse the other modes replace
+class ParseModeTest {
+
+	private static final int YEAR = 2024;
+
+	@TempDir
+	static Path directory;
+
+	private static File clean;
+	private static WorkbookGenerator.Summary cleanSummary;
+	private static File withErrors;
+	private static WorkbookGenerator.Summary withErrorsSummary;
+
+	@BeforeAll
+	static void generate() throws Exception {
+		clean = directory.resolve("clean.xlsm").toFile();
+		cleanSummary = WorkbookGenerator.clean(300, 4, YEAR, 42).write(clean.toPath());
+		withErrors = directory.resolve("errors.xlsx").toFile();
+		withErrorsSummary = new WorkbookGenerator(300, 4, WorkbookGenerator.parseWeights("Sick=1,Casual=1,Paid=1"),
+				0.05, YEAR, 7).write(withErrors.toPath());
+	}
+
+	@Test
+	void inMemoryParseMatchesTheGeneratedWorkbook() throws Exception {
+		List<LeaveRequest> requests = new LeaveRequestXlsxParser().parse(clean);
+		assertEquals(cleanSummary.getRows(), requests.size());
+		for (LeaveRequest request : requests) {
+			assertTrue(request.getEmpId().matches("E\\d+"), request.getEmpId());
+			assertEquals(YEAR, request.getStartDate().getYear());
+			assertEquals(request.getDays(), ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1);
+		}
+	}
+
+	@Test
+	void streamingMatchesInMemory() throws Exception {
+		assertSameAsInMemory(AbstractDataParser.ParseMode.STREAMING);
+	}
+
+	// 1200 rows span several parallel chunks
+	@Test
+	void parallelMatchesInMemory() throws Exception {
+		assertSameAsInMemory(AbstractDataParser.ParseMode.PARALLEL);
+	}
+
+	// Chunks finish in any order, but a strict parse still stops at the first bad row
+	@Test
+	void parallelStrictParseReportsTheFirstBadRow() throws Exception {
+		DataParseException expected = assertThrows(DataParseException.class,
+				() -> workbookParser(AbstractDataParser.ParseMode.IN_MEMORY).parse(withErrors));
+		DataParseException e = assertThrows(DataParseException.class,
+				() -> workbookParser(AbstractDataParser.ParseMode.PARALLEL).parse(withErrors));
+		assertEquals(expected.getMessage(), e.getMessage());
+		assertEquals(expected.getColumnIndex(), e.getColumnIndex());
+	}
+
+	private static void assertSameAsInMemory(AbstractDataParser.ParseMode mode) throws Exception {
+		assertEquals(describeRequests(new LeaveRequestXlsxParser().parse(clean)),
+				describeRequests(new LeaveRequestXlsxParser(mode).parse(clean)));
+		assertEquals(describeEmployees(new EmployeeXlsxParser().parse(clean)),
+				describeEmployees(new EmployeeXlsxParser(mode).parse(clean)));
+		assertEquals(describeBalances(new LeaveBalanceXlsxParser().parse(clean)),
+				describeBalances(new LeaveBalanceXlsxParser(mode).parse(clean)));
+		assertEquals(describeLeaveTypes(new LeaveTypeXlsxParser().parse(clean)),
+				describeLeaveTypes(new LeaveTypeXlsxParser(mode).parse(clean)));
+
+		List<RowFailure> expectedFailures = new ArrayList<>();
+		List<Object[]> expectedRows = workbookParser(AbstractDataParser.ParseMode.IN_MEMORY).parse(withErrors,
+				expectedFailures::add);
+		List<RowFailure> failures = new ArrayList<>();
+		List<Object[]> rows = workbookParser(mode).parse(withErrors, failures::add);
+		assertEquals(withErrorsSummary.getInjectedErrors(), expectedFailures.size());
+		assertEquals(describeFailures(expectedFailures), describeFailures(failures));
+		assertEquals(expectedRows.size(), rows.size());
+		assertEquals(withErrorsSummary.getRows() - withErrorsSummary.getInjectedErrors(), rows.size());
+	}
+
+	private static MultiEntityXlsxParser workbookParser(AbstractDataParser.ParseMode mode) {
+		List<AbstractDataParser<?>> parsers = Arrays.asList(new LeaveTypeXlsxParser(), new EmployeeXlsxParser(),
+				new LeaveRequestXlsxParser(), new LeaveBalanceXlsxParser());
+		return new MultiEntityXlsxParser(parsers, mode);
+	}
+
+	private static List<String> describeRequests(List<LeaveRequest> requests) {
+		List<String> described = new ArrayList<>();
+		for (LeaveRequest r : requests) {
+			described.add(r.getEmpId() + "|" + r.getLeaveTypeId() + "|" + r.getStartDate() + "|" + r.getEndDate() + "|"
+					+ r.getDays() + "|" + r.getStatus() + "|" + r.getRemarks());
+		}
+		return described;
+	}
+
+	private static List<String> describeEmployees(List<Employee> employees) {
+		List<String> described = new ArrayList<>();
+		for (Employee e : employees) {
+			described.add(e.toString());
+		}
+		return described;
+	}
+
+	private static List<String> describeBalances(List<LeaveBalance> balances) {
+		List<String> described = new ArrayList<>();
+		for (LeaveBalance b : balances) {
+			described.add(b.getEmpId() + "|" + b.getLeaveType() + "|" + b.getBalanceDays() + "|" + b.getYear());
+		}
+		return described;
+	}
+
+	private static List<String> describeLeaveTypes(List<LeaveType> leaveTypes) {
+		List<String> described = new ArrayList<>();
+		for (LeaveType t : leaveTypes) {
+			described.add(t.getLeaveTypeId() + "|" + t.getLeaveTypeName() + "|" + t.getDefaultBalance());
+		}
+		return described;
+	}
+
+	private static List<String> describeFailures(List<RowFailure> failures) {
+		List<String> described = new ArrayList<>();
+		for (RowFailure f : failures) {
+			described.add(f.toString());
+		}
+		return described;
+	}
+}
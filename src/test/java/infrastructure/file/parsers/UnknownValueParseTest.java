@@ -0,0 +1,121 @@
+package infrastructure.file.parsers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import common.exception.DataParseException;
+import domain.model.LeaveRequest;
+import domain.model.LeaveStatus;
+import domain.model.LeaveType;
+import tools.WorkbookGenerator;
+
+// A misspelt status or leave type is a bad cell like any other: strict parses stop at it and
+// lenient parses skip the row, in every parse mode
+class UnknownValueParseTest {
+
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest
+	@EnumSource(AbstractDataParser.ParseMode.class)
+	void misspeltStatusIsRejectedWithItsCell(AbstractDataParser.ParseMode mode) throws Exception {
+		File file = writeWorkbook();
+		LeaveRequestXlsxParser parser = new LeaveRequestXlsxParser(mode);
+
+		DataParseException e = assertThrows(DataParseException.class, () -> parser.parse(file));
+		assertTrue(e.getMessage().startsWith("Error in row 3: Unknown leave status in cell 8"), e.getMessage());
+		assertEquals(7, e.getColumnIndex());
+
+		List<RowFailure> failures = new ArrayList<>();
+		List<LeaveRequest> requests = parser.parse(file, failures::add);
+		// The unknown leave type is only checked by LeaveTypeXlsxParser
+		assertEquals(2, requests.size());
+		assertEquals(LeaveStatus.APPROVED, requests.get(0).getStatus());
+		assertEquals(1, failures.size());
+		assertEquals(3, failures.get(0).getRow());
+		assertEquals(8, failures.get(0).getColumn());
+	}
+
+	@ParameterizedTest
+	@EnumSource(AbstractDataParser.ParseMode.class)
+	void unknownLeaveTypeIsRejectedWithItsCell(AbstractDataParser.ParseMode mode) throws Exception {
+		File file = writeWorkbook();
+		LeaveTypeXlsxParser parser = new LeaveTypeXlsxParser(mode);
+
+		DataParseException e = assertThrows(DataParseException.class, () -> parser.parse(file));
+		assertTrue(e.getMessage().startsWith("Error in row 4: Unknown leave type in cell 4"), e.getMessage());
+		assertEquals(3, e.getColumnIndex());
+
+		List<RowFailure> failures = new ArrayList<>();
+		List<LeaveType> leaveTypes = parser.parse(file, failures::add);
+		assertEquals(2, leaveTypes.size());
+		assertEquals(1, failures.size());
+		assertEquals(4, failures.get(0).getRow());
+		assertEquals(4, failures.get(0).getColumn());
+	}
+
+	// Through the single-pass reader a row fails for every entity when one parser rejects it
+	@Test
+	void workbookParseRejectsBothRows() throws Exception {
+		File file = writeWorkbook();
+		List<AbstractDataParser<?>> parsers = new ArrayList<>();
+		parsers.add(new LeaveTypeXlsxParser());
+		parsers.add(new LeaveRequestXlsxParser());
+
+		List<RowFailure> failures = new ArrayList<>();
+		List<Object[]> rows = new MultiEntityXlsxParser(parsers).parse(file, failures::add);
+		assertEquals(1, rows.size());
+		assertEquals(2, failures.size());
+		assertEquals(3, failures.get(0).getRow());
+		assertEquals(4, failures.get(1).getRow());
+	}
+
+	// Row 2 is valid, row 3 has the status "Aproved" and row 4 the leave type "Annual"
+	private File writeWorkbook() throws Exception {
+		Path file = directory.resolve("typos.xlsx");
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+			Sheet sheet = workbook.createSheet("Leave");
+			Row header = sheet.createRow(0);
+			for (int i = 0; i < WorkbookGenerator.HEADERS.length; i++) {
+				header.createCell(i).setCellValue(WorkbookGenerator.HEADERS[i]);
+			}
+			addRow(sheet, 1, "Sick", "Approved");
+			addRow(sheet, 2, "Casual", "Aproved");
+			addRow(sheet, 3, "Annual", "Pending");
+			workbook.write(out);
+		}
+		return file.toFile();
+	}
+
+	private static void addRow(Sheet sheet, int index, String leaveType, String status) {
+		LocalDate start = LocalDate.of(2024, 3, index * 7);
+		Row row = sheet.createRow(index);
+		row.createCell(0).setCellValue("E101");
+		row.createCell(1).setCellValue("Ann Lee");
+		row.createCell(2).setCellValue("IT");
+		row.createCell(3).setCellValue(leaveType);
+		row.createCell(4).setCellValue(start.toString());
+		row.createCell(5).setCellValue(start.plusDays(1).toString());
+		row.createCell(6).setCellValue(2);
+		row.createCell(7).setCellValue(status);
+		row.createCell(8).setCellValue("Personal");
+		row.createCell(9).setCellValue(8);
+	}
+}
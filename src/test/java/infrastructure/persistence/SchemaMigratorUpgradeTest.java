@@ -0,0 +1,114 @@
+package infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+// Upgrades a database created by the drop-and-recreate script the application used before
+// versioned migrations, with rows in it, to the latest schema
+class SchemaMigratorUpgradeTest {
+
+	private static final String LEGACY_SCHEMA = "/db/legacy_leave_management_schema.sql";
+	private static final int YEAR = LocalDate.now().getYear();
+
+	@Test
+	void migratesADatabaseCreatedByTheLegacyScript() throws Exception {
+		DatabaseConnectionManager db = TestDatabase.migrated();
+		TestDatabase.execute("DROP SCHEMA public CASCADE", "CREATE SCHEMA public", legacySchema(),
+				"INSERT INTO employees VALUES ('E1', 'Ann', 'IT'), ('E2', 'Bob', 'HR')",
+				"INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) VALUES "
+						+ "('E1', 1, 10, " + (YEAR - 1) + "), ('E1', 1, 8, " + YEAR + "), ('E2', 2, 12, " + YEAR + ")",
+				"INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status) VALUES "
+						+ "('E1', 1, '" + YEAR + "-03-02', '" + YEAR + "-03-03', 2, 'Approved'), "
+						+ "('E2', 2, '" + (YEAR - 1) + "-07-01', '" + (YEAR - 1) + "-07-05', 5, 'Pending'), "
+						// Overlaps the first request, which the old schema did not prevent
+						+ "('E1', 2, '" + YEAR + "-03-03', '" + YEAR + "-03-04', 2, 'Pending'), "
+						// Nor these, which leave_requests_span and the status CHECK now refuse
+						+ "('E2', 1, '" + YEAR + "-05-02', '" + YEAR + "-05-01', 1, 'Pending'), "
+						+ "('E2', 3, '" + (YEAR - 1) + "-01-01', '" + YEAR + "-06-30', 400, 'Approved'), "
+						+ "('E2', 1, '" + YEAR + "-08-01', '" + YEAR + "-08-01', 1, 'Cancelled')");
+		// The script's UNIQUE has no name of its own
+		assertEquals("leave_balances_emp_id_leave_type_id_year_key", uniqueConstraintOnBalances());
+
+		assertEquals(4, new SchemaMigrator(db).migrate());
+
+		assertEquals("uq_leave_balances_emp_type_year", uniqueConstraintOnBalances());
+		assertEquals(Arrays.asList("1", "2", "3", "4"), TestDatabase.queryColumn("SELECT version FROM schema_version ORDER BY version"));
+		assertEquals("3", TestDatabase.queryValue("SELECT count(*) FROM leave_balances"));
+		assertEquals("3", TestDatabase.queryValue("SELECT count(*) FROM leave_requests"));
+		assertEquals(Arrays.asList("4 ends before it starts", "5 spans more than 365 days",
+				"6 status is not Pending, Approved or Rejected"), TestDatabase.queryColumn(
+						"SELECT request_id || ' ' || reason FROM leave_requests_quarantine ORDER BY request_id"));
+		assertEquals("2", TestDatabase.queryValue("SELECT count(*) FROM leave_request_periods"));
+		assertEquals(Arrays.asList("3 {1}"), TestDatabase.queryColumn(
+				"SELECT request_id || ' ' || conflicts_with::text FROM leave_request_overlap_conflicts"));
+		assertEquals("leave_balances_y" + YEAR,
+				TestDatabase.queryValue("SELECT tableoid::regclass::text FROM leave_balances WHERE balance_days = 8"));
+		// New rows still get IDs after the ones carried over
+		TestDatabase.execute("INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) "
+				+ "VALUES ('E2', 3, 15, " + YEAR + ")");
+		assertEquals("4", TestDatabase.queryValue("SELECT balance_id FROM leave_balances WHERE leave_type_id = 3"));
+		assertEquals(0, new SchemaMigrator(db).migrate());
+	}
+
+	@Test
+	void canonicalizesEmployeeIdsTheLegacySchemaAccepted() throws Exception {
+		DatabaseConnectionManager db = TestDatabase.migrated();
+		TestDatabase.execute("DROP SCHEMA public CASCADE", "CREATE SCHEMA public", legacySchema(),
+				"INSERT INTO employees VALUES ('E1', 'Ann', 'IT'), (' e2 ', 'Bob', 'HR')",
+				"INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) VALUES "
+						+ "(' e2 ', 1, 10, " + YEAR + ")",
+				"INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status) VALUES "
+						+ "(' e2 ', 1, '" + YEAR + "-03-02', '" + YEAR + "-03-03', 2, 'Approved'), "
+						+ "(' e2 ', 2, '" + YEAR + "-03-03', '" + YEAR + "-03-04', 2, 'Pending')");
+
+		assertEquals(4, new SchemaMigrator(db).migrate());
+
+		assertEquals(Arrays.asList("E1", "E2"), TestDatabase.queryColumn("SELECT emp_id FROM employees ORDER BY emp_id"));
+		assertEquals(Arrays.asList("E2"), TestDatabase.queryColumn("SELECT DISTINCT emp_id FROM leave_balances"));
+		assertEquals(Arrays.asList("E2 1", "E2 2"), TestDatabase.queryColumn(
+				"SELECT emp_id || ' ' || request_id FROM leave_requests ORDER BY request_id"));
+		// The overlapping second request stays out of the periods under its new ID as well
+		assertEquals(Arrays.asList("E2 1"), TestDatabase.queryColumn(
+				"SELECT emp_id || ' ' || request_id FROM leave_request_periods"));
+		assertEquals(Arrays.asList("E2 2"), TestDatabase.queryColumn(
+				"SELECT emp_id || ' ' || request_id FROM leave_request_overlap_conflicts"));
+		SQLException padded = assertThrows(SQLException.class,
+				() -> TestDatabase.execute("INSERT INTO employees VALUES ('e3', 'Cy', 'IT')"));
+		assertTrue(padded.getMessage().contains("employees_emp_id_canonical"), padded.getMessage());
+	}
+
+	@Test
+	void refusesToMergeEmployeeIdsThatDifferOnlyInCase() throws Exception {
+		DatabaseConnectionManager db = TestDatabase.migrated();
+		TestDatabase.execute("DROP SCHEMA public CASCADE", "CREATE SCHEMA public", legacySchema(),
+				"INSERT INTO employees VALUES ('E1', 'Ann', 'IT'), ('e1', 'Ann', 'IT')");
+
+		SQLException clash = assertThrows(SQLException.class, () -> new SchemaMigrator(db).migrate());
+		assertTrue(clash.getMessage().contains("'E1', 'e1'"), clash.getMessage());
+		// Nothing was applied, so the database can be fixed and migrated again
+		assertNull(TestDatabase.queryValue("SELECT to_regclass('schema_version')::text"));
+		TestDatabase.execute("DELETE FROM employees WHERE emp_id = 'e1'");
+		assertEquals(4, new SchemaMigrator(db).migrate());
+	}
+
+	private static String uniqueConstraintOnBalances() throws Exception {
+		return TestDatabase.queryValue("SELECT conname FROM pg_constraint "
+				+ "WHERE conrelid = 'leave_balances'::regclass AND contype = 'u'");
+	}
+
+	private static String legacySchema() throws Exception {
+		try (InputStream in = SchemaMigratorUpgradeTest.class.getResourceAsStream(LEGACY_SCHEMA)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package infrastructure.persistence;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+// One embedded PostgreSQL per test JVM, on the port named in the test config.properties, with the
+// schema migrated to the latest version. Tests share it and clear the tables they use.
+public final class TestDatabase {
+
+	private static final int PORT = 54329;
+	private static EmbeddedPostgres postgres;
+
+	private TestDatabase() {
+	}
+
+	public static synchronized DatabaseConnectionManager migrated() throws SQLException, IOException {
+		if (postgres == null) {
+			postgres = EmbeddedPostgres.builder().setPort(PORT).start();
+			Runtime.getRuntime().addShutdownHook(new Thread(TestDatabase::stop, "embedded-postgres-shutdown"));
+		}
+		DatabaseConnectionManager connectionManager = DatabaseConnectionManager.getInstance();
+		new SchemaMigrator(connectionManager).migrate();
+		return connectionManager;
+	}
+
+	// Removes every row the application writes; leave types keep the seeded defaults
+	public static void clear() throws SQLException {
+		execute("TRUNCATE employees, leave_balances, leave_requests, leave_request_periods, ingest_fingerprints "
+				+ "RESTART IDENTITY CASCADE");
+	}
+
+	public static void execute(String... statements) throws SQLException {
+		try (Connection conn = DatabaseConnectionManager.getInstance().getConnection();
+				Statement stmt = conn.createStatement()) {
+			for (String sql : statements) {
+				stmt.execute(sql);
+			}
+		}
+	}
+
+	// First column of every row, as text
+	public static List<String> queryColumn(String sql) throws SQLException {
+		try (Connection conn = DatabaseConnectionManager.getInstance().getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(sql)) {
+			List<String> values = new ArrayList<>();
+			while (rs.next()) {
+				values.add(rs.getString(1));
+			}
+			return values;
+		}
+	}
+
+	public static String queryValue(String sql) throws SQLException {
+		List<String> values = queryColumn(sql);
+		return values.isEmpty() ? null : values.get(0);
+	}
+
+	private static void stop() {
+		try {
+			postgres.close();
+		} catch (IOException e) {
+			// The process is exiting anyway
+		}
+	}
+}
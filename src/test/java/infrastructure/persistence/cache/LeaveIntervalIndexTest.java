@@ -0,0 +1,148 @@
+package infrastructure.persistence.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import common.exception.InvalidLeaveRequestException;
+import domain.model.LeaveRequest;
+import domain.model.LeaveStatus;
+import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.TestDatabase;
+import infrastructure.persistence.jdbc.JdbcLeaveRequestRepository;
+import infrastructure.persistence.jdbc.JdbcLeaveRequestRepository.OverlapCheck;
+
+// The index has to answer exactly what the range query on leave_requests answers, through saves,
+// status changes and rows it never saw being written
+class LeaveIntervalIndexTest {
+
+	private static final int EMPLOYEES = 40;
+	private static final int LOOKUPS = 3000;
+	private static final int YEAR = LocalDate.now().getYear();
+	private static final String[] LEAVE_TYPES = { "Sick", "Casual", "Paid" };
+	private static final LeaveStatus[] STATUSES = { LeaveStatus.PENDING, LeaveStatus.APPROVED, LeaveStatus.REJECTED };
+
+	private static DatabaseConnectionManager db;
+	private LeaveIntervalIndex index;
+	private JdbcLeaveRequestRepository indexed;
+	private JdbcLeaveRequestRepository database;
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		db = TestDatabase.migrated();
+	}
+
+	@BeforeEach
+	void seed() throws Exception {
+		TestDatabase.clear();
+		TestDatabase.execute(
+				"INSERT INTO employees SELECT 'E' || e, 'Name ' || e, 'IT' FROM generate_series(1, " + EMPLOYEES + ") AS e",
+				// Rows written with the period trigger switched off, as requests that overlapped before V3 were
+				// left out of leave_request_periods: long periods containing shorter ones are what the running
+				// maximum of end dates is there for
+				"SET leave.moving_partitions = 'on'",
+				"SELECT setseed(0.25)",
+				"INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status) "
+						+ "SELECT 'E' || (1 + floor(random() * " + EMPLOYEES + ")::int), 1 + floor(random() * 3)::int, d, "
+						+ "d + floor(random() * random() * 90)::int, 1, "
+						+ "(ARRAY['Pending', 'Approved', 'Rejected'])[1 + floor(random() * 3)::int] "
+						+ "FROM (SELECT make_date(" + YEAR + ", 1, 1) + floor(random() * 365)::int AS d "
+						+ "FROM generate_series(1, 800)) AS starts",
+				"RESET leave.moving_partitions");
+
+		LeaveTypeCache leaveTypeCache = new LeaveTypeCache(db);
+		leaveTypeCache.reload();
+		index = new LeaveIntervalIndex(db);
+		index.warm();
+		indexed = new JdbcLeaveRequestRepository(db, leaveTypeCache, index, OverlapCheck.INDEX);
+		database = new JdbcLeaveRequestRepository(db, leaveTypeCache);
+	}
+
+	@Test
+	void agreesWithTheDatabaseThroughSavesAndStatusChanges() throws Exception {
+		assertTrue(index.isWarmed());
+		Random random = new Random(7);
+		int changes = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			String employeeId = "E" + (1 + random.nextInt(EMPLOYEES));
+			LocalDate start = LocalDate.of(YEAR, 1, 1).plusDays(random.nextInt(400) - 20);
+			LocalDate end = start.plusDays(random.nextInt(30));
+			assertEquals(fromDatabase(employeeId, start, end), sorted(index.findOverlapping(employeeId, start, end)),
+					employeeId + " " + start + " to " + end);
+
+			// Every few lookups the data changes through the repository that keeps the index current
+			if (i % 5 == 0) {
+				changes += change(random, employeeId, start, end);
+			}
+		}
+		assertTrue(changes > 100, "only " + changes + " changes went through");
+	}
+
+	// VERIFY trusts the database and reloads the employee, after which the index agrees on its own
+	@Test
+	void verifyCatchesARowWrittenBehindTheIndex() throws Exception {
+		LeaveTypeCache leaveTypeCache = new LeaveTypeCache(db);
+		leaveTypeCache.reload();
+		JdbcLeaveRequestRepository verifying = new JdbcLeaveRequestRepository(db, leaveTypeCache, index,
+				OverlapCheck.VERIFY);
+		LocalDate start = LocalDate.of(YEAR + 1, 6, 1);
+		LocalDate end = start.plusDays(2);
+		TestDatabase.execute("INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, "
+				+ "status) VALUES ('E1', 1, '" + start + "', '" + end + "', 3, 'Pending')");
+		assertTrue(index.findOverlapping("E1", start, end).isEmpty());
+
+		List<Integer> expected = fromDatabase("E1", start, end);
+		assertEquals(1, expected.size());
+		assertEquals(expected, ids(verifying.findOverlappingRequests("E1", start, end)));
+		assertEquals(expected, index.findOverlapping("E1", start, end));
+	}
+
+	// Returns 1 when a write went through, 0 when the constraint turned it away
+	private int change(Random random, String employeeId, LocalDate start, LocalDate end) throws Exception {
+		try {
+			if (random.nextBoolean()) {
+				LeaveStatus status = STATUSES[random.nextInt(STATUSES.length)];
+				indexed.save(new LeaveRequest(0, employeeId, LEAVE_TYPES[random.nextInt(LEAVE_TYPES.length)], start, end,
+						(float) (end.toEpochDay() - start.toEpochDay() + 1), status, "None"));
+			} else {
+				List<String> requestIds = TestDatabase.queryColumn(
+						"SELECT request_id FROM leave_requests WHERE emp_id = '" + employeeId + "'");
+				if (requestIds.isEmpty()) {
+					return 0;
+				}
+				int requestId = Integer.parseInt(requestIds.get(random.nextInt(requestIds.size())));
+				indexed.updateStatus(requestId, STATUSES[random.nextInt(STATUSES.length)], "Changed");
+			}
+			return 1;
+		} catch (InvalidLeaveRequestException e) {
+			return 0;
+		}
+	}
+
+	private List<Integer> fromDatabase(String employeeId, LocalDate start, LocalDate end) {
+		return sorted(ids(database.findOverlappingRequests(employeeId, start, end)));
+	}
+
+	private static List<Integer> ids(List<LeaveRequest> requests) {
+		List<Integer> ids = new ArrayList<>();
+		for (LeaveRequest request : requests) {
+			ids.add(request.getRequestId());
+		}
+		return ids;
+	}
+
+	private static List<Integer> sorted(List<Integer> ids) {
+		List<Integer> copy = new ArrayList<>(ids);
+		Collections.sort(copy);
+		return copy;
+	}
+}
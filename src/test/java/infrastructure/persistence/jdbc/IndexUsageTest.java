@@ -0,0 +1,130 @@
+package infrastructure.persistence.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.TestDatabase;
+
+// EXPLAINs the repositories' own lookup statements on an analyzed table of realistic size and checks
+// that each one is answered from the index meant for it, not by scanning the table
+class IndexUsageTest {
+
+	private static final int EMPLOYEES = 2000;
+	private static final int YEAR = LocalDate.now().getYear();
+	private static final Pattern INDEX_SCAN = Pattern.compile(
+			"Index (?:Only )?Scan using (\\S+) on|Bitmap Index Scan on (\\S+)");
+	private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\S+)");
+
+	private static DatabaseConnectionManager db;
+
+	@BeforeAll
+	static void seed() throws Exception {
+		db = TestDatabase.migrated();
+		TestDatabase.clear();
+		TestDatabase.execute(
+				"INSERT INTO employees SELECT 'E' || lpad(e::text, 5, '0'), 'Name ' || e, 'Dept ' || (e % 20) "
+						+ "FROM generate_series(1, " + EMPLOYEES + ") AS e",
+				"INSERT INTO leave_balances (emp_id, leave_type_id, balance_days, year) "
+						+ "SELECT emp_id, leave_type_id, default_balance, y FROM employees, leave_types, "
+						+ "generate_series(" + (YEAR - 1) + ", " + YEAR + ") AS y",
+				// Ten two-day requests per employee over two years, far enough apart never to overlap
+				"INSERT INTO leave_requests (emp_id, leave_type_id, start_date, end_date, leave_days, status) "
+						+ "SELECT emp_id, 1 + i % 3, make_date(" + (YEAR - 1) + ", 1, 1) + (i * 70 + n % 20)::int, "
+						+ "make_date(" + (YEAR - 1) + ", 1, 2) + (i * 70 + n % 20)::int, 2, "
+						+ "(ARRAY['Pending', 'Approved', 'Rejected'])[1 + i % 3] "
+						+ "FROM (SELECT emp_id, row_number() OVER (ORDER BY emp_id) AS n FROM employees) e, "
+						+ "generate_series(0, 9) AS i",
+				"ANALYZE employees, leave_balances, leave_requests");
+	}
+
+	@Test
+	void balanceLookupUsesTheUniqueConstraintIndex() throws Exception {
+		String plan = explain(JdbcLeaveBalanceRepository.FIND_BY_EMPLOYEE_AND_TYPE_SQL, "E00042", 1);
+		assertEquals(Collections.singleton("uq_leave_balances_emp_type_year"), indexesScanned(plan, "leave_balances"), plan);
+		assertOnlyEmptyTablesScanned(plan);
+	}
+
+	// Both composites lead with emp_id and take the start_date bounds as index conditions; the planner
+	// picks whichever is cheaper for the data, so either one answers the lookup
+	@Test
+	void overlapLookupUsesAnEmployeeDatesIndex() throws Exception {
+		LocalDate start = LocalDate.of(YEAR, 3, 1);
+		LocalDate end = start.plusDays(4);
+		String plan = explain(JdbcLeaveRequestRepository.FIND_OVERLAPPING_SQL, "E00042", Date.valueOf(end),
+				Date.valueOf(start), Date.valueOf(start.minusDays(JdbcLeaveRequestRepository.MAX_REQUEST_SPAN_DAYS)));
+		Set<String> indexes = indexesScanned(plan, "leave_requests");
+		assertFalse(indexes.isEmpty(), plan);
+		assertTrue(Arrays.asList("idx_leave_requests_emp_status_dates", "idx_leave_requests_natural_key")
+				.containsAll(indexes), plan);
+		assertOnlyEmptyTablesScanned(plan);
+	}
+
+	@Test
+	void naturalKeyMatchUsesTheNaturalKeyIndex() throws Exception {
+		LocalDate start = LocalDate.of(YEAR, 3, 1);
+		String plan = explain(JdbcLeaveRequestRepository.DELETE_BY_KEY_SQL, "E00042", 1, Date.valueOf(start),
+				Date.valueOf(start.plusDays(1)));
+		assertEquals(Collections.singleton("idx_leave_requests_natural_key"), indexesScanned(plan, "leave_requests"),
+				plan);
+		assertOnlyEmptyTablesScanned(plan);
+	}
+
+	// Runs EXPLAIN with the values bound, as the driver would run the statement itself
+	private static String explain(String sql, Object... parameters) throws Exception {
+		try (Connection conn = db.getConnection(); PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+			for (int i = 0; i < parameters.length; i++) {
+				stmt.setObject(i + 1, parameters[i]);
+			}
+			StringBuilder plan = new StringBuilder();
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					plan.append(rs.getString(1)).append('\n');
+				}
+			}
+			return plan.toString();
+		}
+	}
+
+	// Indexes scanned on the table's partitions, each named after the index declared on the table
+	// itself (partition indexes get generated names)
+	private static Set<String> indexesScanned(String plan, String table) throws Exception {
+		Set<String> indexes = new TreeSet<>();
+		Matcher scan = INDEX_SCAN.matcher(plan);
+		while (scan.find()) {
+			String index = scan.group(1) != null ? scan.group(1) : scan.group(2);
+			String root = TestDatabase.queryValue("SELECT COALESCE(pg_partition_root(i), i)::text FROM "
+					+ "CAST('" + index + "' AS regclass) AS i");
+			String rootTable = TestDatabase.queryValue("SELECT indrelid::regclass::text FROM pg_index "
+					+ "WHERE indexrelid = '" + root + "'::regclass");
+			if (table.equals(rootTable)) {
+				indexes.add(root);
+			}
+		}
+		return indexes;
+	}
+
+	// A sequential scan is only acceptable on a partition with no rows yet, such as next year's
+	private static void assertOnlyEmptyTablesScanned(String plan) throws Exception {
+		Matcher scan = SEQ_SCAN.matcher(plan);
+		while (scan.find()) {
+			assertEquals("0", TestDatabase.queryValue("SELECT count(*) FROM " + scan.group(1)), plan);
+		}
+	}
+}
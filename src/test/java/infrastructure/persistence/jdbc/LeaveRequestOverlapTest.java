@@ -0,0 +1,240 @@
+package infrastructure.persistence.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.services.FileProcessingService;
+import common.exception.InvalidLeaveRequestException;
+import domain.model.LeaveRequest;
+import domain.model.LeaveStatus;
+import domain.repository.Rejection;
+import domain.validation.FileValidator;
+import infrastructure.file.DeadLetterLog;
+import infrastructure.file.parsers.LeaveRequestXlsxParser;
+import infrastructure.persistence.DatabaseConnectionManager;
+import infrastructure.persistence.TestDatabase;
+import infrastructure.persistence.cache.LeaveTypeCache;
+
+// leave_request_periods_no_overlap, and how each write path reports the rows it turns away
+class LeaveRequestOverlapTest {
+
+	private static final int THREADS = 16;
+	private static final int YEAR = LocalDate.now().getYear();
+
+	private static DatabaseConnectionManager db;
+	private JdbcLeaveRequestRepository repository;
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		db = TestDatabase.migrated();
+	}
+
+	@BeforeEach
+	void seed() throws Exception {
+		TestDatabase.clear();
+		TestDatabase.execute("INSERT INTO employees VALUES ('E1', 'Ann', 'IT'), ('E2', 'Bob', 'HR')");
+		LeaveTypeCache leaveTypeCache = new LeaveTypeCache(db);
+		leaveTypeCache.reload();
+		repository = new JdbcLeaveRequestRepository(db, leaveTypeCache);
+	}
+
+	// No overlap check runs in Java here; every thread gets past it and only the constraint decides
+	@Test
+	void concurrentOverlappingSavesStoreExactlyOne() throws Exception {
+		AtomicInteger saved = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				// Every range contains March 10th
+				LeaveRequest request = pending("E1", "Sick", date(3, 1 + t % 10), date(3, 10 + t % 5));
+				workers.add(executor.submit(() -> {
+					start.await();
+					try {
+						repository.save(request);
+						saved.incrementAndGet();
+					} catch (InvalidLeaveRequestException e) {
+						rejected.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> worker : workers) {
+				worker.get(1, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, saved.get());
+		assertEquals(THREADS - 1, rejected.get());
+		assertEquals("1", TestDatabase.queryValue("SELECT count(*) FROM leave_requests"));
+		assertEquals("1", TestDatabase.queryValue("SELECT count(*) FROM leave_request_periods"));
+	}
+
+	@Test
+	void reopeningARejectedOverlapFails() throws Exception {
+		repository.save(pending("E1", "Sick", date(3, 1), date(3, 5)));
+		LeaveRequest overlap = repository.save(new LeaveRequest(0, "E1", "Casual", date(3, 4), date(3, 6), 3,
+				LeaveStatus.REJECTED, "None"));
+
+		InvalidLeaveRequestException e = assertThrows(InvalidLeaveRequestException.class,
+				() -> repository.updateStatus(overlap.getRequestId(), LeaveStatus.PENDING, "Reopened"));
+		assertTrue(e.getMessage().contains(String.valueOf(overlap.getRequestId())), e.getMessage());
+		assertEquals("Rejected", TestDatabase.queryValue(
+				"SELECT status FROM leave_requests WHERE request_id = " + overlap.getRequestId()));
+	}
+
+	// The row moves to next year's partition, which the trigger sees as a delete and an insert
+	@Test
+	void movingARequestToAnotherYearMovesItsPeriod() throws Exception {
+		LeaveRequest request = repository.save(pending("E1", "Sick", date(12, 30), date(12, 31)));
+		repository.save(new LeaveRequest(request.getRequestId(), "E1", "Sick", LocalDate.of(YEAR + 1, 1, 5),
+				LocalDate.of(YEAR + 1, 1, 6), 2, LeaveStatus.PENDING, "Moved"));
+
+		assertEquals("leave_requests_y" + (YEAR + 1), TestDatabase.queryValue(
+				"SELECT tableoid::regclass::text FROM leave_requests WHERE request_id = " + request.getRequestId()));
+		assertEquals("[" + (YEAR + 1) + "-01-05," + (YEAR + 1) + "-01-07)", TestDatabase.queryValue(
+				"SELECT period::text FROM leave_request_periods WHERE request_id = " + request.getRequestId()));
+		repository.save(pending("E1", "Casual", date(12, 30), date(12, 31)));
+		assertThrows(InvalidLeaveRequestException.class,
+				() -> repository.save(pending("E1", "Paid", LocalDate.of(YEAR + 1, 1, 6), LocalDate.of(YEAR + 1, 1, 8))));
+	}
+
+	@Test
+	void applyDeltaReturnsTheRowsItDidNotStore() throws Exception {
+		LeaveRequest first = pending("E1", "Sick", date(3, 1), date(3, 5));
+		LeaveRequest overlapping = pending("E1", "Casual", date(3, 4), date(3, 6));
+		LeaveRequest otherEmployee = pending("E2", "Casual", date(3, 4), date(3, 6));
+		LeaveRequest rejectedStatus = new LeaveRequest(0, "E1", "Paid", date(3, 2), date(3, 3), 2, LeaveStatus.REJECTED,
+				"None");
+
+		List<Rejection<LeaveRequest>> rejected = repository.applyDelta(
+				Arrays.asList(first, overlapping, otherEmployee, rejectedStatus), Collections.emptyList(),
+				Collections.emptyList());
+
+		assertEquals(1, rejected.size());
+		assertEquals(overlapping, rejected.get(0).getEntity());
+		assertTrue(rejected.get(0).getReason().contains("E1"), rejected.get(0).getReason());
+		assertEquals("3", TestDatabase.queryValue("SELECT count(*) FROM leave_requests"));
+
+		// Reopening the rejected row would overlap the first one
+		LeaveRequest reopened = pending("E1", "Paid", date(3, 2), date(3, 3));
+		rejected = repository.applyDelta(Collections.emptyList(), Collections.singletonList(reopened),
+				Collections.emptyList());
+		assertEquals(Collections.singletonList(reopened), entities(rejected));
+		assertEquals("Rejected", TestDatabase.queryValue("SELECT status FROM leave_requests WHERE start_date = '"
+				+ date(3, 2) + "'"));
+	}
+
+	// A file that moves a request to overlapping dates deletes the old key and inserts the new one
+	@Test
+	void applyDeltaDeletesBeforeInserting() throws Exception {
+		LeaveRequest original = pending("E1", "Sick", date(3, 1), date(3, 5));
+		repository.applyDelta(Collections.singletonList(original), Collections.emptyList(), Collections.emptyList());
+		LeaveRequest moved = pending("E1", "Sick", date(3, 3), date(3, 7));
+
+		List<Rejection<LeaveRequest>> rejected = repository.applyDelta(Collections.singletonList(moved),
+				Collections.emptyList(), Collections.singletonList(repository.naturalKey(original)));
+
+		assertTrue(rejected.isEmpty());
+		assertEquals(date(3, 3).toString(), TestDatabase.queryValue("SELECT start_date FROM leave_requests"));
+	}
+
+	// Rows the fingerprints place on the wrong side are written the other way instead of being lost
+	@Test
+	void applyDeltaInsertsAMissingRowAndUpdatesAStoredOne() throws Exception {
+		LeaveRequest stored = pending("E1", "Sick", date(3, 1), date(3, 5));
+		repository.save(stored);
+		LeaveRequest approved = new LeaveRequest(0, "E1", "Sick", date(3, 1), date(3, 5), 5, LeaveStatus.APPROVED,
+				"None");
+		LeaveRequest missing = pending("E2", "Sick", date(4, 1), date(4, 2));
+
+		List<Rejection<LeaveRequest>> rejected = repository.applyDelta(Collections.singletonList(approved),
+				Collections.singletonList(missing), Collections.emptyList());
+
+		assertTrue(rejected.isEmpty());
+		assertEquals(Arrays.asList("E1 Approved", "E2 Pending"), TestDatabase.queryColumn(
+				"SELECT emp_id || ' ' || status FROM leave_requests ORDER BY emp_id"));
+	}
+
+	@Test
+	void bulkLoadReturnsOverlapsAndUnknownLeaveTypes() throws Exception {
+		repository.save(pending("E1", "Sick", date(3, 1), date(3, 5)));
+		LeaveRequest overlapsStored = pending("E1", "Casual", date(3, 5), date(3, 6));
+		LeaveRequest first = pending("E2", "Sick", date(3, 1), date(3, 5));
+		LeaveRequest overlapsEarlierRow = pending("E2", "Paid", date(3, 2), date(3, 2));
+		LeaveRequest unknownType = pending("E2", "Study", date(5, 1), date(5, 1));
+		LeaveRequest stored = pending("E1", "Casual", date(4, 1), date(4, 2));
+
+		List<Rejection<LeaveRequest>> rejected = repository.bulkLoad(
+				Arrays.asList(overlapsStored, first, overlapsEarlierRow, unknownType, stored));
+
+		assertEquals(Arrays.asList(overlapsStored, overlapsEarlierRow, unknownType), entities(rejected));
+		assertTrue(rejected.get(2).getReason().contains("unknown leave type"), rejected.get(2).getReason());
+		assertEquals("3", TestDatabase.queryValue("SELECT count(*) FROM leave_requests"));
+	}
+
+	@Test
+	void incrementalIngestDeadLettersRejectedRowsAndDoesNotFingerprintThem() throws Exception {
+		FileProcessingService<LeaveRequest> service = new FileProcessingService<>(new LeaveRequestXlsxParser(),
+				new FileValidator(), Paths.get("."), repository, new JdbcIngestFingerprintRepository(db));
+		service.setIngestMode(FileProcessingService.IngestMode.INCREMENTAL);
+		Path sourceFile = Paths.get("SickLeave.xlsm");
+		LeaveRequest first = pending("E1", "Sick", date(3, 1), date(3, 5));
+		LeaveRequest overlapping = pending("E1", "Sick", date(3, 5), date(3, 6));
+		DeadLetterLog deadLetters = new DeadLetterLog();
+
+		service.persistFile(sourceFile, Arrays.asList(first, overlapping), true, deadLetters);
+
+		assertEquals(Collections.singletonList(repository.naturalKey(first)),
+				TestDatabase.queryColumn("SELECT natural_key FROM ingest_fingerprints"));
+		assertEquals(1, deadLetters.size());
+		assertEquals(sourceFile.toFile().getPath(), deadLetters.getFailures().get(0).getFile());
+		assertTrue(deadLetters.hasFailuresFor(sourceFile));
+
+		// Tried again on the next ingest, and stored once the file no longer overlaps
+		LeaveRequest moved = pending("E1", "Sick", date(3, 6), date(3, 7));
+		service.persistFile(sourceFile, Arrays.asList(first, moved), true, new DeadLetterLog());
+		assertEquals("2", TestDatabase.queryValue("SELECT count(*) FROM ingest_fingerprints"));
+	}
+
+	private static LeaveRequest pending(String employeeId, String leaveType, LocalDate start, LocalDate end) {
+		return new LeaveRequest(0, employeeId, leaveType, start, end, (float) (end.toEpochDay() - start.toEpochDay() + 1),
+				LeaveStatus.PENDING, "None");
+	}
+
+	private static LocalDate date(int month, int day) {
+		return LocalDate.of(YEAR, month, day);
+	}
+
+	private static List<LeaveRequest> entities(List<Rejection<LeaveRequest>> rejected) {
+		List<LeaveRequest> entities = new ArrayList<>();
+		for (Rejection<LeaveRequest> rejection : rejected) {
+			entities.add(rejection.getEntity());
+		}
+		return entities;
+	}
+}